@@ -0,0 +1,286 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.mcmp;
+
+import java.net.InetAddress;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.servlet.ServletRequestListener;
+import javax.servlet.http.HttpSessionListener;
+
+import org.jboss.modcluster.container.Connector;
+import org.jboss.modcluster.container.Context;
+import org.jboss.modcluster.container.Engine;
+import org.jboss.modcluster.container.Host;
+import org.jboss.modcluster.container.Server;
+
+/**
+ * Minimal fixed container model, so that benchmarks measure mod_cluster code rather than mocking overhead.
+ */
+final class BenchmarkContainer {
+
+    static class SimpleEngine implements Engine {
+        private final Connector connector;
+        private final Host host;
+        private volatile String jvmRoute;
+
+        SimpleEngine(String jvmRoute, InetAddress address, String... aliases) {
+            this.jvmRoute = jvmRoute;
+            this.connector = new SimpleConnector(address);
+            Set<String> hostAliases = new LinkedHashSet<String>();
+            Collections.addAll(hostAliases, aliases);
+            this.host = new SimpleHost(this, aliases[0], hostAliases);
+        }
+
+        Host getHost() {
+            return this.host;
+        }
+
+        @Override
+        public String getName() {
+            return "catalina";
+        }
+
+        @Override
+        public Server getServer() {
+            return null;
+        }
+
+        @Override
+        public Iterable<Host> getHosts() {
+            return Collections.singleton(this.host);
+        }
+
+        @Override
+        public Connector getProxyConnector() {
+            return this.connector;
+        }
+
+        @Override
+        public Iterable<Connector> getConnectors() {
+            return Collections.singleton(this.connector);
+        }
+
+        @Override
+        public String getJvmRoute() {
+            return this.jvmRoute;
+        }
+
+        @Override
+        public void setJvmRoute(String jvmRoute) {
+            this.jvmRoute = jvmRoute;
+        }
+
+        @Override
+        public Host findHost(String name) {
+            return this.host.getName().equals(name) ? this.host : null;
+        }
+
+        @Override
+        public String getSessionCookieName() {
+            return "JSESSIONID";
+        }
+
+        @Override
+        public String getSessionParameterName() {
+            return "jsessionid";
+        }
+
+        @Override
+        public String getDefaultHost() {
+            return this.host.getName();
+        }
+    }
+
+    static class SimpleHost implements Host {
+        private final Engine engine;
+        private final String name;
+        private final Set<String> aliases;
+
+        SimpleHost(Engine engine, String name, Set<String> aliases) {
+            this.engine = engine;
+            this.name = name;
+            this.aliases = aliases;
+        }
+
+        @Override
+        public String getName() {
+            return this.name;
+        }
+
+        @Override
+        public Engine getEngine() {
+            return this.engine;
+        }
+
+        @Override
+        public Iterable<Context> getContexts() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public Set<String> getAliases() {
+            // Containers build a fresh alias set on every call
+            return new LinkedHashSet<String>(this.aliases);
+        }
+
+        @Override
+        public Context findContext(String path) {
+            return new SimpleContext(this, path);
+        }
+    }
+
+    static class SimpleContext implements Context {
+        private final Host host;
+        private final String path;
+
+        SimpleContext(Host host, String path) {
+            this.host = host;
+            this.path = path;
+        }
+
+        @Override
+        public Host getHost() {
+            return this.host;
+        }
+
+        @Override
+        public String getPath() {
+            return this.path;
+        }
+
+        @Override
+        public boolean isStarted() {
+            return true;
+        }
+
+        @Override
+        public void addRequestListener(ServletRequestListener listener) {
+        }
+
+        @Override
+        public void removeRequestListener(ServletRequestListener listener) {
+        }
+
+        @Override
+        public void addSessionListener(HttpSessionListener listener) {
+        }
+
+        @Override
+        public void removeSessionListener(HttpSessionListener listener) {
+        }
+
+        @Override
+        public int getActiveSessionCount() {
+            return 0;
+        }
+
+        @Override
+        public boolean isDistributable() {
+            return false;
+        }
+    }
+
+    static class SimpleConnector implements Connector {
+        private volatile InetAddress address;
+
+        SimpleConnector(InetAddress address) {
+            this.address = address;
+        }
+
+        @Override
+        public boolean isReverse() {
+            return false;
+        }
+
+        @Override
+        public Type getType() {
+            return Type.AJP;
+        }
+
+        @Override
+        public InetAddress getAddress() {
+            return this.address;
+        }
+
+        @Override
+        public void setAddress(InetAddress address) {
+            this.address = address;
+        }
+
+        @Override
+        public int getPort() {
+            return Type.AJP.getDefaultPort();
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public int getMaxThreads() {
+            return 200;
+        }
+
+        @Override
+        public int getBusyThreads() {
+            return 0;
+        }
+
+        @Override
+        public int getQueueSize() {
+            return 0;
+        }
+
+        @Override
+        public long getQueueWaitTime() {
+            return 0;
+        }
+
+        @Override
+        public int getBacklog() {
+            return 0;
+        }
+
+        @Override
+        public long getBytesSent() {
+            return 0;
+        }
+
+        @Override
+        public long getBytesReceived() {
+            return 0;
+        }
+
+        @Override
+        public long getRequestCount() {
+            return 0;
+        }
+    }
+
+    private BenchmarkContainer() {
+        // Hide
+    }
+}
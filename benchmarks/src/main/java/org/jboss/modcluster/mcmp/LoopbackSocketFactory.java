@@ -0,0 +1,159 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.mcmp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import javax.net.SocketFactory;
+
+/**
+ * Socket factory whose sockets never touch the network: writes are discarded and reads replay a fixed HTTP response
+ * forever. Lets {@link org.jboss.modcluster.mcmp.impl.DefaultMCMPHandler} exchange requests without a proxy.
+ */
+class LoopbackSocketFactory extends SocketFactory {
+    private final byte[] response;
+
+    LoopbackSocketFactory(String body) {
+        this.response = ("HTTP/1.1 200 OK\r\nContent-Length: " + body.length() + "\r\n\r\n" + body).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public Socket createSocket() {
+        return new LoopbackSocket(this.response);
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) {
+        return this.createSocket();
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) {
+        return this.createSocket();
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) {
+        return this.createSocket();
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) {
+        return this.createSocket();
+    }
+
+    private static class LoopbackSocket extends Socket {
+        private final InputStream input;
+        private final OutputStream output = new OutputStream() {
+            @Override
+            public void write(int b) {
+                // Discard
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                // Discard
+            }
+        };
+
+        LoopbackSocket(byte[] response) {
+            this.input = new RepeatingInputStream(response);
+        }
+
+        @Override
+        public void connect(SocketAddress endpoint, int timeout) {
+        }
+
+        @Override
+        public void bind(SocketAddress bindpoint) {
+        }
+
+        @Override
+        public void setSoTimeout(int timeout) {
+        }
+
+        @Override
+        public void setReuseAddress(boolean on) {
+        }
+
+        @Override
+        public InetAddress getLocalAddress() {
+            return InetAddress.getLoopbackAddress();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return this.input;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return this.output;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return false;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            // Nothing to release
+        }
+    }
+
+    private static class RepeatingInputStream extends InputStream {
+        private final byte[] data;
+        private int position = 0;
+
+        RepeatingInputStream(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public int read() {
+            int result = this.data[this.position++] & 0xff;
+            if (this.position == this.data.length) {
+                this.position = 0;
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            // Wrap around at the end of the response
+            int count = Math.min(length, this.data.length - this.position);
+            System.arraycopy(this.data, this.position, buffer, offset, count);
+            this.position += count;
+            if (this.position == this.data.length) {
+                this.position = 0;
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.mcmp;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.SocketFactory;
+
+import org.jboss.modcluster.config.ProxyConfiguration;
+import org.jboss.modcluster.config.impl.ModClusterConfig;
+import org.jboss.modcluster.container.Context;
+import org.jboss.modcluster.mcmp.impl.DefaultMCMPHandler;
+import org.jboss.modcluster.mcmp.impl.DefaultMCMPRequestFactory;
+import org.jboss.modcluster.mcmp.impl.DefaultMCMPResponseParser;
+import org.jboss.modcluster.mcmp.impl.ResetRequestSourceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link DefaultMCMPHandler#sendRequest(MCMPRequest)}, i.e. request serialization and response header/body
+ * parsing, against in-memory proxies that answer every request with a canned response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MCMPHandlerBenchmark {
+
+    @Param({ "1", "4" })
+    private int proxies;
+
+    private final MCMPRequestFactory requestFactory = new DefaultMCMPRequestFactory();
+    private MCMPHandler handler;
+    private String jvmRoute;
+    private MCMPRequest stopRequest;
+
+    @Setup
+    public void setup() throws Exception {
+        final SocketFactory socketFactory = new LoopbackSocketFactory("Type=STOP-APP-RSP&JvmRoute=node1&Alias=localhost,www.example.com,example.com&Context=/context&Requests=0");
+        ModClusterConfig config = new ModClusterConfig() {
+            @Override
+            public SocketFactory getSocketFactory() {
+                return socketFactory;
+            }
+        };
+        this.handler = new DefaultMCMPHandler(config, new ResetRequestSourceImpl(config, config, this.requestFactory), this.requestFactory, new DefaultMCMPResponseParser());
+
+        ProxyConfiguration[] proxies = new ProxyConfiguration[this.proxies];
+        for (int i = 0; i < proxies.length; ++i) {
+            final InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 6666 + i);
+            proxies[i] = new ProxyConfiguration() {
+                @Override
+                public InetSocketAddress getRemoteAddress() {
+                    return address;
+                }
+
+                @Override
+                public InetSocketAddress getLocalAddress() {
+                    return null;
+                }
+            };
+        }
+        this.handler.init(Arrays.asList(proxies), new MCMPConnectionListener() {
+            @Override
+            public void connectionEstablished(InetAddress localAddress) {
+            }
+
+            @Override
+            public boolean isEstablished() {
+                return true;
+            }
+        });
+        // Moves the proxies from pending to active and establishes their connections
+        this.handler.status();
+
+        BenchmarkContainer.SimpleEngine engine = new BenchmarkContainer.SimpleEngine("node1", InetAddress.getLoopbackAddress(), "localhost", "www.example.com", "example.com");
+        Context context = engine.getHost().findContext("/context");
+        this.jvmRoute = engine.getJvmRoute();
+        // STATUS and STOP-APP are never skipped as redundant, so every invocation reaches the socket
+        this.stopRequest = this.requestFactory.createStopRequest(context);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.handler.shutdown();
+    }
+
+    @Benchmark
+    public Map<MCMPServerState, String> sendStatusRequest() {
+        // Each status interval creates a new request
+        return this.handler.sendRequest(this.requestFactory.createStatusRequest(this.jvmRoute, 42));
+    }
+
+    @Benchmark
+    public Map<MCMPServerState, String> sendStopRequest() {
+        // Request draining reuses the same request
+        return this.handler.sendRequest(this.stopRequest);
+    }
+}
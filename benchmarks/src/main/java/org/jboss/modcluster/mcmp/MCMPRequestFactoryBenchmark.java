@@ -0,0 +1,93 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.mcmp;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.modcluster.config.impl.ModClusterConfig;
+import org.jboss.modcluster.container.Context;
+import org.jboss.modcluster.container.Engine;
+import org.jboss.modcluster.mcmp.impl.DefaultMCMPRequestFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures creation of the requests sent on every status interval (STATUS), on every reset (CONFIG) and for every
+ * context lifecycle event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MCMPRequestFactoryBenchmark {
+
+    private final MCMPRequestFactory factory = new DefaultMCMPRequestFactory();
+    private final ModClusterConfig config = new ModClusterConfig();
+    private Engine engine;
+    private Context context;
+
+    @Setup
+    public void setup() throws UnknownHostException {
+        BenchmarkContainer.SimpleEngine engine = new BenchmarkContainer.SimpleEngine("node1", InetAddress.getByName("127.0.0.1"), "localhost", "www.example.com", "example.com");
+        this.engine = engine;
+        this.context = engine.getHost().findContext("/context");
+        this.config.setBalancer("mycluster");
+        this.config.setLoadBalancingGroup("rack1");
+    }
+
+    @Benchmark
+    public MCMPRequest createConfigRequest() {
+        return this.factory.createConfigRequest(this.engine, this.config, this.config);
+    }
+
+    @Benchmark
+    public MCMPRequest createStatusRequest() {
+        return this.factory.createStatusRequest(this.engine.getJvmRoute(), 42);
+    }
+
+    @Benchmark
+    public MCMPRequest createEnableRequest() {
+        return this.factory.createEnableRequest(this.context);
+    }
+
+    @Benchmark
+    public MCMPRequest createStopRequest() {
+        return this.factory.createStopRequest(this.context);
+    }
+
+    @Benchmark
+    public MCMPRequest createEngineStopRequest() {
+        return this.factory.createStopRequest(this.engine);
+    }
+}
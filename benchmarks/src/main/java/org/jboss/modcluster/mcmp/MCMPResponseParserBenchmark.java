@@ -0,0 +1,103 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.mcmp;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.modcluster.mcmp.impl.DefaultMCMPResponseParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link DefaultMCMPResponseParser} on synthetic proxy responses. INFO responses describe the given number of
+ * contexts, spread over nodes of at most {@value #CONTEXTS_PER_NODE} contexts with two virtual hosts each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MCMPResponseParserBenchmark {
+    static final int CONTEXTS_PER_NODE = 500;
+
+    private static final String[] STATUSES = { "ENABLED", "DISABLED", "STOPPED" };
+
+    @Param({ "10", "100", "1000", "10000", "50000" })
+    private int contexts;
+
+    private final MCMPResponseParser parser = new DefaultMCMPResponseParser();
+    private String infoResponse;
+
+    @Setup
+    public void setup() {
+        this.infoResponse = createInfoResponse(this.contexts);
+    }
+
+    @Benchmark
+    public Map<String, Set<ResetRequestSource.VirtualHost>> parseInfoResponse() {
+        return this.parser.parseInfoResponse(this.infoResponse);
+    }
+
+    @Benchmark
+    public int parseStopAppResponse() {
+        return this.parser.parseStopAppResponse("Type=STOP-APP-RSP&JvmRoute=node1&Alias=localhost,www.example.com&Context=/context&Requests=3");
+    }
+
+    @Benchmark
+    public boolean parsePingResponse() {
+        return this.parser.parsePingResponse("Type=PING-RSP&State=OK&id=1494425461");
+    }
+
+    /**
+     * Builds an INFO response in the format of mod_proxy_cluster.
+     */
+    static String createInfoResponse(int contexts) {
+        int nodes = (contexts + CONTEXTS_PER_NODE - 1) / CONTEXTS_PER_NODE;
+        StringBuilder builder = new StringBuilder(contexts * 64 + nodes * 256);
+        int context = 0;
+        for (int node = 1; node <= nodes; ++node) {
+            builder.append("Node: [").append(node).append("],Name: node").append(node)
+                    .append(",Balancer: mycluster,LBGroup: ,Host: 10.0.").append(node / 256).append('.').append(node % 256)
+                    .append(",Port: 8009,Type: ajp,Flushpackets: Off,Flushwait: 10,Ping: 10,Smax: 26,Ttl: 60,Elected: 0,Read: 0,Transfered: 0,Connected: 0,Load: 100\n");
+            builder.append("Vhost: [").append(node).append(":1:1], Alias: localhost\n");
+            builder.append("Vhost: [").append(node).append(":1:2], Alias: www.example.com\n");
+            builder.append("Vhost: [").append(node).append(":2:3], Alias: internal.example.com\n");
+            for (int i = 1; (i <= CONTEXTS_PER_NODE) && (context < contexts); ++i, ++context) {
+                builder.append("Context: [").append(node).append(':').append((i % 2) + 1).append(':').append(i)
+                        .append("], Context: /app").append(i).append(", Status: ").append(STATUSES[i % STATUSES.length]).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -105,6 +105,30 @@ public interface Connector {
 
     int getBusyThreads();
 
+    /**
+     * Returns the number of requests accepted by this connector, but still waiting for a thread.
+     *
+     * @return a number of requests, or 0 if unknown
+     */
+    int getQueueSize();
+
+    /**
+     * Returns the estimated time a request submitted now would wait for a thread, i.e. from its submission to the start of
+     * its processing. The estimate may be derived from the current queue size and average processing times, rather than
+     * measured.
+     *
+     * @return a number of milliseconds, or 0 if unknown
+     */
+    long getQueueWaitTime();
+
+    /**
+     * Returns the maximum number of incoming connections queued by the operating system until accepted by this connector,
+     * i.e. the backlog of its server socket.
+     *
+     * @return a number of connections, or 0 if unknown
+     */
+    int getBacklog();
+
     long getBytesSent();
 
     long getBytesReceived();
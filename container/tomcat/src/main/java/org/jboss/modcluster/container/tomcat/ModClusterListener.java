@@ -37,9 +37,12 @@ import org.jboss.modcluster.config.impl.ModClusterConfig;
 import org.jboss.modcluster.config.impl.SessionDrainingStrategyEnum;
 import org.jboss.modcluster.load.LoadBalanceFactorProvider;
 import org.jboss.modcluster.load.LoadBalanceFactorProviderFactory;
+import org.jboss.modcluster.load.WarmUpCurve;
 import org.jboss.modcluster.load.impl.DynamicLoadBalanceFactorProvider;
 import org.jboss.modcluster.load.metric.LoadMetric;
+import org.jboss.modcluster.load.metric.impl.AggregatedLoadMetric;
 import org.jboss.modcluster.load.metric.impl.BusyConnectorsLoadMetric;
+import org.jboss.modcluster.load.metric.impl.SampledLoadMetric;
 
 import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
@@ -54,6 +57,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -72,7 +76,10 @@ public class ModClusterListener extends ModClusterConfig implements LifecycleLis
     Class<? extends LoadMetric> loadMetricClass = BusyConnectorsLoadMetric.class;
     private int decayFactor = DynamicLoadBalanceFactorProvider.DEFAULT_DECAY_FACTOR;
     private int history = DynamicLoadBalanceFactorProvider.DEFAULT_HISTORY;
+    private int halfLife = 0;
     private double capacity = LoadMetric.DEFAULT_CAPACITY;
+    private long samplingInterval = 0;
+    private AggregatedLoadMetric.Statistic statistic = null;
 
     public ModClusterListener() {
         ModClusterService service = new ModClusterService(this, this);
@@ -102,10 +109,18 @@ public class ModClusterListener extends ModClusterConfig implements LifecycleLis
 
         metric.setCapacity(this.capacity);
 
+        if (this.statistic != null) {
+            long interval = (this.samplingInterval > 0) ? this.samplingInterval : AggregatedLoadMetric.DEFAULT_INTERVAL;
+            metric = new AggregatedLoadMetric(metric, this.statistic, interval, TimeUnit.MILLISECONDS, AggregatedLoadMetric.DEFAULT_RESERVOIR_SIZE);
+        } else if (this.samplingInterval > 0) {
+            metric = new SampledLoadMetric(metric, this.samplingInterval, TimeUnit.MILLISECONDS);
+        }
+
         DynamicLoadBalanceFactorProvider provider = new DynamicLoadBalanceFactorProvider(Collections.singleton(metric));
 
         provider.setDecayFactor(this.decayFactor);
         provider.setHistory(this.history);
+        provider.setHalfLife(this.halfLife);
 
         return provider;
     }
@@ -231,6 +246,26 @@ public class ModClusterListener extends ModClusterConfig implements LifecycleLis
         this.history = history;
     }
 
+    /**
+     * Returns the number of seconds after which the contribution of a historic load value to the load factor calculation is
+     * halved.
+     *
+     * @return the configured load half-life, or 0 if load values decay per calculation
+     */
+    public int getLoadHalfLife() {
+        return this.halfLife;
+    }
+
+    /**
+     * Sets the number of seconds after which the contribution of a historic load value to the load factor calculation is
+     * halved. If positive, replaces the load decay factor and history.
+     *
+     * @param halfLife a number of seconds
+     */
+    public void setLoadHalfLife(int halfLife) {
+        this.halfLife = halfLife;
+    }
+
     public double getLoadMetricCapacity() {
         return this.capacity;
     }
@@ -245,6 +280,46 @@ public class ModClusterListener extends ModClusterConfig implements LifecycleLis
         this.capacity = Double.parseDouble(capacity);
     }
 
+    /**
+     * Returns the number of milliseconds between samples of the load metric taken in the background.
+     *
+     * @return the configured sampling interval, or 0 if the load metric is sampled when the load factor is calculated
+     */
+    public long getLoadMetricSamplingInterval() {
+        return this.samplingInterval;
+    }
+
+    /**
+     * Sets the number of milliseconds between samples of the load metric taken in the background. If positive, the load factor
+     * calculation uses the latest sample instead of querying the load metric itself.
+     *
+     * @param samplingInterval a number of milliseconds
+     */
+    public void setLoadMetricSamplingInterval(long samplingInterval) {
+        this.samplingInterval = samplingInterval;
+    }
+
+    /**
+     * Returns the statistic of the load values polled between two load factor calculations.
+     *
+     * @return mean, p90 or max, or null if the load metric is not polled
+     */
+    public String getLoadMetricStatistic() {
+        return (this.statistic != null) ? this.statistic.name().toLowerCase(Locale.ENGLISH) : null;
+    }
+
+    /**
+     * Sets the statistic of the load values polled between two load factor calculations. If set, the load metric is polled
+     * every {@link #getLoadMetricSamplingInterval()} milliseconds, or {@value AggregatedLoadMetric#DEFAULT_INTERVAL} if unset.
+     * Only applies to instantaneous load metrics, e.g. busyness: a metric reporting the change since its previous query, e.g.
+     * requests or traffic, would only report the change over a single poll.
+     *
+     * @param statistic mean, p90 or max
+     */
+    public void setLoadMetricStatistic(String statistic) {
+        this.statistic = AggregatedLoadMetric.Statistic.valueOf(statistic.toUpperCase(Locale.ENGLISH));
+    }
+
     // ---------------------------------------- ModClusterServiceMBean ----------------------------------------
 
     @Override
@@ -302,6 +377,11 @@ public class ModClusterListener extends ModClusterConfig implements LifecycleLis
         this.service.refresh();
     }
 
+    @Override
+    public void reconfigure() {
+        this.service.reconfigure();
+    }
+
     @Override
     public void removeProxy(String host, int port) {
         this.service.removeProxy(host, port);
@@ -448,53 +528,65 @@ public class ModClusterListener extends ModClusterConfig implements LifecycleLis
     private static final String HOST_CONTEXT_DELIMITER = ":";
 
     public void setExcludedContexts(String contexts) {
-        Map<String, Set<String>> excludedContextsPerHost = Collections.emptyMap();
-        if (contexts == null) {
-            excludedContextsPerHost = Collections.emptyMap();
-        } else {
-            String trimmedContexts = contexts.trim();
+        this.setExcludedContextsPerHost(parseContexts(contexts, "excludedContexts"));
+    }
 
-            if (trimmedContexts.isEmpty()) {
-                this.setExcludedContextsPerHost(Collections.<String, Set<String>>emptyMap());
-            } else {
-                excludedContextsPerHost = new HashMap<>();
+    public String getExcludedContexts() {
+        return formatContexts(this.getExcludedContextsPerHost());
+    }
 
-                for (String context : trimmedContexts.split(CONTEXT_DELIMITER)) {
-                    String[] parts = context.trim().split(HOST_CONTEXT_DELIMITER);
+    public void setSheddableContexts(String contexts) {
+        this.setSheddableContextsPerHost(parseContexts(contexts, "sheddableContexts"));
+    }
 
-                    if (parts.length > 2) {
-                        throw new IllegalArgumentException(trimmedContexts + " is not a valid value for excludedContexts");
-                    }
+    public String getSheddableContexts() {
+        return formatContexts(this.getSheddableContextsPerHost());
+    }
 
-                    String host = null;
-                    String trimmedContext = parts[0].trim();
+    private static Map<String, Set<String>> parseContexts(String contexts, String property) {
+        if (contexts == null) return Collections.emptyMap();
 
-                    if (parts.length == 2) {
-                        host = trimmedContext;
-                        trimmedContext = parts[1].trim();
-                    }
+        String trimmedContexts = contexts.trim();
 
-                    String path = trimmedContext.equals(ROOT_CONTEXT) ? "" : "/" + trimmedContext;
+        if (trimmedContexts.isEmpty()) return Collections.emptyMap();
 
-                    Set<String> paths = excludedContextsPerHost.get(host);
+        Map<String, Set<String>> contextsPerHost = new HashMap<>();
 
-                    if (paths == null) {
-                        paths = new HashSet<>();
-                        excludedContextsPerHost.put(host, paths);
-                    }
+        for (String context : trimmedContexts.split(CONTEXT_DELIMITER)) {
+            String[] parts = context.trim().split(HOST_CONTEXT_DELIMITER);
 
-                    paths.add(path);
-                }
+            if (parts.length > 2) {
+                throw new IllegalArgumentException(trimmedContexts + " is not a valid value for " + property);
+            }
+
+            String host = null;
+            String trimmedContext = parts[0].trim();
+
+            if (parts.length == 2) {
+                host = trimmedContext;
+                trimmedContext = parts[1].trim();
             }
+
+            String path = trimmedContext.equals(ROOT_CONTEXT) ? "" : "/" + trimmedContext;
+
+            Set<String> paths = contextsPerHost.get(host);
+
+            if (paths == null) {
+                paths = new HashSet<>();
+                contextsPerHost.put(host, paths);
+            }
+
+            paths.add(path);
         }
-        this.setExcludedContextsPerHost(excludedContextsPerHost);
+
+        return contextsPerHost;
     }
 
-    public String getExcludedContexts() {
-        if (this.getExcludedContextsPerHost() == null) return null;
+    private static String formatContexts(Map<String, Set<String>> contextsPerHost) {
+        if (contextsPerHost == null) return null;
 
         StringBuilder builder = new StringBuilder();
-        for (Map.Entry<String, Set<String>> entry: this.getExcludedContextsPerHost().entrySet()) {
+        for (Map.Entry<String, Set<String>> entry: contextsPerHost.entrySet()) {
             String host = entry.getKey();
             for (String path: entry.getValue()) {
                 if (builder.length() > 0) {
@@ -518,4 +610,21 @@ public class ModClusterListener extends ModClusterConfig implements LifecycleLis
             this.setSessionDrainingStrategy(SessionDrainingStrategyEnum.DEFAULT);
         }
     }
+
+    public String getDrainEndpoint() {
+        InetSocketAddress address = this.getDrainEndpointAddress();
+        return (address != null) ? address.getHostString() + ":" + address.getPort() : null;
+    }
+
+    public void setDrainEndpoint(String drainEndpoint) {
+        try {
+            this.setDrainEndpointAddress(((drainEndpoint == null) || drainEndpoint.trim().isEmpty()) ? null : Utils.parseSocketAddress(drainEndpoint.trim(), 0));
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    public void setWarmUpCurve(String warmUpCurve) {
+        this.setWarmUpCurve(WarmUpCurve.valueOf(warmUpCurve.trim().toUpperCase(Locale.ENGLISH)));
+    }
 }
@@ -155,6 +155,53 @@ public class TomcatConnector implements Connector {
         return 0;
     }
 
+    @Override
+    public int getQueueSize() {
+        Executor executor = this.connector.getProtocolHandler().getExecutor();
+        if (executor != null) {
+            if (executor instanceof ThreadPoolExecutor) {
+                return ((ThreadPoolExecutor) executor).getQueue().size();
+            }
+            // e.g. StandardThreadExecutor
+            Object size = IntrospectionUtils.getProperty(executor, "queueSize");
+            if (size instanceof Number) {
+                return ((Number) size).intValue();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Tomcat does not time queued requests, so the wait is estimated by Little's law: the queued requests, times the average
+     * processing time of a request since the connector started, divided among the threads of the executor.
+     * </p>
+     */
+    @Override
+    public long getQueueWaitTime() {
+        int queued = this.getQueueSize();
+        if (queued == 0) return 0;
+
+        RequestGroupInfo info = this.getRequestGroupInfo();
+        if ((info == null) || (info.getRequestCount() == 0)) return 0;
+
+        double processingTime = (double) info.getProcessingTime() / info.getRequestCount();
+
+        return Math.round(queued * processingTime / Math.max(this.getMaxThreads(), 1));
+    }
+
+    @Override
+    public int getBacklog() {
+        ProtocolHandler handler = this.connector.getProtocolHandler();
+        // Tomcat 7 only exposes "acceptCount" as a setter alias of "backlog"
+        Object backlog = IntrospectionUtils.getProperty(handler, "backlog");
+        if (!(backlog instanceof Number)) {
+            backlog = IntrospectionUtils.getProperty(handler, "acceptCount");
+        }
+        return (backlog instanceof Number) ? ((Number) backlog).intValue() : 0;
+    }
+
     protected Object getProtocolHandlerProperty(String property) {
         Field field = this.findField(this.connector.getProtocolHandler().getClass(), property);
         if (field == null) {
@@ -116,6 +116,28 @@ public class ConnectorTestCase {
         Assert.assertEquals(0, this.ajpConnector.getRequestCount());
     }
 
+    @Test
+    public void getQueueSize() {
+        Assert.assertEquals(0, this.httpConnector.getQueueSize());
+        Assert.assertEquals(0, this.httpsConnector.getQueueSize());
+        Assert.assertEquals(0, this.ajpConnector.getQueueSize());
+    }
+
+    @Test
+    public void getQueueWaitTime() {
+        Assert.assertEquals(0, this.httpConnector.getQueueWaitTime());
+        Assert.assertEquals(0, this.httpsConnector.getQueueWaitTime());
+        Assert.assertEquals(0, this.ajpConnector.getQueueWaitTime());
+    }
+
+    @Test
+    public void getBacklog() {
+        // Default acceptCount
+        Assert.assertEquals(100, this.httpConnector.getBacklog());
+        Assert.assertEquals(100, this.httpsConnector.getBacklog());
+        Assert.assertEquals(100, this.ajpConnector.getBacklog());
+    }
+
     @Test
     public void getMaxThreads() {
         Assert.assertEquals(0, this.httpConnector.getMaxThreads());
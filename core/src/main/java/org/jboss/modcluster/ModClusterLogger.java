@@ -177,4 +177,40 @@ public interface ModClusterLogger {
     @LogMessage(level = INFO)
     @Message(id = 46, value = "Starting to drain %d active sessions from %s:%s in %d seconds.")
     void startSessionDraining(int sessions, Host host, Context context, long timeout);
+
+    @LogMessage(level = INFO)
+    @Message(id = 47, value = "Tapering load balance factor over %d seconds before disabling contexts.")
+    void startLoadTaper(long time);
+
+    @LogMessage(level = ERROR)
+    @Message(id = 48, value = "Failed to start drain endpoint on %s")
+    void drainEndpointStartFailed(@Cause Throwable cause, InetSocketAddress address);
+
+    @LogMessage(level = WARN)
+    @Message(id = 49, value = "Failed to read node snapshot from %s")
+    void snapshotReadFailed(@Cause Throwable cause, String file);
+
+    @LogMessage(level = WARN)
+    @Message(id = 50, value = "Failed to save node snapshot to %s")
+    void snapshotWriteFailed(@Cause Throwable cause, String file);
+
+    @LogMessage(level = INFO)
+    @Message(id = 51, value = "Restored %d proxies from node snapshot %s")
+    void restoreSnapshot(int proxies, String file);
+
+    @LogMessage(level = INFO)
+    @Message(id = 52, value = "Disabling %s:%s to shed load, as the load balance factor of %s remains at %d")
+    void shedContext(Host host, Context context, Engine engine, int lbf);
+
+    @LogMessage(level = INFO)
+    @Message(id = 53, value = "Enabling %s:%s again, as the load balance factor of %s recovered to %d")
+    void restoreShedContext(Host host, Context context, Engine engine, int lbf);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 54, value = "Busy threads of %s moved by %d since the last status, pushing load balance factor %d")
+    void pushStatus(Engine engine, int change, int lbf);
+
+    @LogMessage(level = WARN)
+    @Message(id = 55, value = "Failed to close load balance factor provider")
+    void loadProviderCloseFailed(@Cause Throwable cause);
 }
@@ -21,18 +21,32 @@
  */
 package org.jboss.modcluster;
 
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.ServletRequestEvent;
 import javax.servlet.ServletRequestListener;
@@ -47,6 +61,7 @@ import org.jboss.modcluster.config.BalancerConfiguration;
 import org.jboss.modcluster.config.MCMPHandlerConfiguration;
 import org.jboss.modcluster.config.ModClusterConfiguration;
 import org.jboss.modcluster.config.NodeConfiguration;
+import org.jboss.modcluster.config.ProxyConfiguration;
 import org.jboss.modcluster.config.impl.ModClusterConfig;
 import org.jboss.modcluster.container.Connector;
 import org.jboss.modcluster.container.ContainerEventHandler;
@@ -54,9 +69,15 @@ import org.jboss.modcluster.container.Context;
 import org.jboss.modcluster.container.Engine;
 import org.jboss.modcluster.container.Host;
 import org.jboss.modcluster.container.Server;
+import org.jboss.modcluster.drain.ContextDrainProgress;
+import org.jboss.modcluster.drain.DrainEndpoint;
+import org.jboss.modcluster.drain.DrainProgress;
+import org.jboss.modcluster.drain.DrainState;
+import org.jboss.modcluster.drain.Drainer;
 import org.jboss.modcluster.load.LoadBalanceFactorProvider;
 import org.jboss.modcluster.load.LoadBalanceFactorProviderFactory;
 import org.jboss.modcluster.load.SimpleLoadBalanceFactorProviderFactory;
+import org.jboss.modcluster.load.impl.WarmUpLoadBalanceFactorProvider;
 import org.jboss.modcluster.mcmp.ContextFilter;
 import org.jboss.modcluster.mcmp.MCMPConnectionListener;
 import org.jboss.modcluster.mcmp.MCMPHandler;
@@ -72,8 +93,18 @@ import org.jboss.modcluster.mcmp.impl.DefaultMCMPResponseParser;
 import org.jboss.modcluster.mcmp.impl.ResetRequestSourceImpl;
 
 public class ModClusterService implements ModClusterServiceMBean, ContainerEventHandler, LoadBalanceFactorProvider,
-        MCMPConnectionListener, ContextFilter {
+        MCMPConnectionListener, ContextFilter, Drainer {
     public static final int DEFAULT_PORT = 8000;
+    // Maximum time in ms between STOP-APP requests while draining requests
+    static final long REQUEST_DRAIN_POLL_INTERVAL = 1000;
+    // Minimum time in ms between STOP-APP requests while draining requests
+    static final long REQUEST_DRAIN_MIN_INTERVAL = 100;
+    // Time in ms between STATUS requests while tapering the load balance factor
+    static final long LOAD_TAPER_INTERVAL = 1000;
+    // Time in ms after which a proxy saved in the node snapshot, and not reachable since, is no longer restored
+    static final long SNAPSHOT_PROXY_EXPIRATION = TimeUnit.DAYS.toMillis(1);
+    // Consecutive STATUS requests past a load shedding threshold before a context is disabled or enabled again
+    static final int LOAD_SHEDDING_INTERVALS = 3;
 
     private final NodeConfiguration nodeConfig;
     private final BalancerConfiguration balancerConfig;
@@ -88,14 +119,31 @@ public class ModClusterService implements ModClusterServiceMBean, ContainerEvent
 
     private final Map<String, Set<String>> excludedContexts = new HashMap<String, Set<String>>();
     private final ConcurrentMap<Context, EnablableRequestListener> requestListeners = new ConcurrentHashMap<Context, EnablableRequestListener>();
+    private final ConcurrentMap<Engine, LoadShedding> loadShedding = new ConcurrentHashMap<Engine, LoadShedding>();
+    // Load reported by the last STATUS request per engine, if STATUS requests are pushed
+    private final ConcurrentMap<Engine, ReportedLoad> reportedLoads = new ConcurrentHashMap<Engine, ReportedLoad>();
 
     private volatile boolean established = false;
     private volatile boolean autoEnableContexts = true;
+    // Whether all contexts were disabled on request, in which case none may be enabled again due to load
+    private volatile boolean contextsDisabled = false;
     private volatile Server server;
 
     private volatile LoadBalanceFactorProvider loadBalanceFactorProvider;
     private volatile AdvertiseListener advertiseListener;
 
+    // Start and duration in ms of the load balance factor taper in progress, if duration is positive
+    private volatile long taperStart = 0;
+    private volatile long taperDuration = 0;
+
+    // Current or most recent asynchronous drain, until re-enabled
+    private volatile Drain drain;
+    private volatile DrainEndpoint drainEndpoint;
+    private volatile ScheduledExecutorService statusPushExecutor;
+
+    // State restored from the node snapshot, if any
+    private volatile NodeSnapshot snapshot;
+
     public ModClusterService(ModClusterConfiguration config, LoadBalanceFactorProvider loadBalanceFactorProvider) {
         this(config.getNodeConfiguration(), config.getBalancerConfiguration(), config.getMCMPHandlerConfiguration(), config.getAdvertiseConfiguration(), new SimpleLoadBalanceFactorProviderFactory(loadBalanceFactorProvider));
     }
@@ -145,6 +193,8 @@ public class ModClusterService implements ModClusterServiceMBean, ContainerEvent
 
         this.server = server;
 
+        this.snapshot = this.readSnapshot();
+
         this.mcmpHandler.init(this.mcmpConfig.getProxyConfigurations(), this);
 
         this.autoEnableContexts = this.mcmpConfig.isAutoEnableContexts();
@@ -154,7 +204,47 @@ public class ModClusterService implements ModClusterServiceMBean, ContainerEvent
 
         this.resetRequestSource.init(server, this);
 
-        this.loadBalanceFactorProvider = this.loadBalanceFactorProviderFactory.createLoadBalanceFactorProvider();
+        LoadBalanceFactorProvider provider = this.loadBalanceFactorProviderFactory.createLoadBalanceFactorProvider();
+
+        if ((this.mcmpConfig.getWarmUpTime() > 0) || (this.mcmpConfig.getWarmUpRequests() > 0)) {
+            provider = new WarmUpLoadBalanceFactorProvider(provider, this.mcmpConfig.getWarmUpCurve(), this.mcmpConfig.getWarmUpTime(), this.mcmpConfig.getWarmUpTimeUnit(), this.mcmpConfig.getWarmUpRequests());
+        }
+
+        this.loadBalanceFactorProvider = provider;
+
+        if (this.mcmpConfig.getStatusPushDelta() > 0) {
+            ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable task) {
+                    Thread thread = new Thread(task, "mod_cluster status push");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            long interval = Math.max(this.mcmpConfig.getStatusPushSampleInterval(), 1);
+
+            executor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    ModClusterService.this.pushStatus();
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+
+            this.statusPushExecutor = executor;
+        }
+
+        InetSocketAddress drainEndpointAddress = this.mcmpConfig.getDrainEndpointAddress();
+
+        if (drainEndpointAddress != null) {
+            DrainEndpoint endpoint = new DrainEndpoint(this, drainEndpointAddress);
+            try {
+                endpoint.start();
+
+                this.drainEndpoint = endpoint;
+            } catch (IOException e) {
+                ModClusterLogger.LOGGER.drainEndpointStartFailed(e, drainEndpointAddress);
+            }
+        }
 
         Boolean advertise = this.mcmpConfig.getAdvertise();
 
@@ -167,20 +257,118 @@ public class ModClusterService implements ModClusterServiceMBean, ContainerEvent
                 ModClusterLogger.LOGGER.advertiseStartFailed(e);
             }
         }
+
+        NodeSnapshot snapshot = this.snapshot;
+
+        if (snapshot != null) {
+            this.restoreSnapshot(snapshot);
+        }
+
+        // Connect now, rather than on the first periodic status, so that proxies are reset and contexts registered as soon
+        // as they start
+        if ((snapshot != null) || !this.mcmpConfig.getProxyConfigurations().isEmpty()) {
+            this.mcmpHandler.status();
+        }
+    }
+
+    /**
+     * Adds the proxies saved in the snapshot that were reachable recently and are not already configured.
+     */
+    private void restoreSnapshot(NodeSnapshot snapshot) {
+        Set<InetSocketAddress> configured = this.getConfiguredProxies();
+        long expiration = System.currentTimeMillis() - SNAPSHOT_PROXY_EXPIRATION;
+        List<ProxyConfiguration> proxies = new ArrayList<ProxyConfiguration>();
+
+        for (Map.Entry<InetSocketAddress, Long> entry : snapshot.getProxies().entrySet()) {
+            if ((entry.getValue().longValue() > expiration) && !configured.contains(entry.getKey())) {
+                proxies.add(new SnapshotProxyConfiguration(entry.getKey()));
+            }
+        }
+
+        if (!proxies.isEmpty()) {
+            ModClusterLogger.LOGGER.restoreSnapshot(proxies.size(), this.mcmpConfig.getSnapshotFile());
+
+            for (ProxyConfiguration proxy : proxies) {
+                this.mcmpHandler.addProxy(proxy);
+            }
+        }
+    }
+
+    private NodeSnapshot readSnapshot() {
+        String file = this.mcmpConfig.getSnapshotFile();
+
+        if (file == null)
+            return null;
+
+        try {
+            return NodeSnapshot.read(new File(file));
+        } catch (IOException e) {
+            ModClusterLogger.LOGGER.snapshotReadFailed(e, file);
+            return null;
+        }
+    }
+
+    private void writeSnapshot(Server server) {
+        String file = this.mcmpConfig.getSnapshotFile();
+
+        if (file == null)
+            return;
+
+        // Only save proxies that are reachable and would not be added by the configuration anyway, e.g. those discovered
+        // via advertise, so that removed or dead proxies are not restored on every startup
+        Set<InetSocketAddress> configured = this.getConfiguredProxies();
+        Long now = Long.valueOf(System.currentTimeMillis());
+        Map<InetSocketAddress, Long> proxies = new LinkedHashMap<InetSocketAddress, Long>();
+        for (MCMPServerState state : this.mcmpHandler.getProxyStates()) {
+            InetSocketAddress address = state.getSocketAddress();
+            if ((state.getState() == MCMPServerState.State.OK) && !configured.contains(address)) {
+                proxies.put(address, now);
+            }
+        }
+
+        Map<String, String> jvmRoutes = new LinkedHashMap<String, String>();
+        for (Engine engine : server.getEngines()) {
+            String jvmRoute = engine.getJvmRoute();
+            if (jvmRoute != null) {
+                jvmRoutes.put(engine.getName(), jvmRoute);
+            }
+        }
+
+        try {
+            new NodeSnapshot(proxies, jvmRoutes).write(new File(file));
+        } catch (IOException e) {
+            ModClusterLogger.LOGGER.snapshotWriteFailed(e, file);
+        }
+    }
+
+    private Set<InetSocketAddress> getConfiguredProxies() {
+        Set<InetSocketAddress> proxies = new HashSet<InetSocketAddress>();
+        for (ProxyConfiguration proxy : this.mcmpConfig.getProxyConfigurations()) {
+            proxies.add(proxy.getRemoteAddress());
+        }
+        return proxies;
     }
 
     @Override
     public Set<String> getExcludedContexts(Host host) {
-        Set<String> excluded = new HashSet<String>();
-        Set<String> paths = this.excludedContexts.get(null);
+        return getContexts(this.excludedContexts, host);
+    }
+
+    /**
+     * Returns the paths that apply to the specified host, from the specified map of paths per host name, where a null host
+     * name applies to every host.
+     */
+    private static Set<String> getContexts(Map<String, Set<String>> contextsPerHost, Host host) {
+        Set<String> contexts = new HashSet<String>();
+        Set<String> paths = contextsPerHost.get(null);
         if (paths != null) {
-            excluded.addAll(paths);
+            contexts.addAll(paths);
         }
-        paths = this.excludedContexts.get(host.getName());
+        paths = contextsPerHost.get(host.getName());
         if (paths != null) {
-            excluded.addAll(paths);
+            contexts.addAll(paths);
         }
-        return Collections.unmodifiableSet(excluded);
+        return Collections.unmodifiableSet(contexts);
     }
 
     @Override
@@ -192,8 +380,35 @@ public class ModClusterService implements ModClusterServiceMBean, ContainerEvent
     public synchronized void shutdown() {
         ModClusterLogger.LOGGER.shutdown();
 
+        if (this.server != null) {
+            this.writeSnapshot(this.server);
+        }
+
         this.server = null;
 
+        if (this.drainEndpoint != null) {
+            this.drainEndpoint.stop();
+
+            this.drainEndpoint = null;
+        }
+
+        if (this.statusPushExecutor != null) {
+            this.statusPushExecutor.shutdownNow();
+
+            this.statusPushExecutor = null;
+        }
+
+        this.reportedLoads.clear();
+
+        // Stop any load sampling in the background
+        if (this.loadBalanceFactorProvider instanceof Closeable) {
+            try {
+                ((Closeable) this.loadBalanceFactorProvider).close();
+            } catch (IOException e) {
+                ModClusterLogger.LOGGER.loadProviderCloseFailed(e);
+            }
+        }
+
         if (this.advertiseListener != null) {
             this.advertiseListener.destroy();
 
@@ -207,24 +422,91 @@ public class ModClusterService implements ModClusterServiceMBean, ContainerEvent
     public void start(Server server) {
         ModClusterLogger.LOGGER.startServer();
 
+        this.taperDuration = 0;
+        this.contextsDisabled = false;
+        this.loadShedding.clear();
+
         if (this.established) {
             for (Engine engine : server.getEngines()) {
-                this.config(engine);
+                if (!this.mcmpConfig.isBulkContextRegistration() || !this.register(engine)) {
+                    this.config(engine);
 
-                for (Host host : engine.getHosts()) {
-                    for (Context context : host.getContexts()) {
-                        this.add(context);
+                    for (Host host : engine.getHosts()) {
+                        for (Context context : host.getContexts()) {
+                            this.add(context);
+                        }
                     }
                 }
             }
         }
     }
 
+    /**
+     * Configures the specified engine and enables its contexts in bulk. Sends a CONFIG request listing the started contexts,
+     * followed by ENABLE-APP *, and ENABLE-APP requests only for the contexts that could not be listed.
+     * Returns false, without sending anything, if bulk registration is not possible for this engine.
+     */
+    private boolean register(Engine engine) {
+        // ENABLE-APP * would enable contexts that are meant to start disabled
+        if (!this.autoEnableContexts)
+            return false;
+
+        Iterator<Host> hosts = engine.getHosts().iterator();
+
+        if (!hosts.hasNext())
+            return false;
+
+        Host host = hosts.next();
+
+        // A CONFIG request can only carry the contexts of a single host
+        if (hosts.hasNext())
+            return false;
+
+        List<Context> contexts = new ArrayList<Context>();
+        List<Context> remaining = new ArrayList<Context>();
+
+        for (Context context : host.getContexts()) {
+            // Excluded or failed contexts are not registered at all
+            if (this.include(context) && context.isStarted()) {
+                // Paths are comma delimited within a CONFIG request
+                if (context.getPath().indexOf(',') < 0) {
+                    contexts.add(context);
+                } else {
+                    remaining.add(context);
+                }
+            }
+        }
+
+        if (contexts.isEmpty())
+            return false;
+
+        ModClusterLogger.LOGGER.sendEngineCommand(MCMPRequestType.CONFIG, engine);
+
+        try {
+            this.mcmpHandler.sendRequest(this.requestFactory.createConfigRequest(engine, this.nodeConfig, this.balancerConfig, contexts));
+        } catch (Exception e) {
+            this.mcmpHandler.markProxiesInError();
+        }
+
+        ModClusterLogger.LOGGER.sendEngineCommand(MCMPRequestType.ENABLE_APP, engine);
+
+        // Send ENABLE-APP * request
+        this.mcmpHandler.sendRequest(this.requestFactory.createEnableRequest(engine));
+
+        for (Context context : remaining) {
+            this.enable(context);
+        }
+
+        return true;
+    }
+
     @Override
     public void stop(Server server) {
         ModClusterLogger.LOGGER.stopServer();
 
         if (this.established) {
+            this.taper(server, 0, 0);
+
             for (Engine engine : server.getEngines()) {
                 for (Host host : engine.getHosts()) {
                     for (Context context : host.getContexts()) {
@@ -283,7 +565,13 @@ public class ModClusterService implements ModClusterServiceMBean, ContainerEvent
     protected void establishJvmRoute(Engine engine) {
         // Create default jvmRoute if none was specified
         if (engine.getJvmRoute() == null) {
-            String jvmRoute = this.mcmpConfig.getJvmRouteFactory().createJvmRoute(engine);
+            // Prefer the jvmRoute of the previous run, so that proxies and sessions still refer to this node
+            NodeSnapshot snapshot = this.snapshot;
+            String jvmRoute = (snapshot != null) ? snapshot.getJvmRoutes().get(engine.getName()) : null;
+
+            if (jvmRoute == null) {
+                jvmRoute = this.mcmpConfig.getJvmRouteFactory().createJvmRoute(engine);
+            }
 
             engine.setJvmRoute(jvmRoute);
 
@@ -308,6 +596,12 @@ public class ModClusterService implements ModClusterServiceMBean, ContainerEvent
         ModClusterLogger.LOGGER.startContext(context.getHost(), context);
 
         if (this.include(context)) {
+            // A (re)deployed context starts cold, so warm up the node again
+            LoadBalanceFactorProvider provider = this.loadBalanceFactorProvider;
+            if (provider instanceof WarmUpLoadBalanceFactorProvider) {
+                ((WarmUpLoadBalanceFactorProvider) provider).restart();
+            }
+
             if (this.established) {
                 this.enable(context);
             }
@@ -336,6 +630,8 @@ public class ModClusterService implements ModClusterServiceMBean, ContainerEvent
     public void stop(Context context) {
         ModClusterLogger.LOGGER.stopContext(context.getHost(), context);
 
+        this.forgetShedContext(context);
+
         if (this.established && this.include(context)) {
             this.disable(context);
 
@@ -358,6 +654,8 @@ public class ModClusterService implements ModClusterServiceMBean, ContainerEvent
     public void remove(Context context) {
         ModClusterLogger.LOGGER.removeContext(context.getHost(), context);
 
+        this.forgetShedContext(context);
+
         if (this.include(context)) {
             if (this.established) {
                 ModClusterLogger.LOGGER.sendContextCommand(MCMPRequestType.REMOVE_APP, context.getHost(), context);
@@ -388,14 +686,268 @@ public class ModClusterService implements ModClusterServiceMBean, ContainerEvent
         this.mcmpHandler.status();
 
         if (this.established) {
-            // Send STATUS request
+            this.shed(engine, this.sendStatusRequest(engine));
+        }
+    }
+
+    /**
+     * Sends a STATUS request for the specified engine, and returns the load balance factor it reported.
+     */
+    private int sendStatusRequest(Engine engine) {
+        // Send STATUS request
+        Connector connector = engine.getProxyConnector();
+
+        int lbf = (connector != null) && connector.isAvailable() ? this.taper(this.getLoadBalanceFactor(engine)) : -1;
+
+        ModClusterLogger.LOGGER.sendEngineCommand(MCMPRequestType.STATUS, engine);
+
+        this.mcmpHandler.sendRequest(this.requestFactory.createStatusRequest(engine.getJvmRoute(), lbf));
+
+        if (this.mcmpConfig.getStatusPushDelta() > 0) {
+            this.reportedLoads.put(engine, new ReportedLoad(lbf, getBusyLoadBalanceFactor(engine)));
+        }
+
+        return lbf;
+    }
+
+    /**
+     * Sends a STATUS request right away for each engine whose busy connector threads moved by at least the configured
+     * delta since its last STATUS request, unless that request is too recent. The reported load balance factor is shifted
+     * by the same amount, until the next periodic status reports the load computed by the load balance factor provider.
+     * Invoked every {@link MCMPHandlerConfiguration#getStatusPushSampleInterval()} ms.
+     */
+    void pushStatus() {
+        Server server = this.server;
+
+        // Leave the load alone while the node is not connected, stopping or draining
+        if (!this.established || (server == null) || (this.taperDuration > 0) || (this.drain != null))
+            return;
+
+        int delta = this.mcmpConfig.getStatusPushDelta();
+        LoadBalanceFactorProvider provider = this.loadBalanceFactorProvider;
+
+        for (Engine engine : server.getEngines()) {
+            ReportedLoad reported = this.reportedLoads.get(engine);
+
+            // Do not override error, standby or warm-up
+            if ((reported == null) || (reported.lbf <= 0))
+                continue;
+            if ((provider instanceof WarmUpLoadBalanceFactorProvider) && ((WarmUpLoadBalanceFactorProvider) provider).isWarmingUp(engine))
+                continue;
+
+            int busy = getBusyLoadBalanceFactor(engine);
+
+            if ((busy <= 0) || (reported.busy <= 0))
+                continue;
+
+            int change = busy - reported.busy;
+
+            if (Math.abs(change) < delta)
+                continue;
+            if (System.currentTimeMillis() - reported.time < this.mcmpConfig.getStatusPushMinInterval())
+                continue;
+
             Connector connector = engine.getProxyConnector();
 
-            int lbf = (connector != null) && connector.isAvailable() ? this.getLoadBalanceFactor(engine) : -1;
+            if ((connector == null) || !connector.isAvailable())
+                continue;
 
-            ModClusterLogger.LOGGER.sendEngineCommand(MCMPRequestType.STATUS, engine);
+            int lbf = Math.max(1, Math.min(100, reported.lbf + change));
+
+            ModClusterLogger.LOGGER.pushStatus(engine, change, lbf);
 
             this.mcmpHandler.sendRequest(this.requestFactory.createStatusRequest(engine.getJvmRoute(), lbf));
+
+            this.reportedLoads.put(engine, new ReportedLoad(lbf, busy));
+        }
+    }
+
+    /**
+     * Expresses the share of busy connector threads of the specified engine on the scale of a load balance factor, i.e.
+     * from 100 if idle to 1 if saturated. Returns -1 if a connector does not define its maximum number of threads.
+     */
+    private static int getBusyLoadBalanceFactor(Engine engine) {
+        long busy = 0;
+        long max = 0;
+
+        for (Connector connector : engine.getConnectors()) {
+            int maxThreads = connector.getMaxThreads();
+
+            if (maxThreads <= 0)
+                return -1;
+
+            busy += connector.getBusyThreads();
+            max += maxThreads;
+        }
+
+        if (max == 0)
+            return -1;
+
+        return 100 - (int) (99 * Math.min(busy, max) / max);
+    }
+
+    /**
+     * Disables a context of the specified engine once its load balance factor remained at or below the load shedding
+     * threshold for {@link #LOAD_SHEDDING_INTERVALS} consecutive STATUS requests, and enables the most recently disabled
+     * context again once it remained at or above the recovery threshold for as long.
+     */
+    private void shed(Engine engine, int lbf) {
+        int threshold = this.mcmpConfig.getLoadSheddingThreshold();
+
+        if (threshold <= 0)
+            return;
+
+        // Leave contexts alone while the node is unavailable, stopping, disabled or not yet warmed up
+        if ((lbf <= 0) || (this.taperDuration > 0) || (this.drain != null) || this.contextsDisabled || !this.autoEnableContexts)
+            return;
+
+        LoadBalanceFactorProvider provider = this.loadBalanceFactorProvider;
+        if ((provider instanceof WarmUpLoadBalanceFactorProvider) && ((WarmUpLoadBalanceFactorProvider) provider).isWarmingUp(engine))
+            return;
+
+        LoadShedding shedding = this.loadShedding.get(engine);
+
+        if (shedding == null) {
+            shedding = new LoadShedding();
+            LoadShedding existing = this.loadShedding.putIfAbsent(engine, shedding);
+            if (existing != null) {
+                shedding = existing;
+            }
+        }
+
+        synchronized (shedding) {
+            if (lbf <= threshold) {
+                shedding.recovered = 0;
+
+                if (++shedding.saturated >= LOAD_SHEDDING_INTERVALS) {
+                    shedding.saturated = 0;
+
+                    Context context = this.findSheddableContext(engine, shedding.contexts);
+
+                    if (context != null) {
+                        ModClusterLogger.LOGGER.shedContext(context.getHost(), context, engine, lbf);
+
+                        this.disable(context);
+
+                        shedding.contexts.push(context);
+                    }
+                }
+            } else if (lbf >= this.mcmpConfig.getLoadSheddingRecoveryThreshold()) {
+                shedding.saturated = 0;
+
+                if (!shedding.contexts.isEmpty() && (++shedding.recovered >= LOAD_SHEDDING_INTERVALS)) {
+                    shedding.recovered = 0;
+
+                    Context context = shedding.contexts.pop();
+
+                    ModClusterLogger.LOGGER.restoreShedContext(context.getHost(), context, engine, lbf);
+
+                    this.mcmpHandler.sendRequest(this.requestFactory.createEnableRequest(context));
+                }
+            } else {
+                shedding.saturated = 0;
+                shedding.recovered = 0;
+            }
+        }
+    }
+
+    /**
+     * Returns the started context of the specified engine with the most requests in progress, among those that may be
+     * disabled to shed load and are not disabled already; or null, if it would be the last enabled context of the engine.
+     */
+    private Context findSheddableContext(Engine engine, Collection<Context> disabled) {
+        Map<String, Set<String>> sheddableContexts = this.mcmpConfig.getSheddableContextsPerHost();
+        boolean any = (sheddableContexts == null) || sheddableContexts.isEmpty();
+
+        Context candidate = null;
+        int candidateRequests = -1;
+        int enabled = 0;
+
+        for (Host host : engine.getHosts()) {
+            Set<String> paths = any ? Collections.<String>emptySet() : getContexts(sheddableContexts, host);
+
+            for (Context context : host.getContexts()) {
+                if (this.include(context) && context.isStarted() && !disabled.contains(context)) {
+                    enabled += 1;
+
+                    if (any || paths.contains(context.getPath())) {
+                        EnablableRequestListener listener = this.requestListeners.get(context);
+                        int requests = (listener != null) ? listener.getActiveRequests() : 0;
+
+                        if (requests > candidateRequests) {
+                            candidate = context;
+                            candidateRequests = requests;
+                        }
+                    }
+                }
+            }
+        }
+
+        // Disabling the last enabled context would take the whole node out of the balancer
+        return (enabled > 1) ? candidate : null;
+    }
+
+    /**
+     * Stops enabling the specified context again once load recovers, e.g. because it was stopped.
+     */
+    private void forgetShedContext(Context context) {
+        for (LoadShedding shedding : this.loadShedding.values()) {
+            synchronized (shedding) {
+                shedding.contexts.remove(context);
+            }
+        }
+    }
+
+    /**
+     * Scales the specified load balance factor down linearly over the course of the taper in progress, if any, but never
+     * below 1, so that the node is not mistaken for a node in error or on standby.
+     */
+    private int taper(int lbf) {
+        long duration = this.taperDuration;
+
+        if ((duration <= 0) || (lbf <= 0))
+            return lbf;
+
+        long elapsed = System.currentTimeMillis() - this.taperStart;
+
+        return (elapsed >= duration) ? 1 : Math.max(1, (int) (lbf * (duration - elapsed) / duration));
+    }
+
+    /**
+     * Gradually lowers the load balance factor reported by each engine of the specified server, sending STATUS requests
+     * every {@link #LOAD_TAPER_INTERVAL} ms over the configured taper time, but over no more than half of the specified
+     * timeout, if any, so that the remainder is left for draining sessions and requests. Returns false if interrupted, true
+     * otherwise.
+     */
+    private boolean taper(Server server, long start, long end) {
+        if (this.mcmpConfig.getLoadTaperTime() <= 0)
+            return true;
+
+        long duration = this.mcmpConfig.getLoadTaperTimeUnit().toMillis(this.mcmpConfig.getLoadTaperTime());
+        long now = System.currentTimeMillis();
+        long taperEnd = (start < end) ? Math.min(now + duration, now + (end - now) / 2) : now + duration;
+
+        ModClusterLogger.LOGGER.startLoadTaper(TimeUnit.MILLISECONDS.toSeconds(taperEnd - now));
+
+        this.taperStart = now;
+        this.taperDuration = taperEnd - now;
+
+        try {
+            while (true) {
+                for (Engine engine : server.getEngines()) {
+                    this.sendStatusRequest(engine);
+                }
+
+                long remaining = taperEnd - System.currentTimeMillis();
+
+                if (remaining <= 0)
+                    return true;
+
+                Thread.sleep(Math.min(remaining, LOAD_TAPER_INTERVAL));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
     }
 
@@ -491,11 +1043,24 @@ public class ModClusterService implements ModClusterServiceMBean, ContainerEvent
         }
     }
 
+    @Override
+    public void reconfigure() {
+        if (this.established) {
+            // Proxies that already acknowledged the same parameters are skipped by the handler
+            for (Engine engine : this.server.getEngines()) {
+                this.config(engine);
+            }
+        }
+    }
+
     @Override
     public boolean disable() {
         if (!this.established)
             return false;
 
+        this.contextsDisabled = true;
+        this.loadShedding.clear();
+
         for (Engine engine : this.server.getEngines()) {
             // Send DISABLE-APP * request
             this.mcmpHandler.sendRequest(this.requestFactory.createDisableRequest(engine));
@@ -509,6 +1074,11 @@ public class ModClusterService implements ModClusterServiceMBean, ContainerEvent
         if (!this.established)
             return false;
 
+        this.taperDuration = 0;
+        this.drain = null;
+        this.contextsDisabled = false;
+        this.loadShedding.clear();
+
         for (Engine engine : this.server.getEngines()) {
             // Send ENABLE-APP * request
             this.mcmpHandler.sendRequest(this.requestFactory.createEnableRequest(engine));
@@ -550,24 +1120,43 @@ public class ModClusterService implements ModClusterServiceMBean, ContainerEvent
         if (!this.established)
             return false;
 
+        long start = System.currentTimeMillis();
+        long end = start + unit.toMillis(timeout);
+
+        // Let the proxies shift traffic away gradually before disabling, within the first half of the same timeout
+        if (!this.taper(this.server, start, end))
+            return false;
+
+        this.contextsDisabled = true;
+        this.loadShedding.clear();
+
         // Send DISABLE-APP * requests
         for (Engine engine : this.server.getEngines()) {
             this.mcmpHandler.sendRequest(this.requestFactory.createDisableRequest(engine));
         }
 
-        long start = System.currentTimeMillis();
-        long end = start + unit.toMillis(timeout);
+        List<Context> contexts = new ArrayList<Context>();
 
         for (Engine engine : this.server.getEngines()) {
             for (Host host : engine.getHosts()) {
                 for (Context context : host.getContexts()) {
-                    if (this.mcmpConfig.getSessionDrainingStrategy().isEnabled(context) && !this.drainSessions(context, start, end)) {
-                        return false;
+                    if (this.include(context)) {
+                        if (this.mcmpConfig.getSessionDrainingStrategy().isEnabled(context)) {
+                            contexts.add(context);
+                        } else {
+                            // Nothing to wait for
+                            this.sendStopRequest(context);
+                        }
                     }
                 }
             }
         }
 
+        // Drain all contexts at once against the same deadline, stopping each as soon as it is drained
+        if (!this.drainSessions(contexts, start, end, true)) {
+            return false;
+        }
+
         // Send STOP-APP * requests
         for (Engine engine : this.server.getEngines()) {
             this.mcmpHandler.sendRequest(this.requestFactory.createStopRequest(engine));
@@ -603,8 +1192,12 @@ public class ModClusterService implements ModClusterServiceMBean, ContainerEvent
     /**
      * Sends STOP-APP requests for the specified context until there are no more pending requests, or until the specified
      * timeout is met. Returns true, if there are no more pending requests, false otherwise.
+     * Between STOP-APP requests, waits until the context has no more local requests in progress, so that proxies are only
+     * asked again once they are likely to report none, but at most {@link #REQUEST_DRAIN_POLL_INTERVAL}, in case a local
+     * request never completes. STOP-APP requests are at least {@link #REQUEST_DRAIN_MIN_INTERVAL} apart, so that proxies are
+     * queried at a bounded rate regardless of traffic, e.g. when short requests keep completing one at a time.
      */
-    private <M> boolean drainRequests(Context context, long start, long end) {
+    private boolean drainRequests(Context context, long start, long end) {
         EnablableRequestListener listener = this.requestListeners.get(context);
 
         boolean noTimeout = (start >= end);
@@ -623,17 +1216,33 @@ public class ModClusterService implements ModClusterServiceMBean, ContainerEvent
             try {
                 long current = System.currentTimeMillis();
                 long timeout = end - current;
+                long lastStop = current;
 
                 int requests = this.stop(request);
 
                 while ((requests > 0) && (noTimeout || (timeout > 0))) {
                     ModClusterLogger.LOGGER.drainRequests(requests, context.getHost(), context);
 
-                    // Wait to be notified of a destroyed request
-                    listener.wait(noTimeout ? 0 : timeout);
+                    // Wait to be notified that the context became idle, or for the next poll
+                    long poll = lastStop + REQUEST_DRAIN_POLL_INTERVAL;
+                    long wait = (noTimeout ? poll : Math.min(poll, end)) - System.currentTimeMillis();
+                    while ((listener.getActiveRequests() > 0) && (wait > 0)) {
+                        listener.wait(wait);
+                        wait = (noTimeout ? poll : Math.min(poll, end)) - System.currentTimeMillis();
+                    }
+
+                    // If it was already idle, the remaining requests are still on their way from the proxy.
+                    // Either way, keep STOP-APP requests a minimum interval apart.
+                    long next = lastStop + REQUEST_DRAIN_MIN_INTERVAL;
+                    wait = (noTimeout ? next : Math.min(next, end)) - System.currentTimeMillis();
+                    while (wait > 0) {
+                        listener.wait(wait);
+                        wait = (noTimeout ? next : Math.min(next, end)) - System.currentTimeMillis();
+                    }
 
                     current = System.currentTimeMillis();
                     timeout = end - current;
+                    lastStop = current;
 
                     requests = this.stop(request);
                 }
@@ -672,18 +1281,73 @@ public class ModClusterService implements ModClusterServiceMBean, ContainerEvent
         return requests;
     }
 
+    private static class ReportedLoad {
+        final int lbf;
+        // Busy connector threads, as a load balance factor, when the load was reported
+        final int busy;
+        final long time = System.currentTimeMillis();
+
+        ReportedLoad(int lbf, int busy) {
+            this.lbf = lbf;
+            this.busy = busy;
+        }
+    }
+
+    private static class LoadShedding {
+        // Consecutive STATUS requests at or below the load shedding threshold
+        int saturated = 0;
+        // Consecutive STATUS requests at or above the recovery threshold
+        int recovered = 0;
+        // Contexts disabled to shed load, most recent first
+        final Deque<Context> contexts = new ArrayDeque<Context>();
+    }
+
+    private static class Drain {
+        final long start = System.currentTimeMillis();
+        final CountDownLatch latch = new CountDownLatch(1);
+        // Whether every proxy acknowledged the STOP-APP request of a context
+        final ConcurrentMap<Context, Boolean> acknowledgements = new ConcurrentHashMap<Context, Boolean>();
+        volatile DrainState state = DrainState.DRAINING;
+
+        void complete(DrainState state) {
+            this.state = state;
+            this.latch.countDown();
+        }
+    }
+
     /**
      * Returns true, when the active session count reaches 0; or false, after timeout.
      */
     private boolean drainSessions(Context context, long start, long end) {
-        int remainingSessions = context.getActiveSessionCount();
+        return this.drainSessions(Collections.singletonList(context), start, end, false);
+    }
 
-        // Short circuit if there are already no sessions
-        if (remainingSessions == 0)
-            return true;
+    /**
+     * Drains the active sessions of the specified contexts concurrently. If requested, a STOP-APP is sent for each context
+     * as soon as its active session count reaches 0. Returns true, when the active session counts of all contexts reach 0;
+     * or false, after timeout.
+     */
+    private boolean drainSessions(Collection<Context> contexts, long start, long end, boolean stop) {
+        // Remaining active sessions per context still draining
+        Map<Context, Integer> draining = new LinkedHashMap<Context, Integer>();
+
+        for (Context context : contexts) {
+            int remainingSessions = context.getActiveSessionCount();
+
+            // Short circuit if there are already no sessions
+            if (remainingSessions == 0) {
+                if (stop) {
+                    this.sendStopRequest(context);
+                }
+            } else {
+                // Notify the user that the server is draining sessions since it might appear stuck since messages while draining are on DEBUG
+                ModClusterLogger.LOGGER.startSessionDraining(remainingSessions, context.getHost(), context, TimeUnit.MILLISECONDS.toSeconds(end - start));
+                draining.put(context, remainingSessions);
+            }
+        }
 
-        // Notify the user that the server is draining sessions since it might appear stuck since messages while draining are on DEBUG
-        ModClusterLogger.LOGGER.startSessionDraining(remainingSessions, context.getHost(), context, TimeUnit.MILLISECONDS.toSeconds(end - start));
+        if (draining.isEmpty())
+            return true;
 
         boolean noTimeout = (start >= end);
 
@@ -691,42 +1355,146 @@ public class ModClusterService implements ModClusterServiceMBean, ContainerEvent
 
         try {
             synchronized (listener) {
-                context.addSessionListener(listener);
+                for (Context context : draining.keySet()) {
+                    context.addSessionListener(listener);
+                }
 
-                long current = System.currentTimeMillis();
-                long timeout = end - current;
+                long timeout = end - System.currentTimeMillis();
+
+                while (noTimeout || (timeout > 0)) {
+                    Iterator<Map.Entry<Context, Integer>> entries = draining.entrySet().iterator();
+
+                    while (entries.hasNext()) {
+                        Map.Entry<Context, Integer> entry = entries.next();
+                        Context context = entry.getKey();
+                        int remainingSessions = context.getActiveSessionCount();
 
-                remainingSessions = context.getActiveSessionCount();
+                        if (remainingSessions == 0) {
+                            entries.remove();
+                            context.removeSessionListener(listener);
 
-                while ((remainingSessions > 0) && (noTimeout || (timeout > 0))) {
-                    ModClusterLogger.LOGGER.drainSessions(remainingSessions, context.getHost(), context);
+                            ModClusterLogger.LOGGER.sessionsDrained(context.getHost(), context, (System.currentTimeMillis() - start) / 1000f);
+
+                            if (stop) {
+                                this.sendStopRequest(context);
+                            }
+                        } else {
+                            entry.setValue(remainingSessions);
+
+                            ModClusterLogger.LOGGER.drainSessions(remainingSessions, context.getHost(), context);
+                        }
+                    }
+
+                    if (draining.isEmpty())
+                        break;
 
                     // Poll active sessions every second since since right after the notify, the session manager implementation
                     // will still account for that last session.
                     listener.wait(noTimeout ? 0 : Math.min(timeout, 1000));
 
-                    current = System.currentTimeMillis();
-                    timeout = end - current;
-                    remainingSessions = context.getActiveSessionCount();
+                    timeout = end - System.currentTimeMillis();
                 }
             }
 
-            boolean success = (remainingSessions == 0);
-            float duration = ((success ? System.currentTimeMillis() : end) - start) / 1000f;
+            for (Map.Entry<Context, Integer> entry : draining.entrySet()) {
+                Context context = entry.getKey();
 
-            if (success) {
-                ModClusterLogger.LOGGER.sessionsDrained(context.getHost(), context, duration);
-            } else {
-                ModClusterLogger.LOGGER.sessionDrainTimeout(remainingSessions, context.getHost(), context, duration);
+                ModClusterLogger.LOGGER.sessionDrainTimeout(entry.getValue(), context.getHost(), context, (end - start) / 1000f);
             }
 
-            return success;
+            return draining.isEmpty();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             return false;
         } finally {
-            context.removeSessionListener(listener);
+            for (Context context : draining.keySet()) {
+                context.removeSessionListener(listener);
+            }
+        }
+    }
+
+    private void sendStopRequest(Context context) {
+        ModClusterLogger.LOGGER.sendContextCommand(MCMPRequestType.STOP_APP, context.getHost(), context);
+
+        Map<MCMPServerState, String> responses = this.mcmpHandler.sendRequest(this.requestFactory.createStopRequest(context));
+
+        Drain drain = this.drain;
+        if (drain != null) {
+            // A proxy that failed or was skipped yields no response
+            drain.acknowledgements.put(context, !responses.values().contains(null));
+        }
+    }
+
+    @Override
+    public synchronized DrainProgress drain(final long timeout, final TimeUnit unit) {
+        if (!this.established)
+            return null;
+
+        Drain drain = this.drain;
+
+        if ((drain == null) || (drain.state != DrainState.DRAINING)) {
+            final Drain newDrain = new Drain();
+            this.drain = newDrain;
+            drain = newDrain;
+
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    DrainState state = DrainState.FAILED;
+                    try {
+                        if (ModClusterService.this.stop(timeout, unit)) {
+                            state = DrainState.DRAINED;
+                        } else if (!Thread.currentThread().isInterrupted()) {
+                            state = DrainState.TIMED_OUT;
+                        }
+                    } finally {
+                        newDrain.complete(state);
+                    }
+                }
+            }, "mod_cluster drain");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        return this.getDrainProgress(drain);
+    }
+
+    @Override
+    public DrainProgress getDrainProgress() {
+        Drain drain = this.drain;
+
+        return (drain != null) ? this.getDrainProgress(drain) : null;
+    }
+
+    private DrainProgress getDrainProgress(Drain drain) {
+        // Read the state first, so that a completed drain never reports stale counts
+        DrainState state = drain.state;
+        List<ContextDrainProgress> contexts = new ArrayList<ContextDrainProgress>();
+        Server server = this.server;
+
+        if (server != null) {
+            for (Engine engine : server.getEngines()) {
+                for (Host host : engine.getHosts()) {
+                    for (Context context : host.getContexts()) {
+                        if (this.include(context) && context.isStarted()) {
+                            EnablableRequestListener listener = this.requestListeners.get(context);
+                            int requests = (listener != null) ? listener.getActiveRequests() : 0;
+
+                            contexts.add(new ContextDrainProgress(host.getName(), context.getPath(), context.getActiveSessionCount(), requests, Boolean.TRUE.equals(drain.acknowledgements.get(context))));
+                        }
+                    }
+                }
+            }
         }
+
+        return new DrainProgress(state, System.currentTimeMillis() - drain.start, contexts);
+    }
+
+    @Override
+    public boolean awaitDrain(long timeout, TimeUnit unit) throws InterruptedException {
+        Drain drain = this.drain;
+
+        return (drain == null) || drain.latch.await(timeout, unit);
     }
 
     private Host findHost(String name) {
@@ -756,9 +1524,14 @@ public class ModClusterService implements ModClusterServiceMBean, ContainerEvent
     }
 
     interface EnablableRequestListener extends Enablable, ServletRequestListener {
+        /**
+         * Returns the number of requests currently being processed by the context of this listener.
+         */
+        int getActiveRequests();
     }
 
     static class NotifyOnDestroyRequestListener implements EnablableRequestListener {
+        private final AtomicInteger activeRequests = new AtomicInteger();
         private volatile boolean enabled = false;
 
         @Override
@@ -771,15 +1544,29 @@ public class ModClusterService implements ModClusterServiceMBean, ContainerEvent
             this.enabled = enabled;
         }
 
+        @Override
+        public int getActiveRequests() {
+            return this.activeRequests.get();
+        }
+
         @Override
         public void requestInitialized(ServletRequestEvent event) {
-            // Do nothing
+            this.activeRequests.incrementAndGet();
         }
 
         @Override
         public void requestDestroyed(ServletRequestEvent event) {
-            if (this.enabled) {
-                // Notify waiting threads, but only if enabled
+            int active;
+            do {
+                active = this.activeRequests.get();
+                if (active == 0) {
+                    // Request began before this listener was registered
+                    return;
+                }
+            } while (!this.activeRequests.compareAndSet(active, active - 1));
+
+            if ((active == 1) && this.enabled) {
+                // Notify waiting threads once the context becomes idle, but only if enabled
                 synchronized (this) {
                     this.notify();
                 }
@@ -801,4 +1588,22 @@ public class ModClusterService implements ModClusterServiceMBean, ContainerEvent
             }
         }
     }
+
+    private static class SnapshotProxyConfiguration implements ProxyConfiguration {
+        private final InetSocketAddress address;
+
+        SnapshotProxyConfiguration(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            return this.address;
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            return null;
+        }
+    }
 }
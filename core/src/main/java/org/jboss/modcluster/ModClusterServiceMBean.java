@@ -109,6 +109,12 @@ public interface ModClusterServiceMBean {
      */
     void refresh();
 
+    /**
+     * Applies changes to the node and balancer configuration without reconnecting. Sends a CONFIG request for each engine,
+     * skipping those proxies that already acknowledged the same parameters, and keeps existing context registrations.
+     */
+    void reconfigure();
+
     /**
      * Disable all webapps for all engines.
      *
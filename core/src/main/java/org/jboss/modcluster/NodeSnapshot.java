@@ -0,0 +1,154 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Last known state of a node, saved on shutdown so that it can re-join the cluster quickly on the next startup: the
+ * proxies it was talking to, with the time each was last reachable, and the jvmRoute of each of its engines. Stored as a
+ * small properties file.
+ */
+final class NodeSnapshot {
+    private static final String PROXY_PREFIX = "proxy.";
+    private static final String REACHABLE_SUFFIX = ".reachable";
+    private static final String JVM_ROUTE_PREFIX = "jvmRoute.";
+
+    private final Map<InetSocketAddress, Long> proxies;
+    private final Map<String, String> jvmRoutes;
+
+    NodeSnapshot(Map<InetSocketAddress, Long> proxies, Map<String, String> jvmRoutes) {
+        this.proxies = Collections.unmodifiableMap(new LinkedHashMap<InetSocketAddress, Long>(proxies));
+        this.jvmRoutes = Collections.unmodifiableMap(new LinkedHashMap<String, String>(jvmRoutes));
+    }
+
+    /**
+     * Returns the addresses on which the known proxies listen for MCMP requests, with the time in ms since the epoch at
+     * which each was last reachable, or 0 if unknown.
+     */
+    Map<InetSocketAddress, Long> getProxies() {
+        return this.proxies;
+    }
+
+    /**
+     * Returns the jvmRoute of each engine, by engine name.
+     */
+    Map<String, String> getJvmRoutes() {
+        return this.jvmRoutes;
+    }
+
+    /**
+     * Reads the snapshot saved in the specified file.
+     *
+     * @return the snapshot, or null if the file does not exist
+     */
+    static NodeSnapshot read(File file) throws IOException {
+        Properties properties = new Properties();
+
+        try (InputStream input = new FileInputStream(file)) {
+            properties.load(input);
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+
+        Map<InetSocketAddress, Long> proxies = new LinkedHashMap<InetSocketAddress, Long>();
+        Map<String, String> jvmRoutes = new LinkedHashMap<String, String>();
+
+        for (String name : properties.stringPropertyNames()) {
+            String value = properties.getProperty(name);
+
+            if (name.startsWith(PROXY_PREFIX)) {
+                if (name.endsWith(REACHABLE_SUFFIX))
+                    continue;
+
+                String reachable = properties.getProperty(name + REACHABLE_SUFFIX);
+                try {
+                    proxies.put(Utils.parseSocketAddress(value, ModClusterService.DEFAULT_PORT),
+                            (reachable != null) ? Long.valueOf(reachable) : Long.valueOf(0));
+                } catch (NumberFormatException e) {
+                    throw new IOException(e);
+                }
+            } else if (name.startsWith(JVM_ROUTE_PREFIX)) {
+                jvmRoutes.put(name.substring(JVM_ROUTE_PREFIX.length()), value);
+            }
+        }
+
+        return new NodeSnapshot(proxies, jvmRoutes);
+    }
+
+    /**
+     * Saves this snapshot in the specified file, replacing it atomically where the file system allows, so that a crash
+     * while saving does not leave a truncated snapshot behind.
+     */
+    void write(File file) throws IOException {
+        Properties properties = new Properties();
+
+        int index = 0;
+        for (Map.Entry<InetSocketAddress, Long> entry : this.proxies.entrySet()) {
+            String name = PROXY_PREFIX + index++;
+            properties.setProperty(name, format(entry.getKey()));
+            properties.setProperty(name + REACHABLE_SUFFIX, entry.getValue().toString());
+        }
+        for (Map.Entry<String, String> entry : this.jvmRoutes.entrySet()) {
+            properties.setProperty(JVM_ROUTE_PREFIX + entry.getKey(), entry.getValue());
+        }
+
+        File directory = file.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(file.getName(), ".tmp", directory);
+
+        try {
+            try (OutputStream output = new FileOutputStream(temp)) {
+                properties.store(output, "mod_cluster node snapshot");
+            }
+
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    private static String format(InetSocketAddress address) {
+        InetAddress inetAddress = address.getAddress();
+        String host = (inetAddress != null) ? inetAddress.getHostAddress() : address.getHostString();
+        // Utils.parseSocketAddress(...) expects ipv6 addresses in brackets
+        return ((host.indexOf(':') >= 0) ? "[" + host + "]" : host) + ":" + address.getPort();
+    }
+}
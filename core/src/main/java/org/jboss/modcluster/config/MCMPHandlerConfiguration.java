@@ -29,6 +29,7 @@ import java.util.concurrent.TimeUnit;
 
 import javax.net.SocketFactory;
 
+import org.jboss.modcluster.load.WarmUpCurve;
 import org.jboss.modcluster.mcmp.MCMPHandler;
 
 /**
@@ -112,6 +113,124 @@ public interface MCMPHandlerConfiguration {
      */
     TimeUnit getStopContextTimeoutUnit();
 
+    /**
+     * Returns the number of {@link #getLoadTaperTimeUnit()} over which the load factor reported by a stopping node is
+     * gradually lowered before its contexts are disabled. A value of 0 disables tapering.
+     *
+     * @return taper time, or 0 if disabled
+     */
+    long getLoadTaperTime();
+
+    /**
+     * Returns the unit of time to which {@link #getLoadTaperTime()} pertains.
+     *
+     * @return a unit of time
+     */
+    TimeUnit getLoadTaperTimeUnit();
+
+    /**
+     * Returns the number of {@link #getWarmUpTimeUnit()} over which the load factor reported by a freshly started node, or
+     * by a node on which a context was just started, is capped. A value of 0 disables time-based warm-up.
+     *
+     * @return warm-up time, or 0 if disabled
+     */
+    long getWarmUpTime();
+
+    /**
+     * Returns the unit of time to which {@link #getWarmUpTime()} pertains.
+     *
+     * @return a unit of time
+     */
+    TimeUnit getWarmUpTimeUnit();
+
+    /**
+     * Returns the number of requests a freshly started node serves before its load factor is no longer capped. A value of
+     * 0 disables request-based warm-up.
+     *
+     * @return warm-up request count, or 0 if disabled
+     */
+    long getWarmUpRequests();
+
+    /**
+     * Returns the shape of the ramp along which the load factor is capped during warm-up.
+     *
+     * @return a warm-up curve
+     */
+    WarmUpCurve getWarmUpCurve();
+
+    /**
+     * Indicates whether, on server start, the contexts of an engine should be registered with its CONFIG request and
+     * enabled by a single ENABLE-APP * request, instead of one ENABLE-APP request per context.
+     *
+     * @return true, if contexts should be registered in bulk, false otherwise
+     */
+    boolean isBulkContextRegistration();
+
+    /**
+     * Returns the address on which to expose an HTTP endpoint for draining this node, e.g. prior to its termination by an
+     * orchestrator.
+     *
+     * @return a socket address, or null if the endpoint is disabled
+     */
+    InetSocketAddress getDrainEndpointAddress();
+
+    /**
+     * Returns the path of the file in which the known proxies and the jvmRoute of each engine are saved on shutdown, and
+     * from which they are restored on the next startup, so that the node re-joins the cluster without waiting for
+     * advertisements or for the first periodic status.
+     *
+     * @return a file path, or null if no snapshot is kept
+     */
+    String getSnapshotFile();
+
+    /**
+     * Returns the load balance factor at or below which the node is considered saturated. Under sustained saturation,
+     * contexts are disabled one at a time, so that the remaining contexts stay responsive.
+     *
+     * @return a load balance factor, or 0 if contexts are never disabled due to load
+     */
+    int getLoadSheddingThreshold();
+
+    /**
+     * Returns the load balance factor at or above which the node is considered recovered from saturation, and contexts
+     * disabled due to load are enabled again, one at a time. Should be greater than the
+     * {@link #getLoadSheddingThreshold() load shedding threshold}.
+     *
+     * @return a load balance factor
+     */
+    int getLoadSheddingRecoveryThreshold();
+
+    /**
+     * Returns the contexts, per host, that may be disabled when the node is saturated. If empty, any context may be
+     * disabled, starting with the one processing the most requests.
+     *
+     * @return a map of context paths per host name, where a null host name applies to every host
+     */
+    Map<String, Set<String>> getSheddableContextsPerHost();
+
+    /**
+     * Returns the change, in load balance factor units, of the busy connector threads of an engine since its last STATUS
+     * request, from which a STATUS request is sent right away rather than on the next periodic status.
+     *
+     * @return a load balance factor delta, or 0 if STATUS requests are only sent periodically
+     */
+    int getStatusPushDelta();
+
+    /**
+     * Returns the interval in milliseconds at which the busy connector threads are sampled, if STATUS requests are pushed.
+     *
+     * @return a number of milliseconds
+     */
+    long getStatusPushSampleInterval();
+
+    /**
+     * Returns the minimum time in milliseconds between two STATUS requests of an engine, below which no STATUS request is
+     * pushed, so that a fluctuating load does not cause a flood of requests.
+     *
+     * @return a number of milliseconds
+     */
+    long getStatusPushMinInterval();
+
     /**
      * Factory for generating jvm route
      */
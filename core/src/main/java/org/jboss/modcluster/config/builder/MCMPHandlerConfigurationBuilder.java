@@ -22,6 +22,7 @@
 
 package org.jboss.modcluster.config.builder;
 
+import java.net.InetSocketAddress;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
@@ -38,6 +39,7 @@ import org.jboss.modcluster.config.impl.MCMPHandlerConfigurationImpl;
 import org.jboss.modcluster.config.impl.SessionDrainingStrategyEnum;
 import org.jboss.modcluster.config.impl.SystemPropertyJvmRouteFactory;
 import org.jboss.modcluster.config.impl.UUIDJvmRouteFactory;
+import org.jboss.modcluster.load.WarmUpCurve;
 
 /**
  * Builder for MCMP (Mod-Cluster Management Protocol) handler configuration.
@@ -56,6 +58,21 @@ public class MCMPHandlerConfigurationBuilder extends AbstractConfigurationBuilde
     private boolean autoEnableContexts = true;
     private long stopContextTimeout = 10;
     private TimeUnit stopContextTimeoutUnit = TimeUnit.SECONDS;
+    private long loadTaperTime = 0;
+    private TimeUnit loadTaperTimeUnit = TimeUnit.SECONDS;
+    private long warmUpTime = 0;
+    private TimeUnit warmUpTimeUnit = TimeUnit.SECONDS;
+    private long warmUpRequests = 0;
+    private WarmUpCurve warmUpCurve = WarmUpCurve.LINEAR;
+    private boolean bulkContextRegistration = false;
+    private InetSocketAddress drainEndpointAddress;
+    private String snapshotFile;
+    private int loadSheddingThreshold = 0;
+    private int loadSheddingRecoveryThreshold = 50;
+    private Map<String, Set<String>> sheddableContextsPerHost = Collections.emptyMap();
+    private int statusPushDelta = 0;
+    private long statusPushSampleInterval = 100;
+    private long statusPushMinInterval = 1000;
     private JvmRouteFactory jvmRouteFactory = new SystemPropertyJvmRouteFactory(new UUIDJvmRouteFactory());
     private SessionDrainingStrategy sessionDrainingStrategy = SessionDrainingStrategyEnum.DEFAULT;
 
@@ -135,6 +152,133 @@ public class MCMPHandlerConfigurationBuilder extends AbstractConfigurationBuilde
         return this;
     }
 
+    /**
+     * Sets the number of {@link #setLoadTaperTimeUnit(TimeUnit)} over which to gradually lower the reported load factor
+     * before disabling a stopping node. Set to 0 to disable tapering.
+     */
+    public MCMPHandlerConfigurationBuilder setLoadTaperTime(long loadTaperTime) {
+        this.loadTaperTime = loadTaperTime;
+        return this;
+    }
+
+    /**
+     * Sets the unit of time to which {@link #setLoadTaperTime(long)} pertains.
+     */
+    public MCMPHandlerConfigurationBuilder setLoadTaperTimeUnit(TimeUnit loadTaperTimeUnit) {
+        this.loadTaperTimeUnit = loadTaperTimeUnit;
+        return this;
+    }
+
+    /**
+     * Sets the number of {@link #setWarmUpTimeUnit(TimeUnit)} over which to cap the load factor of a freshly started node.
+     * Set to 0 to disable time-based warm-up.
+     */
+    public MCMPHandlerConfigurationBuilder setWarmUpTime(long warmUpTime) {
+        this.warmUpTime = warmUpTime;
+        return this;
+    }
+
+    /**
+     * Sets the unit of time to which {@link #setWarmUpTime(long)} pertains.
+     */
+    public MCMPHandlerConfigurationBuilder setWarmUpTimeUnit(TimeUnit warmUpTimeUnit) {
+        this.warmUpTimeUnit = warmUpTimeUnit;
+        return this;
+    }
+
+    /**
+     * Sets the number of requests to serve before the load factor of a freshly started node is no longer capped. Set to 0
+     * to disable request-based warm-up.
+     */
+    public MCMPHandlerConfigurationBuilder setWarmUpRequests(long warmUpRequests) {
+        this.warmUpRequests = warmUpRequests;
+        return this;
+    }
+
+    /**
+     * Sets the shape of the ramp along which the load factor is capped during warm-up.
+     */
+    public MCMPHandlerConfigurationBuilder setWarmUpCurve(WarmUpCurve warmUpCurve) {
+        this.warmUpCurve = warmUpCurve;
+        return this;
+    }
+
+    /**
+     * Sets whether contexts are registered with the CONFIG request and enabled by a single ENABLE-APP * request on server
+     * start.
+     */
+    public MCMPHandlerConfigurationBuilder setBulkContextRegistration(boolean bulkContextRegistration) {
+        this.bulkContextRegistration = bulkContextRegistration;
+        return this;
+    }
+
+    /**
+     * Sets the address on which to expose the HTTP endpoint for draining this node. Not exposed by default.
+     */
+    public MCMPHandlerConfigurationBuilder setDrainEndpointAddress(InetSocketAddress drainEndpointAddress) {
+        this.drainEndpointAddress = drainEndpointAddress;
+        return this;
+    }
+
+    /**
+     * Sets the path of the file in which the known proxies and jvmRoutes are saved on shutdown and restored on startup.
+     * Not saved by default.
+     */
+    public MCMPHandlerConfigurationBuilder setSnapshotFile(String snapshotFile) {
+        this.snapshotFile = snapshotFile;
+        return this;
+    }
+
+    /**
+     * Sets the load balance factor at or below which contexts are disabled under sustained saturation. Disabled by
+     * default.
+     */
+    public MCMPHandlerConfigurationBuilder setLoadSheddingThreshold(int loadSheddingThreshold) {
+        this.loadSheddingThreshold = loadSheddingThreshold;
+        return this;
+    }
+
+    /**
+     * Sets the load balance factor at or above which contexts disabled due to load are enabled again.
+     */
+    public MCMPHandlerConfigurationBuilder setLoadSheddingRecoveryThreshold(int loadSheddingRecoveryThreshold) {
+        this.loadSheddingRecoveryThreshold = loadSheddingRecoveryThreshold;
+        return this;
+    }
+
+    /**
+     * Sets a map of contexts per host that may be disabled when the node is saturated.
+     */
+    public MCMPHandlerConfigurationBuilder setSheddableContextsPerHost(Map<String, Set<String>> sheddableContextsPerHost) {
+        this.sheddableContextsPerHost = sheddableContextsPerHost;
+        return this;
+    }
+
+    /**
+     * Sets the change in busy connector threads, in load balance factor units, from which a STATUS request is sent right
+     * away. STATUS requests are only sent periodically by default.
+     */
+    public MCMPHandlerConfigurationBuilder setStatusPushDelta(int statusPushDelta) {
+        this.statusPushDelta = statusPushDelta;
+        return this;
+    }
+
+    /**
+     * Sets the interval in milliseconds at which busy connector threads are sampled for pushing STATUS requests.
+     */
+    public MCMPHandlerConfigurationBuilder setStatusPushSampleInterval(long statusPushSampleInterval) {
+        this.statusPushSampleInterval = statusPushSampleInterval;
+        return this;
+    }
+
+    /**
+     * Sets the minimum time in milliseconds between two STATUS requests of an engine for a STATUS request to be pushed.
+     */
+    public MCMPHandlerConfigurationBuilder setStatusPushMinInterval(long statusPushMinInterval) {
+        this.statusPushMinInterval = statusPushMinInterval;
+        return this;
+    }
+
     /**
      * Sets a factory for generating a JVM route.
      */
@@ -153,6 +297,6 @@ public class MCMPHandlerConfigurationBuilder extends AbstractConfigurationBuilde
 
     @Override
     public MCMPHandlerConfiguration create() {
-        return new MCMPHandlerConfigurationImpl(proxyConfigurations, proxyURL, socketTimeout, socketFactory, excludedContextsPerHost, advertise, autoEnableContexts, stopContextTimeout, stopContextTimeoutUnit, jvmRouteFactory, sessionDrainingStrategy);
+        return new MCMPHandlerConfigurationImpl(proxyConfigurations, proxyURL, socketTimeout, socketFactory, excludedContextsPerHost, advertise, autoEnableContexts, stopContextTimeout, stopContextTimeoutUnit, loadTaperTime, loadTaperTimeUnit, warmUpTime, warmUpTimeUnit, warmUpRequests, warmUpCurve, bulkContextRegistration, drainEndpointAddress, snapshotFile, loadSheddingThreshold, loadSheddingRecoveryThreshold, sheddableContextsPerHost, statusPushDelta, statusPushSampleInterval, statusPushMinInterval, jvmRouteFactory, sessionDrainingStrategy);
     }
 }
\ No newline at end of file
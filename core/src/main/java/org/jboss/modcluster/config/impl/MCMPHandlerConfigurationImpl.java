@@ -24,6 +24,7 @@ package org.jboss.modcluster.config.impl;
 
 import java.net.InetSocketAddress;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -37,6 +38,7 @@ import org.jboss.modcluster.config.JvmRouteFactory;
 import org.jboss.modcluster.config.MCMPHandlerConfiguration;
 import org.jboss.modcluster.config.ProxyConfiguration;
 import org.jboss.modcluster.config.SessionDrainingStrategy;
+import org.jboss.modcluster.load.WarmUpCurve;
 
 /**
  * @author Radoslav Husar
@@ -53,10 +55,29 @@ public class MCMPHandlerConfigurationImpl implements MCMPHandlerConfiguration {
     private final boolean autoEnableContexts;
     private final long stopContextTimeout;
     private final TimeUnit stopContextTimeoutUnit;
+    private final long loadTaperTime;
+    private final TimeUnit loadTaperTimeUnit;
+    private final long warmUpTime;
+    private final TimeUnit warmUpTimeUnit;
+    private final long warmUpRequests;
+    private final WarmUpCurve warmUpCurve;
+    private final boolean bulkContextRegistration;
+    private final InetSocketAddress drainEndpointAddress;
+    private final String snapshotFile;
+    private final int loadSheddingThreshold;
+    private final int loadSheddingRecoveryThreshold;
+    private final Map<String, Set<String>> sheddableContextsPerHost;
+    private final int statusPushDelta;
+    private final long statusPushSampleInterval;
+    private final long statusPushMinInterval;
     private final JvmRouteFactory jvmRouteFactory;
     private final SessionDrainingStrategy sessionDrainingStrategy;
 
     public MCMPHandlerConfigurationImpl(Collection<ProxyConfiguration> proxyConfigurations, String proxyURL, int socketTimeout, SocketFactory socketFactory, Map<String, Set<String>> excludedContextsPerHost, Boolean advertise, boolean autoEnableContexts, long stopContextTimeout, TimeUnit stopContextTimeoutUnit, JvmRouteFactory jvmRouteFactory, SessionDrainingStrategy sessionDrainingStrategy) {
+        this(proxyConfigurations, proxyURL, socketTimeout, socketFactory, excludedContextsPerHost, advertise, autoEnableContexts, stopContextTimeout, stopContextTimeoutUnit, 0, TimeUnit.SECONDS, 0, TimeUnit.SECONDS, 0, WarmUpCurve.LINEAR, false, null, null, 0, 50, Collections.<String, Set<String>>emptyMap(), 0, 100, 1000, jvmRouteFactory, sessionDrainingStrategy);
+    }
+
+    public MCMPHandlerConfigurationImpl(Collection<ProxyConfiguration> proxyConfigurations, String proxyURL, int socketTimeout, SocketFactory socketFactory, Map<String, Set<String>> excludedContextsPerHost, Boolean advertise, boolean autoEnableContexts, long stopContextTimeout, TimeUnit stopContextTimeoutUnit, long loadTaperTime, TimeUnit loadTaperTimeUnit, long warmUpTime, TimeUnit warmUpTimeUnit, long warmUpRequests, WarmUpCurve warmUpCurve, boolean bulkContextRegistration, InetSocketAddress drainEndpointAddress, String snapshotFile, int loadSheddingThreshold, int loadSheddingRecoveryThreshold, Map<String, Set<String>> sheddableContextsPerHost, int statusPushDelta, long statusPushSampleInterval, long statusPushMinInterval, JvmRouteFactory jvmRouteFactory, SessionDrainingStrategy sessionDrainingStrategy) {
         this.proxyConfigurations = proxyConfigurations;
         this.proxyURL = proxyURL;
         this.socketTimeout = socketTimeout;
@@ -66,6 +87,21 @@ public class MCMPHandlerConfigurationImpl implements MCMPHandlerConfiguration {
         this.autoEnableContexts = autoEnableContexts;
         this.stopContextTimeout = stopContextTimeout;
         this.stopContextTimeoutUnit = stopContextTimeoutUnit;
+        this.loadTaperTime = loadTaperTime;
+        this.loadTaperTimeUnit = loadTaperTimeUnit;
+        this.warmUpTime = warmUpTime;
+        this.warmUpTimeUnit = warmUpTimeUnit;
+        this.warmUpRequests = warmUpRequests;
+        this.warmUpCurve = warmUpCurve;
+        this.bulkContextRegistration = bulkContextRegistration;
+        this.drainEndpointAddress = drainEndpointAddress;
+        this.snapshotFile = snapshotFile;
+        this.loadSheddingThreshold = loadSheddingThreshold;
+        this.loadSheddingRecoveryThreshold = loadSheddingRecoveryThreshold;
+        this.sheddableContextsPerHost = sheddableContextsPerHost;
+        this.statusPushDelta = statusPushDelta;
+        this.statusPushSampleInterval = statusPushSampleInterval;
+        this.statusPushMinInterval = statusPushMinInterval;
         this.jvmRouteFactory = jvmRouteFactory;
         this.sessionDrainingStrategy = sessionDrainingStrategy;
     }
@@ -131,6 +167,81 @@ public class MCMPHandlerConfigurationImpl implements MCMPHandlerConfiguration {
         return stopContextTimeoutUnit;
     }
 
+    @Override
+    public long getLoadTaperTime() {
+        return loadTaperTime;
+    }
+
+    @Override
+    public TimeUnit getLoadTaperTimeUnit() {
+        return loadTaperTimeUnit;
+    }
+
+    @Override
+    public long getWarmUpTime() {
+        return warmUpTime;
+    }
+
+    @Override
+    public TimeUnit getWarmUpTimeUnit() {
+        return warmUpTimeUnit;
+    }
+
+    @Override
+    public long getWarmUpRequests() {
+        return warmUpRequests;
+    }
+
+    @Override
+    public WarmUpCurve getWarmUpCurve() {
+        return warmUpCurve;
+    }
+
+    @Override
+    public boolean isBulkContextRegistration() {
+        return bulkContextRegistration;
+    }
+
+    @Override
+    public InetSocketAddress getDrainEndpointAddress() {
+        return drainEndpointAddress;
+    }
+
+    @Override
+    public String getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    @Override
+    public int getLoadSheddingThreshold() {
+        return loadSheddingThreshold;
+    }
+
+    @Override
+    public int getLoadSheddingRecoveryThreshold() {
+        return loadSheddingRecoveryThreshold;
+    }
+
+    @Override
+    public Map<String, Set<String>> getSheddableContextsPerHost() {
+        return sheddableContextsPerHost;
+    }
+
+    @Override
+    public int getStatusPushDelta() {
+        return statusPushDelta;
+    }
+
+    @Override
+    public long getStatusPushSampleInterval() {
+        return statusPushSampleInterval;
+    }
+
+    @Override
+    public long getStatusPushMinInterval() {
+        return statusPushMinInterval;
+    }
+
     @Override
     public JvmRouteFactory getJvmRouteFactory() {
         return jvmRouteFactory;
@@ -47,6 +47,7 @@ import org.jboss.modcluster.config.NodeConfiguration;
 import org.jboss.modcluster.config.ProxyConfiguration;
 import org.jboss.modcluster.config.SSLConfiguration;
 import org.jboss.modcluster.config.SessionDrainingStrategy;
+import org.jboss.modcluster.load.WarmUpCurve;
 import org.jboss.modcluster.mcmp.impl.JSSESocketFactory;
 
 /**
@@ -243,6 +244,171 @@ public class ModClusterConfig implements BalancerConfiguration, MCMPHandlerConfi
         this.stopContextTimeoutUnit = stopContextTimeoutUnit;
     }
 
+    private long loadTaperTime = 0;
+
+    @Override
+    public long getLoadTaperTime() {
+        return this.loadTaperTime;
+    }
+
+    public void setLoadTaperTime(long loadTaperTime) {
+        this.loadTaperTime = loadTaperTime;
+    }
+
+    private TimeUnit loadTaperTimeUnit = TimeUnit.SECONDS;
+
+    @Override
+    public TimeUnit getLoadTaperTimeUnit() {
+        return this.loadTaperTimeUnit;
+    }
+
+    public void setLoadTaperTimeUnit(TimeUnit loadTaperTimeUnit) {
+        this.loadTaperTimeUnit = loadTaperTimeUnit;
+    }
+
+    private long warmUpTime = 0;
+
+    @Override
+    public long getWarmUpTime() {
+        return this.warmUpTime;
+    }
+
+    public void setWarmUpTime(long warmUpTime) {
+        this.warmUpTime = warmUpTime;
+    }
+
+    private TimeUnit warmUpTimeUnit = TimeUnit.SECONDS;
+
+    @Override
+    public TimeUnit getWarmUpTimeUnit() {
+        return this.warmUpTimeUnit;
+    }
+
+    public void setWarmUpTimeUnit(TimeUnit warmUpTimeUnit) {
+        this.warmUpTimeUnit = warmUpTimeUnit;
+    }
+
+    private long warmUpRequests = 0;
+
+    @Override
+    public long getWarmUpRequests() {
+        return this.warmUpRequests;
+    }
+
+    public void setWarmUpRequests(long warmUpRequests) {
+        this.warmUpRequests = warmUpRequests;
+    }
+
+    private WarmUpCurve warmUpCurve = WarmUpCurve.LINEAR;
+
+    @Override
+    public WarmUpCurve getWarmUpCurve() {
+        return this.warmUpCurve;
+    }
+
+    public void setWarmUpCurve(WarmUpCurve warmUpCurve) {
+        this.warmUpCurve = warmUpCurve;
+    }
+
+    private boolean bulkContextRegistration = false;
+
+    @Override
+    public boolean isBulkContextRegistration() {
+        return this.bulkContextRegistration;
+    }
+
+    public void setBulkContextRegistration(boolean bulkContextRegistration) {
+        this.bulkContextRegistration = bulkContextRegistration;
+    }
+
+    private InetSocketAddress drainEndpointAddress = null;
+
+    @Override
+    public InetSocketAddress getDrainEndpointAddress() {
+        return this.drainEndpointAddress;
+    }
+
+    public void setDrainEndpointAddress(InetSocketAddress drainEndpointAddress) {
+        this.drainEndpointAddress = drainEndpointAddress;
+    }
+
+    private String snapshotFile = null;
+
+    @Override
+    public String getSnapshotFile() {
+        return this.snapshotFile;
+    }
+
+    public void setSnapshotFile(String snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    private int loadSheddingThreshold = 0;
+
+    @Override
+    public int getLoadSheddingThreshold() {
+        return this.loadSheddingThreshold;
+    }
+
+    public void setLoadSheddingThreshold(int loadSheddingThreshold) {
+        this.loadSheddingThreshold = loadSheddingThreshold;
+    }
+
+    private int loadSheddingRecoveryThreshold = 50;
+
+    @Override
+    public int getLoadSheddingRecoveryThreshold() {
+        return this.loadSheddingRecoveryThreshold;
+    }
+
+    public void setLoadSheddingRecoveryThreshold(int loadSheddingRecoveryThreshold) {
+        this.loadSheddingRecoveryThreshold = loadSheddingRecoveryThreshold;
+    }
+
+    private Map<String, Set<String>> sheddableContextsPerHost = Collections.emptyMap();
+
+    @Override
+    public Map<String, Set<String>> getSheddableContextsPerHost() {
+        return this.sheddableContextsPerHost;
+    }
+
+    public void setSheddableContextsPerHost(Map<String, Set<String>> sheddableContexts) {
+        this.sheddableContextsPerHost = sheddableContexts;
+    }
+
+    private int statusPushDelta = 0;
+
+    @Override
+    public int getStatusPushDelta() {
+        return this.statusPushDelta;
+    }
+
+    public void setStatusPushDelta(int statusPushDelta) {
+        this.statusPushDelta = statusPushDelta;
+    }
+
+    private long statusPushSampleInterval = 100;
+
+    @Override
+    public long getStatusPushSampleInterval() {
+        return this.statusPushSampleInterval;
+    }
+
+    public void setStatusPushSampleInterval(long statusPushSampleInterval) {
+        this.statusPushSampleInterval = statusPushSampleInterval;
+    }
+
+    private long statusPushMinInterval = 1000;
+
+    @Override
+    public long getStatusPushMinInterval() {
+        return this.statusPushMinInterval;
+    }
+
+    public void setStatusPushMinInterval(long statusPushMinInterval) {
+        this.statusPushMinInterval = statusPushMinInterval;
+    }
+
     private JvmRouteFactory jvmRouteFactory = new SystemPropertyJvmRouteFactory(new UUIDJvmRouteFactory());
 
     @Override
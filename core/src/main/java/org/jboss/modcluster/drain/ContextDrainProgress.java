@@ -0,0 +1,76 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.drain;
+
+/**
+ * Drain progress of a single context.
+ */
+public class ContextDrainProgress {
+    private final String host;
+    private final String path;
+    private final int activeSessions;
+    private final int activeRequests;
+    private final boolean stopAcknowledged;
+
+    public ContextDrainProgress(String host, String path, int activeSessions, int activeRequests, boolean stopAcknowledged) {
+        this.host = host;
+        this.path = path;
+        this.activeSessions = activeSessions;
+        this.activeRequests = activeRequests;
+        this.stopAcknowledged = stopAcknowledged;
+    }
+
+    /**
+     * Returns the name of the host of this context.
+     */
+    public String getHost() {
+        return this.host;
+    }
+
+    /**
+     * Returns the path of this context.
+     */
+    public String getPath() {
+        return this.path;
+    }
+
+    /**
+     * Returns the number of sessions of this context that remain active.
+     */
+    public int getActiveSessions() {
+        return this.activeSessions;
+    }
+
+    /**
+     * Returns the number of requests currently being processed by this context.
+     */
+    public int getActiveRequests() {
+        return this.activeRequests;
+    }
+
+    /**
+     * Indicates whether a STOP-APP request for this context was acknowledged by every proxy.
+     */
+    public boolean isStopAcknowledged() {
+        return this.stopAcknowledged;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.drain;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Lightweight HTTP endpoint through which an orchestrator can drain a node before terminating it.
+ * <ul>
+ * <li><code>POST /drain?timeout=<i>seconds</i></code> starts draining the node in the background, if not already
+ * draining, and returns its progress. A timeout of 0, the default, waits indefinitely.</li>
+ * <li><code>GET /drain?wait=<i>seconds</i></code> returns the progress of the current or most recent drain, after
+ * waiting up to the specified time for it to complete.</li>
+ * </ul>
+ * Progress is reported as a JSON object with the drain state, the elapsed time in milliseconds, whether STOP-APP was
+ * acknowledged by every proxy for every context, and the remaining sessions and requests per context.
+ */
+public class DrainEndpoint {
+    public static final String PATH = "/drain";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Drainer drainer;
+    private final InetSocketAddress address;
+
+    private volatile HttpServer server;
+    private volatile ExecutorService executor;
+
+    public DrainEndpoint(Drainer drainer, InetSocketAddress address) {
+        this.drainer = drainer;
+        this.address = address;
+    }
+
+    public synchronized void start() throws IOException {
+        if (this.server != null) return;
+
+        HttpServer server = HttpServer.create(this.address, 0);
+        // Waiting requests must not block the others
+        ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "mod_cluster drain endpoint");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        server.setExecutor(executor);
+        server.createContext(PATH, new DrainHandler());
+        server.start();
+
+        this.server = server;
+        this.executor = executor;
+    }
+
+    public synchronized void stop() {
+        if (this.server == null) return;
+
+        this.server.stop(0);
+        this.executor.shutdownNow();
+
+        this.server = null;
+        this.executor = null;
+    }
+
+    /**
+     * Returns the address on which this endpoint listens, which reflects the actual port if started on an ephemeral port.
+     */
+    public InetSocketAddress getAddress() {
+        HttpServer server = this.server;
+        return (server != null) ? server.getAddress() : this.address;
+    }
+
+    private class DrainHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                String method = exchange.getRequestMethod();
+                Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+
+                if ("POST".equals(method)) {
+                    DrainProgress progress = DrainEndpoint.this.drainer.drain(parseSeconds(parameters, "timeout"), TimeUnit.SECONDS);
+                    if (progress == null) {
+                        respond(exchange, 503, "{\"error\":\"Node is not connected to any proxy\"}");
+                    } else {
+                        respond(exchange, 202, toJson(progress));
+                    }
+                } else if ("GET".equals(method)) {
+                    long wait = parseSeconds(parameters, "wait");
+                    if (wait > 0) {
+                        DrainEndpoint.this.drainer.awaitDrain(wait, TimeUnit.SECONDS);
+                    }
+                    DrainProgress progress = DrainEndpoint.this.drainer.getDrainProgress();
+                    if (progress == null) {
+                        respond(exchange, 404, "{\"error\":\"Node is not draining\"}");
+                    } else {
+                        respond(exchange, 200, toJson(progress));
+                    }
+                } else {
+                    exchange.getResponseHeaders().set("Allow", "GET, POST");
+                    respond(exchange, 405, "{\"error\":\"Method not allowed\"}");
+                }
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, "{\"error\":\"" + escape(e.getMessage()) + "\"}");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                respond(exchange, 503, "{\"error\":\"Interrupted\"}");
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        OutputStream output = exchange.getResponseBody();
+        output.write(bytes);
+        output.flush();
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<String, String>();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                int index = parameter.indexOf('=');
+                if (index > 0) {
+                    parameters.put(parameter.substring(0, index), parameter.substring(index + 1));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    private static long parseSeconds(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null) return 0;
+        try {
+            long seconds = Long.parseLong(value);
+            if (seconds >= 0) return seconds;
+        } catch (NumberFormatException e) {
+            // Fall through
+        }
+        throw new IllegalArgumentException(name + " must be a non-negative number of seconds");
+    }
+
+    static String toJson(DrainProgress progress) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("{\"state\":\"").append(progress.getState()).append('"');
+        builder.append(",\"elapsed\":").append(progress.getElapsed());
+        builder.append(",\"stopAcknowledged\":").append(progress.isStopAcknowledged());
+        builder.append(",\"contexts\":[");
+        boolean first = true;
+        for (ContextDrainProgress context : progress.getContexts()) {
+            if (!first) {
+                builder.append(',');
+            }
+            first = false;
+            builder.append("{\"host\":\"").append(escape(context.getHost())).append('"');
+            builder.append(",\"context\":\"").append(escape(context.getPath())).append('"');
+            builder.append(",\"sessions\":").append(context.getActiveSessions());
+            builder.append(",\"requests\":").append(context.getActiveRequests());
+            builder.append(",\"stopAcknowledged\":").append(context.isStopAcknowledged());
+            builder.append('}');
+        }
+        return builder.append("]}").toString();
+    }
+
+    private static String escape(String value) {
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            if ((c == '"') || (c == '\\')) {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.drain;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Snapshot of the progress of an asynchronous drain of a node.
+ */
+public class DrainProgress {
+    private final DrainState state;
+    private final long elapsed;
+    private final List<ContextDrainProgress> contexts;
+
+    public DrainProgress(DrainState state, long elapsed, List<ContextDrainProgress> contexts) {
+        this.state = state;
+        this.elapsed = elapsed;
+        this.contexts = Collections.unmodifiableList(contexts);
+    }
+
+    /**
+     * Returns the state of the drain.
+     */
+    public DrainState getState() {
+        return this.state;
+    }
+
+    /**
+     * Returns the time in milliseconds since the drain started.
+     */
+    public long getElapsed() {
+        return this.elapsed;
+    }
+
+    /**
+     * Returns the progress of each context being drained.
+     */
+    public List<ContextDrainProgress> getContexts() {
+        return this.contexts;
+    }
+
+    /**
+     * Indicates whether the node is drained, and a STOP-APP request for each of its contexts was acknowledged by every
+     * proxy.
+     */
+    public boolean isStopAcknowledged() {
+        if (this.state != DrainState.DRAINED)
+            return false;
+
+        for (ContextDrainProgress context : this.contexts) {
+            if (!context.isStopAcknowledged())
+                return false;
+        }
+
+        return true;
+    }
+}
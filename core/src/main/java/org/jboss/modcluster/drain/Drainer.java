@@ -0,0 +1,56 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.drain;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains a node asynchronously, i.e. disables its contexts, waits for their active sessions and requests to complete, and
+ * stops them.
+ */
+public interface Drainer {
+    /**
+     * Starts draining this node in the background, unless a drain is already in progress.
+     *
+     * @param timeout the maximum time to wait for the node to drain, or 0 to wait indefinitely
+     * @param unit the unit of the timeout
+     * @return the progress of the drain in progress, or null if the node is not connected to any proxy
+     */
+    DrainProgress drain(long timeout, TimeUnit unit);
+
+    /**
+     * Returns the progress of the current or most recent drain.
+     *
+     * @return the drain progress, or null if this node was not drained since it was last enabled
+     */
+    DrainProgress getDrainProgress();
+
+    /**
+     * Waits for the current drain, if any, to complete.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return true, if no drain is in progress anymore, false if the timeout elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean awaitDrain(long timeout, TimeUnit unit) throws InterruptedException;
+}
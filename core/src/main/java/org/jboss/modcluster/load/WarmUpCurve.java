@@ -0,0 +1,56 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.load;
+
+/**
+ * Shape of the ramp along which the load balance factor of a warming up node is capped.
+ */
+public enum WarmUpCurve {
+    /**
+     * Raises the cap in equal increments over the course of the warm-up.
+     */
+    LINEAR {
+        @Override
+        public int getLoadBalanceFactor(double progress) {
+            return 1 + (int) (99 * progress);
+        }
+    },
+    /**
+     * Multiplies the cap by a constant factor per increment of progress, so that a cold node receives very little
+     * traffic at first and most of its share towards the end of the warm-up.
+     */
+    EXPONENTIAL {
+        @Override
+        public int getLoadBalanceFactor(double progress) {
+            return (int) Math.pow(100, progress);
+        }
+    },
+    ;
+
+    /**
+     * Returns the maximum load balance factor for the specified warm-up progress.
+     *
+     * @param progress a value between 0 (just started) and 1 (warmed up)
+     * @return a load balance factor between 1 and 100
+     */
+    public abstract int getLoadBalanceFactor(double progress);
+}
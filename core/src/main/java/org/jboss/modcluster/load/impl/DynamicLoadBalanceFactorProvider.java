@@ -21,12 +21,13 @@
  */
 package org.jboss.modcluster.load.impl;
 
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.List;
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.jboss.logging.Logger;
 import org.jboss.modcluster.container.Engine;
@@ -35,55 +36,74 @@ import org.jboss.modcluster.load.metric.LoadMetric;
 
 /**
  * {@link LoadBalanceFactorProvider} implementation that periodically aggregates load from a set of {@link LoadMetric}s.
- * 
+ * <p>
+ * The recent loads of each metric are kept in an immutable sample, which is replaced atomically on every computation, so
+ * that neither computing the load balance factor nor reading the {@link #getMetrics() metrics} requires locking. By
+ * default, historical loads are averaged with weights that decay exponentially per sample; if a half-life is set, they are
+ * averaged with weights that decay exponentially over time instead, so that the smoothing does not depend on how often the
+ * load balance factor is computed.
+ * </p>
+ *
  * @author Paul Ferraro
  */
-public class DynamicLoadBalanceFactorProvider implements LoadBalanceFactorProvider, DynamicLoadBalanceFactorProviderMBean {
+public class DynamicLoadBalanceFactorProvider implements LoadBalanceFactorProvider, DynamicLoadBalanceFactorProviderMBean, Closeable {
     public static final int DEFAULT_DECAY_FACTOR = 2;
     public static final int DEFAULT_HISTORY = 9;
 
     private final Logger log = Logger.getLogger(this.getClass());
 
-    private final Map<LoadMetric, List<Double>> loadHistory = new LinkedHashMap<LoadMetric, List<Double>>();
+    private final LoadMetric[] metrics;
+    // Most recent sample per metric, in the order of the metrics array
+    private final AtomicReferenceArray<Sample> samples;
 
-    private volatile int decayFactor = 2;
-    private volatile int history = 9;
+    private volatile int decayFactor = DEFAULT_DECAY_FACTOR;
+    private volatile int history = DEFAULT_HISTORY;
+    private volatile int halfLife = 0;
+    private volatile Weights weights = new Weights(DEFAULT_DECAY_FACTOR, DEFAULT_HISTORY);
 
     public DynamicLoadBalanceFactorProvider(Set<LoadMetric> metrics) {
-        for (LoadMetric metric : metrics) {
-            this.loadHistory.put(metric, new ArrayList<Double>(this.history + 1));
-        }
+        this.metrics = metrics.toArray(new LoadMetric[metrics.size()]);
+        this.samples = new AtomicReferenceArray<Sample>(this.metrics.length);
     }
 
     @Override
-    public synchronized Map<String, Double> getMetrics() {
+    public Map<String, Double> getMetrics() {
         Map<String, Double> metrics = new TreeMap<String, Double>();
-        for (Map.Entry<LoadMetric, List<Double>> entry : this.loadHistory.entrySet()) {
-            List<Double> history = entry.getValue();
-            metrics.put(entry.getKey().getClass().getSimpleName(), history.isEmpty() ? 0 : history.get(0));
+        for (int i = 0; i < this.metrics.length; ++i) {
+            Sample sample = this.samples.get(i);
+            metrics.put(this.metrics[i].getClass().getSimpleName(), (sample != null) ? sample.load : 0);
         }
         return metrics;
     }
 
     @Override
-    public synchronized int getLoadBalanceFactor(Engine engine) {
+    public int getLoadBalanceFactor(Engine engine) {
         int totalWeight = 0;
         double totalWeightedLoad = 0;
 
-        for (Map.Entry<LoadMetric, List<Double>> entry : this.loadHistory.entrySet()) {
-            LoadMetric metric = entry.getKey();
+        Weights weights = this.weights;
+        long halfLife = TimeUnit.SECONDS.toNanos(this.halfLife);
+
+        for (int i = 0; i < this.metrics.length; ++i) {
+            LoadMetric metric = this.metrics[i];
 
             int weight = metric.getWeight();
 
             if (weight > 0) {
-                List<Double> metricLoadHistory = entry.getValue();
-
                 try {
                     // Normalize load with respect to capacity
-                    this.recordLoad(metricLoadHistory, metric.getLoad(engine) / metric.getCapacity());
+                    double load = metric.getLoad(engine) / metric.getCapacity();
+                    long time = System.nanoTime();
+
+                    Sample sample;
+                    Sample next;
+                    do {
+                        sample = this.samples.get(i);
+                        next = new Sample(sample, load, time, weights, halfLife);
+                    } while (!this.samples.compareAndSet(i, sample, next));
 
                     totalWeight += weight;
-                    totalWeightedLoad += this.average(metricLoadHistory) * weight;
+                    totalWeightedLoad += next.average * weight;
                 } catch (Exception e) {
                     this.log.error(e.getLocalizedMessage(), e);
                 }
@@ -98,37 +118,20 @@ public class DynamicLoadBalanceFactorProvider implements LoadBalanceFactorProvid
         return 100 - Math.max(0, Math.min(load, 99));
     }
 
-    private void recordLoad(List<Double> queue, double load) {
-        if (!queue.isEmpty()) {
-            // History could have changed, so prune queue accordingly
-            for (int i = (queue.size() - 1); i >= this.history; --i) {
-                queue.remove(i);
-            }
-        }
-
-        // Add new load to the head
-        queue.add(0, new Double(load));
-    }
-
     /**
-     * Compute historical average using time decay function
+     * Closes those metrics that need closing, e.g. to stop sampling in the background.
      */
-    private double average(List<Double> queue) {
-        assert !queue.isEmpty();
-
-        double totalLoad = 0;
-        double totalDecay = 0;
-        double decayFactor = this.decayFactor;
-
-        // Historical value contribute an exponentially decayed factor
-        for (int i = 0; i < queue.size(); ++i) {
-            double decay = 1 / Math.pow(decayFactor, i);
-
-            totalDecay += decay;
-            totalLoad += queue.get(i).doubleValue() * decay;
+    @Override
+    public void close() {
+        for (LoadMetric metric : this.metrics) {
+            if (metric instanceof Closeable) {
+                try {
+                    ((Closeable) metric).close();
+                } catch (IOException e) {
+                    this.log.warn(e.getLocalizedMessage(), e);
+                }
+            }
         }
-
-        return totalLoad / totalDecay;
     }
 
     @Override
@@ -139,6 +142,7 @@ public class DynamicLoadBalanceFactorProvider implements LoadBalanceFactorProvid
     @Override
     public void setDecayFactor(int decayFactor) {
         this.decayFactor = Math.max(1, decayFactor);
+        this.weights = new Weights(this.decayFactor, this.history);
     }
 
     @Override
@@ -149,5 +153,81 @@ public class DynamicLoadBalanceFactorProvider implements LoadBalanceFactorProvid
     @Override
     public void setHistory(int history) {
         this.history = Math.max(0, history);
+        this.weights = new Weights(this.decayFactor, this.history);
+    }
+
+    @Override
+    public int getHalfLife() {
+        return this.halfLife;
+    }
+
+    @Override
+    public void setHalfLife(int halfLife) {
+        this.halfLife = Math.max(0, halfLife);
+    }
+
+    /**
+     * Decay weights of historical loads, per number of samples since.
+     */
+    private static class Weights {
+        // 1 / decayFactor^i, for i from 0 to history
+        final double[] weights;
+        // Sum of the first i + 1 weights
+        final double[] totals;
+
+        Weights(int decayFactor, int history) {
+            this.weights = new double[history + 1];
+            this.totals = new double[history + 1];
+
+            double weight = 1;
+            double total = 0;
+            for (int i = 0; i <= history; ++i) {
+                total += weight;
+                this.weights[i] = weight;
+                this.totals[i] = total;
+                weight /= decayFactor;
+            }
+        }
+    }
+
+    /**
+     * Immutable record of the recent loads of a metric.
+     */
+    private static class Sample {
+        // Most recent load
+        final double load;
+        // Recent loads, most recent first, up to the configured history
+        final double[] loads;
+        // Decayed average of the recent loads
+        final double average;
+        // System.nanoTime() of the most recent load
+        final long time;
+
+        Sample(Sample previous, double load, long time, Weights weights, long halfLife) {
+            int capacity = weights.weights.length;
+            int retained = (previous != null) ? Math.min(previous.loads.length, capacity - 1) : 0;
+
+            this.load = load;
+            this.time = time;
+            this.loads = new double[retained + 1];
+            this.loads[0] = load;
+            if (retained > 0) {
+                System.arraycopy(previous.loads, 0, this.loads, 1, retained);
+            }
+
+            if ((halfLife > 0) && (previous != null)) {
+                // Weight of the previous average halves with every half-life elapsed since
+                double decay = Math.pow(0.5, (double) Math.max(time - previous.time, 0) / halfLife);
+                this.average = load + (previous.average - load) * decay;
+            } else if (halfLife > 0) {
+                this.average = load;
+            } else {
+                double total = 0;
+                for (int i = 0; i < this.loads.length; ++i) {
+                    total += this.loads[i] * weights.weights[i];
+                }
+                this.average = total / weights.totals[this.loads.length - 1];
+            }
+        }
     }
 }
@@ -55,6 +55,21 @@ public interface DynamicLoadBalanceFactorProviderMBean {
      */
     void setDecayFactor(int decayFactor);
 
+    /**
+     * Returns the half-life of historical load values.
+     *
+     * @return a number of seconds, or 0 if historical load values decay per sample
+     */
+    int getHalfLife();
+
+    /**
+     * Sets the time after which the contribution of a historical load value is halved. If positive, this replaces the decay
+     * factor and history, such that the smoothing of the load does not depend on how often it is computed.
+     *
+     * @param halfLife a number of seconds, or 0 to decay historical load values per sample
+     */
+    void setHalfLife(int halfLife);
+
     /**
      * Returns the load metrics registered with this provider
      *
@@ -0,0 +1,152 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.load.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.modcluster.container.Connector;
+import org.jboss.modcluster.container.Engine;
+import org.jboss.modcluster.load.LoadBalanceFactorProvider;
+import org.jboss.modcluster.load.WarmUpCurve;
+
+/**
+ * {@link LoadBalanceFactorProvider} decorator that caps the load balance factor of another provider along a
+ * {@link WarmUpCurve}, so that a freshly started node is not flooded with requests before it is warmed up.
+ * The warm-up of an engine begins with the first load balance factor requested for it since creation or since the last
+ * {@link #restart()}, and completes once the configured time has elapsed or once the configured number of requests has
+ * been served, whichever comes first.
+ */
+public class WarmUpLoadBalanceFactorProvider implements LoadBalanceFactorProvider, Closeable {
+    private final LoadBalanceFactorProvider provider;
+    private final WarmUpCurve curve;
+    private final long time;
+    private final long requests;
+
+    // Warm-up per engine name
+    private final ConcurrentMap<String, WarmUp> warmUps = new ConcurrentHashMap<String, WarmUp>();
+
+    /**
+     * Creates a new warm-up provider.
+     *
+     * @param provider the provider of the uncapped load balance factor
+     * @param curve the shape of the ramp
+     * @param time the duration of the warm-up, or 0 if not time-based
+     * @param unit the unit of the duration
+     * @param requests the number of requests served during warm-up, or 0 if not request-based
+     */
+    public WarmUpLoadBalanceFactorProvider(LoadBalanceFactorProvider provider, WarmUpCurve curve, long time, TimeUnit unit, long requests) {
+        if ((time <= 0) && (requests <= 0)) {
+            throw new IllegalArgumentException("Warm-up requires a positive time or request count");
+        }
+        this.provider = provider;
+        this.curve = curve;
+        this.time = (time > 0) ? unit.toMillis(time) : 0;
+        this.requests = Math.max(requests, 0);
+    }
+
+    /**
+     * Starts the warm-up of all engines over, e.g. after a context was redeployed.
+     */
+    public void restart() {
+        this.warmUps.clear();
+    }
+
+    /**
+     * Closes the provider of the uncapped load balance factor, if it needs closing.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.provider instanceof Closeable) {
+            ((Closeable) this.provider).close();
+        }
+    }
+
+    /**
+     * Indicates whether the load balance factor of the specified engine is still subject to its warm-up.
+     */
+    public boolean isWarmingUp(Engine engine) {
+        WarmUp warmUp = this.warmUps.get(engine.getName());
+
+        return (warmUp == null) || !warmUp.complete;
+    }
+
+    @Override
+    public int getLoadBalanceFactor(Engine engine) {
+        int lbf = this.provider.getLoadBalanceFactor(engine);
+
+        // Do not mask error or standby
+        if (lbf <= 0)
+            return lbf;
+
+        WarmUp warmUp = this.warmUps.get(engine.getName());
+
+        if (warmUp == null) {
+            warmUp = new WarmUp(System.currentTimeMillis(), (this.requests > 0) ? getRequestCount(engine) : 0);
+            WarmUp existing = this.warmUps.putIfAbsent(engine.getName(), warmUp);
+            if (existing != null) {
+                warmUp = existing;
+            }
+        }
+
+        if (warmUp.complete)
+            return lbf;
+
+        double progress = 0;
+
+        if (this.time > 0) {
+            progress = (double) (System.currentTimeMillis() - warmUp.start) / this.time;
+        }
+        if (this.requests > 0) {
+            progress = Math.max(progress, (double) (getRequestCount(engine) - warmUp.requestCount) / this.requests);
+        }
+
+        if (progress >= 1) {
+            warmUp.complete = true;
+            return lbf;
+        }
+
+        return Math.min(lbf, this.curve.getLoadBalanceFactor(Math.max(progress, 0)));
+    }
+
+    private static long getRequestCount(Engine engine) {
+        long count = 0;
+        for (Connector connector : engine.getConnectors()) {
+            count += connector.getRequestCount();
+        }
+        return count;
+    }
+
+    private static class WarmUp {
+        final long start;
+        final long requestCount;
+        volatile boolean complete = false;
+
+        WarmUp(long start, long requestCount) {
+            this.start = start;
+            this.requestCount = requestCount;
+        }
+    }
+}
@@ -1,46 +1,177 @@
 package org.jboss.modcluster.load.metric.impl;
 
+import java.io.Closeable;
 import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.InstanceNotFoundException;
 import javax.management.JMException;
+import javax.management.ListenerNotFoundException;
 import javax.management.MBeanServer;
+import javax.management.MBeanServerDelegate;
+import javax.management.MBeanServerNotification;
 import javax.management.MalformedObjectNameException;
+import javax.management.Notification;
+import javax.management.NotificationListener;
 import javax.management.ObjectName;
 
+import net.jcip.annotations.GuardedBy;
+
 import org.jboss.modcluster.container.Engine;
 
-public abstract class AbstractMBeanLoadMetric extends AbstractLoadMetric {
-    private MBeanServer server = ManagementFactory.getPlatformMBeanServer();
-    private ObjectName pattern;
+/**
+ * Base class for load metrics computed from the attributes of the mbeans matching a pattern. The matching names are resolved
+ * once, and resolved again only after an mbean matching the pattern was registered or unregistered, as notified by the
+ * {@link MBeanServerDelegate}.
+ */
+public abstract class AbstractMBeanLoadMetric extends AbstractLoadMetric implements Closeable {
+    private volatile MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    private volatile ObjectName pattern;
+
+    // Incremented whenever the resolved names may have become stale
+    private final AtomicInteger version = new AtomicInteger();
+    private volatile ResolvedNames names;
+
+    @GuardedBy("this")
+    private MBeanServer listening;
+
+    private final NotificationListener listener = new NotificationListener() {
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            ObjectName pattern = AbstractMBeanLoadMetric.this.pattern;
+            if ((notification instanceof MBeanServerNotification) && (pattern != null)
+                    && pattern.apply(((MBeanServerNotification) notification).getMBeanName())) {
+                AbstractMBeanLoadMetric.this.version.incrementAndGet();
+            }
+        }
+    };
 
     public void setPattern(ObjectName pattern) {
         this.pattern = pattern;
+        this.version.incrementAndGet();
     }
 
     public void setPattern(String pattern) throws MalformedObjectNameException {
         this.setPattern(ObjectName.getInstance(pattern));
     }
 
-    public void setMBeanServer(MBeanServer server) {
+    public synchronized void setMBeanServer(MBeanServer server) {
+        this.unlisten();
         this.server = server;
+        this.version.incrementAndGet();
+    }
+
+    /**
+     * Stops listening for mbean registrations.
+     */
+    @Override
+    public synchronized void close() {
+        this.unlisten();
+        this.version.incrementAndGet();
     }
-    
+
     protected <T> List<T> getAttributes(String attribute, Class<T> targetClass) throws JMException {
-        Set<ObjectName> names = this.server.queryNames(this.pattern, null);
-        List<T> list = new ArrayList<T>(names.size());
+        return this.getAttributes(targetClass, attribute).get(attribute);
+    }
+
+    /**
+     * Reads the specified attributes of every mbean matching the pattern, using a single request per mbean.
+     *
+     * @param targetClass the type of the attribute values
+     * @param attributes the attribute names
+     * @return the values of each attribute, per attribute name
+     * @throws JMException if an attribute could not be read
+     */
+    protected <T> Map<String, List<T>> getAttributes(Class<T> targetClass, String... attributes) throws JMException {
+        MBeanServer server = this.server;
+        Set<ObjectName> names = this.getNames(server);
+        Map<String, List<T>> results = new HashMap<String, List<T>>();
+        for (String attribute : attributes) {
+            results.put(attribute, new ArrayList<T>(names.size()));
+        }
         for (ObjectName name : names) {
-            list.add(targetClass.cast(this.server.getAttribute(name, attribute)));
+            AttributeList list;
+            try {
+                list = server.getAttributes(name, attributes);
+            } catch (InstanceNotFoundException e) {
+                this.version.incrementAndGet();
+                throw e;
+            }
+            Map<String, Object> values = new HashMap<String, Object>();
+            for (Attribute attribute : list.asList()) {
+                values.put(attribute.getName(), attribute.getValue());
+            }
+            for (String attribute : attributes) {
+                // An attribute that could not be read is omitted from the list; read it again to report why
+                Object value = values.containsKey(attribute) ? values.get(attribute) : server.getAttribute(name, attribute);
+                results.get(attribute).add(targetClass.cast(value));
+            }
         }
-        return list;
+        return results;
     }
-    
+
+    private Set<ObjectName> getNames(MBeanServer server) {
+        int version = this.version.get();
+        ResolvedNames names = this.names;
+        if ((names != null) && (names.version == version)) {
+            return names.names;
+        }
+        // Listen before querying, so that no registration is missed
+        boolean listening = this.listen(server);
+        Set<ObjectName> result = server.queryNames(this.pattern, null);
+        if (listening) {
+            this.names = new ResolvedNames(version, result);
+        }
+        return result;
+    }
+
+    private synchronized boolean listen(MBeanServer server) {
+        if (this.listening == server) {
+            return true;
+        }
+        this.unlisten();
+        try {
+            server.addNotificationListener(MBeanServerDelegate.DELEGATE_NAME, this.listener, null, null);
+            this.listening = server;
+            return true;
+        } catch (InstanceNotFoundException e) {
+            return false;
+        }
+    }
+
+    @GuardedBy("this")
+    private void unlisten() {
+        if (this.listening != null) {
+            try {
+                this.listening.removeNotificationListener(MBeanServerDelegate.DELEGATE_NAME, this.listener);
+            } catch (InstanceNotFoundException | ListenerNotFoundException e) {
+                // Nothing to remove
+            }
+            this.listening = null;
+        }
+    }
+
     @Override
     public double getLoad(Engine engine) throws JMException {
         return (this.pattern != null) ? this.getLoad() : 0;
     }
-    
+
     protected abstract double getLoad() throws JMException;
+
+    private static class ResolvedNames {
+        final int version;
+        final Set<ObjectName> names;
+
+        ResolvedNames(int version, Set<ObjectName> names) {
+            this.version = version;
+            this.names = names;
+        }
+    }
 }
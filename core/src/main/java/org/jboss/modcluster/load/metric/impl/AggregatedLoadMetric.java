@@ -0,0 +1,264 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.load.metric.impl;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import net.jcip.annotations.GuardedBy;
+
+import org.jboss.modcluster.container.Engine;
+import org.jboss.modcluster.load.metric.LoadMetric;
+
+/**
+ * {@link LoadMetric} decorator that polls an instantaneous metric, e.g. {@link BusyConnectorsLoadMetric} or
+ * {@link ActiveSessionsLoadMetric}, at a high rate on a dedicated thread, and returns a {@link Statistic} of the values
+ * polled since the previous call to {@link #getLoad(Engine)}. A spike between two load balance factor computations is
+ * therefore no longer missed.
+ * <p>
+ * Polled values are kept in a fixed-size reservoir, which holds a uniform random selection of the values of the interval
+ * once more values were polled than it can hold. The mean and maximum always cover all polled values.
+ * </p>
+ * <p>
+ * Only instantaneous metrics should be aggregated. A metric that reports the change since its previous query, e.g.
+ * {@link RequestCountLoadMetric}, {@link SendTrafficLoadMetric} or {@link GarbageCollectionLoadMetric}, would only report the
+ * change over a single poll interval, every poll consuming the change since the previous one.
+ * </p>
+ */
+public class AggregatedLoadMetric implements LoadMetric, Closeable {
+    public static final long DEFAULT_INTERVAL = 20;
+    public static final int DEFAULT_RESERVOIR_SIZE = 1024;
+
+    /**
+     * Statistic of the values polled over an interval.
+     */
+    public enum Statistic {
+        MEAN {
+            @Override
+            double compute(double[] values, int size, double mean, double max) {
+                return mean;
+            }
+        },
+        P90 {
+            @Override
+            double compute(double[] values, int size, double mean, double max) {
+                Arrays.sort(values, 0, size);
+                // Nearest rank
+                return values[(int) Math.ceil(0.9 * size) - 1];
+            }
+        },
+        MAX {
+            @Override
+            double compute(double[] values, int size, double mean, double max) {
+                return max;
+            }
+        },
+        ;
+
+        abstract double compute(double[] values, int size, double mean, double max);
+    }
+
+    private final LoadMetric metric;
+    private final Statistic statistic;
+    private final long interval;
+    private final int reservoirSize;
+
+    private final ConcurrentMap<Engine, Reservoir> reservoirs = new ConcurrentHashMap<Engine, Reservoir>();
+
+    @GuardedBy("this")
+    private ScheduledExecutorService executor;
+
+    /**
+     * Creates a new aggregated load metric, polling every {@value #DEFAULT_INTERVAL} ms into a reservoir of
+     * {@value #DEFAULT_RESERVOIR_SIZE} values.
+     *
+     * @param metric the metric to poll
+     * @param statistic the statistic of the polled values to return
+     */
+    public AggregatedLoadMetric(LoadMetric metric, Statistic statistic) {
+        this(metric, statistic, DEFAULT_INTERVAL, TimeUnit.MILLISECONDS, DEFAULT_RESERVOIR_SIZE);
+    }
+
+    /**
+     * Creates a new aggregated load metric.
+     *
+     * @param metric the metric to poll
+     * @param statistic the statistic of the polled values to return
+     * @param interval the time between two polls
+     * @param unit the unit of the interval
+     * @param reservoirSize the maximum number of polled values kept per interval
+     */
+    public AggregatedLoadMetric(LoadMetric metric, Statistic statistic, long interval, TimeUnit unit, int reservoirSize) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Sampling interval must be positive");
+        }
+        if (reservoirSize <= 0) {
+            throw new IllegalArgumentException("Reservoir size must be positive");
+        }
+        this.metric = metric;
+        this.statistic = statistic;
+        this.interval = unit.toNanos(interval);
+        this.reservoirSize = reservoirSize;
+    }
+
+    @Override
+    public double getLoad(Engine engine) throws Exception {
+        Reservoir reservoir = this.reservoirs.get(engine);
+
+        if (reservoir == null) {
+            reservoir = new Reservoir(this.reservoirSize);
+            // Insert and schedule atomically with respect to close(), lest polling start twice or on an orphaned executor
+            synchronized (this) {
+                Reservoir existing = this.reservoirs.putIfAbsent(engine, reservoir);
+                if (existing != null) {
+                    reservoir = existing;
+                } else {
+                    this.schedule(engine, reservoir);
+                }
+            }
+        }
+
+        synchronized (reservoir) {
+            if (reservoir.count > 0) {
+                int size = Math.min(reservoir.count, this.reservoirSize);
+                // Statistics may reorder the values they are given, so the reservoir itself is left untouched
+                System.arraycopy(reservoir.values, 0, reservoir.scratch, 0, size);
+                double result = this.statistic.compute(reservoir.scratch, size, reservoir.sum / reservoir.count, reservoir.max);
+                reservoir.reset();
+                return result;
+            }
+        }
+
+        // Nothing polled yet, or every poll failed
+        return this.metric.getLoad(engine);
+    }
+
+    @GuardedBy("this")
+    private void schedule(final Engine engine, final Reservoir reservoir) {
+        if (this.executor == null) {
+            final String name = "mod_cluster " + this.metric.getClass().getSimpleName();
+            this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable task) {
+                    Thread thread = new Thread(task, name);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        this.executor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    double value = AggregatedLoadMetric.this.metric.getLoad(engine);
+                    synchronized (reservoir) {
+                        reservoir.add(value);
+                    }
+                } catch (Exception e) {
+                    // Skip this poll; a persistent failure surfaces via getLoad(...)
+                }
+            }
+        }, this.interval, this.interval, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops polling, and forgets all polled values. Polling starts over on the next call to {@link #getLoad(Engine)}.
+     */
+    @Override
+    public synchronized void close() {
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+            this.executor = null;
+        }
+        this.reservoirs.clear();
+    }
+
+    public Statistic getStatistic() {
+        return this.statistic;
+    }
+
+    @Override
+    public int getWeight() {
+        return this.metric.getWeight();
+    }
+
+    @Override
+    public void setWeight(int weight) {
+        this.metric.setWeight(weight);
+    }
+
+    @Override
+    public double getCapacity() {
+        return this.metric.getCapacity();
+    }
+
+    @Override
+    public void setCapacity(double capacity) {
+        this.metric.setCapacity(capacity);
+    }
+
+    /**
+     * Values polled since the last reset, guarded by its own monitor.
+     */
+    private static class Reservoir {
+        final double[] values;
+        // Copy of the values handed to the statistic, reused across calls
+        final double[] scratch;
+        int count;
+        double sum;
+        double max;
+
+        Reservoir(int size) {
+            this.values = new double[size];
+            this.scratch = new double[size];
+        }
+
+        void add(double value) {
+            if (this.count < this.values.length) {
+                this.values[this.count] = value;
+            } else {
+                // Algorithm R: keep each of the values seen so far with equal probability
+                int index = ThreadLocalRandom.current().nextInt(this.count + 1);
+                if (index < this.values.length) {
+                    this.values[index] = value;
+                }
+            }
+            this.max = (this.count == 0) ? value : Math.max(this.max, value);
+            this.sum += value;
+            this.count += 1;
+        }
+
+        void reset() {
+            this.count = 0;
+            this.sum = 0;
+            this.max = 0;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.load.metric.impl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the control files of the cgroup of this process, as listed in {@link #DEFAULT_MEMBERSHIP}, within the hierarchy
+ * mounted at {@link #DEFAULT_ROOT}. Supports both the unified (v2) hierarchy and the per-controller (v1) hierarchies.
+ */
+final class Cgroup {
+    static final Path DEFAULT_ROOT = Paths.get("/sys/fs/cgroup");
+    static final Path DEFAULT_MEMBERSHIP = Paths.get("/proc/self/cgroup");
+
+    private Cgroup() {
+        // Hide
+    }
+
+    /**
+     * Indicates whether the specified root mounts the unified (v2) hierarchy.
+     */
+    static boolean isUnified(Path root) {
+        return Files.exists(root.resolve("cgroup.controllers"));
+    }
+
+    /**
+     * Returns the first existing v1 controller directory of the specified names, e.g. "cpu,cpuacct" then "cpu".
+     *
+     * @return a directory, or null if none exists
+     */
+    static Path findController(Path root, String... names) {
+        for (String name : names) {
+            Path directory = root.resolve(name);
+            if (Files.isDirectory(directory)) {
+                return directory;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the directory of the cgroup of this process within the specified hierarchy. If the cgroup of this process is
+     * not found below the mount point, e.g. within a container that mounts its own cgroup as the root of the hierarchy, the
+     * mount point itself is used.
+     *
+     * @param mount the mount point of the unified hierarchy, or the directory of a v1 controller
+     * @param membership the cgroup membership file of this process, i.e. /proc/self/cgroup
+     * @param controller the v1 controller, e.g. "cpuacct", or null for the unified hierarchy
+     * @return a directory, or null if this process is not a member of the hierarchy, or a member of its root cgroup, whose
+     *         control files would describe the whole system
+     */
+    static Path findCgroup(Path mount, Path membership, String controller) throws IOException {
+        String path = readPath(membership, controller);
+        if (path == null) {
+            return null;
+        }
+        Path directory = mount.resolve(path.substring(1));
+        if (path.equals("/") || !Files.isDirectory(directory)) {
+            directory = mount;
+        }
+        // Only non-root v2 cgroups have a cgroup.type file, only root v1 cgroups a release_agent file
+        boolean root = (controller == null) ? !Files.exists(directory.resolve("cgroup.type")) : Files.exists(directory.resolve("release_agent"));
+        return root ? null : directory;
+    }
+
+    /**
+     * Returns the path of the cgroup of this process from lines such as "0::/system.slice/app.service" (v2) or
+     * "4:cpu,cpuacct:/docker/1234" (v1).
+     *
+     * @return an absolute path, or null if the membership file does not exist or has no line for the controller
+     */
+    private static String readPath(Path membership, String controller) throws IOException {
+        if (!Files.exists(membership)) {
+            return null;
+        }
+        for (String line : Files.readAllLines(membership, StandardCharsets.US_ASCII)) {
+            String[] fields = line.split(":", 3);
+            if ((fields.length == 3) && fields[2].startsWith("/")) {
+                if ((controller == null) ? fields[0].equals("0") && fields[1].isEmpty() : Arrays.asList(fields[1].split(",")).contains(controller)) {
+                    return fields[2];
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the whitespace separated fields of the first line of the specified file.
+     *
+     * @return the fields, or null if the file does not exist or is empty
+     */
+    static String[] readFields(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+            String line = reader.readLine();
+            return (line != null) ? line.trim().split("\\s+") : null;
+        }
+    }
+
+    /**
+     * Returns the single numeric value of the specified file.
+     *
+     * @return the value, or -1 if the file does not exist or reads "max"
+     */
+    static long readValue(Path file) throws IOException {
+        String[] fields = readFields(file);
+        if ((fields == null) || fields[0].equals("max")) {
+            return -1;
+        }
+        return Long.parseLong(fields[0]);
+    }
+
+    /**
+     * Returns the "key value" lines of the specified file, e.g. cpu.stat or memory.stat.
+     *
+     * @return the values per key, or null if the file does not exist
+     */
+    static Map<String, Long> readStat(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        List<String> lines = Files.readAllLines(file, StandardCharsets.US_ASCII);
+        Map<String, Long> stat = new HashMap<String, Long>(lines.size());
+        for (String line : lines) {
+            String[] fields = line.trim().split("\\s+");
+            if (fields.length == 2) {
+                try {
+                    stat.put(fields[0], Long.valueOf(fields[1]));
+                } catch (NumberFormatException e) {
+                    // Not a counter
+                }
+            }
+        }
+        return stat;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.load.metric.impl;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.Map;
+
+import javax.management.AttributeNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import net.jcip.annotations.GuardedBy;
+
+import org.jboss.modcluster.ModClusterLogger;
+import org.jboss.modcluster.container.Engine;
+import org.jboss.modcluster.load.metric.LoadMetric;
+
+/**
+ * {@link LoadMetric} implementation that returns the CPU usage of the cgroup of this process (e.g. its container) since the
+ * previous load computation, relative to its CPU quota, or to the available processors if it has none. If the cgroup was
+ * throttled, the fraction of throttled scheduling periods is added, so that a node starved by its quota reports a load
+ * beyond its capacity. Without cgroups, or in the root cgroup, the CPU time of this process is used instead, if available.
+ */
+public class CgroupCpuLoadMetric extends AbstractLoadMetric {
+    private static final String OPERATING_SYSTEM = "java.lang:type=OperatingSystem";
+
+    private final Path root;
+    private final Path membership;
+    private final MBeanServer server;
+
+    @GuardedBy("this")
+    private Sample previous;
+
+    public CgroupCpuLoadMetric() {
+        this(Cgroup.DEFAULT_ROOT, Cgroup.DEFAULT_MEMBERSHIP, ManagementFactory.getPlatformMBeanServer());
+    }
+
+    /**
+     * Creates a new cgroup CPU load metric.
+     *
+     * @param root the mount point of the cgroup hierarchy
+     * @param membership the cgroup membership file of this process, i.e. /proc/self/cgroup
+     * @param server the mbean server providing process CPU time, used if this process is not in a cgroup other than the root
+     */
+    public CgroupCpuLoadMetric(Path root, Path membership, MBeanServer server) {
+        this.root = root;
+        this.membership = membership;
+        this.server = server;
+    }
+
+    @Override
+    public synchronized double getLoad(Engine engine) throws Exception {
+        Sample current = this.sample();
+        if (current == null) {
+            ModClusterLogger.LOGGER.notSupportedOnSystem(this.getClass().getSimpleName());
+            this.setWeight(0);
+            return 0;
+        }
+
+        Sample previous = this.previous;
+        this.previous = current;
+
+        if ((previous == null) || (current.time <= previous.time)) {
+            return 0;
+        }
+
+        double load = (double) (current.usage - previous.usage) / ((current.time - previous.time) * current.processors);
+
+        long periods = current.periods - previous.periods;
+        if (periods > 0) {
+            load += (double) (current.throttledPeriods - previous.throttledPeriods) / periods;
+        }
+        return load;
+    }
+
+    private Sample sample() throws Exception {
+        long time = System.nanoTime();
+
+        if (Cgroup.isUnified(this.root)) {
+            Path cgroup = Cgroup.findCgroup(this.root, this.membership, null);
+            Map<String, Long> stat = (cgroup != null) ? Cgroup.readStat(cgroup.resolve("cpu.stat")) : null;
+            if ((stat != null) && stat.containsKey("usage_usec")) {
+                String[] max = Cgroup.readFields(cgroup.resolve("cpu.max"));
+                double processors = ((max != null) && (max.length == 2) && !max[0].equals("max")) ? Double.parseDouble(max[0]) / Double.parseDouble(max[1]) : this.getAvailableProcessors();
+                return new Sample(time, stat.get("usage_usec") * 1000, processors, getValue(stat, "nr_periods"), getValue(stat, "nr_throttled"));
+            }
+        } else {
+            Path cpu = Cgroup.findController(this.root, "cpu,cpuacct", "cpuacct,cpu", "cpu");
+            Path cpuacct = Cgroup.findController(this.root, "cpu,cpuacct", "cpuacct,cpu", "cpuacct");
+            if (cpu != null) {
+                cpu = Cgroup.findCgroup(cpu, this.membership, "cpu");
+            }
+            if (cpuacct != null) {
+                cpuacct = Cgroup.findCgroup(cpuacct, this.membership, "cpuacct");
+            }
+            if ((cpu != null) && (cpuacct != null)) {
+                long usage = Cgroup.readValue(cpuacct.resolve("cpuacct.usage"));
+                if (usage >= 0) {
+                    long quota = Cgroup.readValue(cpu.resolve("cpu.cfs_quota_us"));
+                    long period = Cgroup.readValue(cpu.resolve("cpu.cfs_period_us"));
+                    double processors = ((quota > 0) && (period > 0)) ? (double) quota / period : this.getAvailableProcessors();
+                    Map<String, Long> stat = Cgroup.readStat(cpu.resolve("cpu.stat"));
+                    return new Sample(time, usage, processors, getValue(stat, "nr_periods"), getValue(stat, "nr_throttled"));
+                }
+            }
+        }
+
+        // No cgroups, or the root cgroup, i.e. the whole system: fall back to the CPU time of this process
+        try {
+            Object usage = this.server.getAttribute(ObjectName.getInstance(OPERATING_SYSTEM), "ProcessCpuTime");
+            if ((usage instanceof Long) && ((Long) usage >= 0)) {
+                return new Sample(time, (Long) usage, this.getAvailableProcessors(), 0, 0);
+            }
+        } catch (AttributeNotFoundException e) {
+            // e.g. not a HotSpot based JVM
+        }
+        return null;
+    }
+
+    private double getAvailableProcessors() throws JMException {
+        return ((Number) this.server.getAttribute(ObjectName.getInstance(OPERATING_SYSTEM), "AvailableProcessors")).doubleValue();
+    }
+
+    private static long getValue(Map<String, Long> stat, String key) {
+        Long value = (stat != null) ? stat.get(key) : null;
+        return (value != null) ? value : 0;
+    }
+
+    private static class Sample {
+        final long time;
+        final long usage;
+        final double processors;
+        final long periods;
+        final long throttledPeriods;
+
+        /**
+         * @param time a {@link System#nanoTime()}
+         * @param usage the consumed CPU time, in nanoseconds
+         * @param processors the number of processors the usage is relative to
+         * @param periods the number of elapsed scheduling periods with a quota
+         * @param throttledPeriods the number of those periods that were throttled
+         */
+        Sample(long time, long usage, double processors, long periods, long throttledPeriods) {
+            this.time = time;
+            this.usage = usage;
+            this.processors = processors;
+            this.periods = periods;
+            this.throttledPeriods = throttledPeriods;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.load.metric.impl;
+
+import org.jboss.modcluster.container.Connector;
+import org.jboss.modcluster.container.Engine;
+import org.jboss.modcluster.load.metric.LoadMetric;
+
+/**
+ * {@link LoadMetric} implementation that returns the longest time, in milliseconds, a request is estimated to wait for a
+ * thread among the connectors, as reported by {@link Connector#getQueueWaitTime()}. The estimate of a connector may derive
+ * from averages over its lifetime rather than from the requests currently queued. Its capacity is therefore the longest
+ * tolerated wait, 1 second by default.
+ */
+public class ConnectorQueueWaitLoadMetric extends AbstractLoadMetric {
+    public static final double DEFAULT_CAPACITY = 1000;
+
+    public ConnectorQueueWaitLoadMetric() {
+        this.setCapacity(DEFAULT_CAPACITY);
+    }
+
+    @Override
+    public double getLoad(Engine engine) throws Exception {
+        long wait = 0;
+        for (Connector connector : engine.getConnectors()) {
+            wait = Math.max(wait, connector.getQueueWaitTime());
+        }
+        return wait;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.load.metric.impl;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.jboss.modcluster.ModClusterLogger;
+import org.jboss.modcluster.container.Engine;
+import org.jboss.modcluster.load.metric.LoadMetric;
+
+/**
+ * {@link LoadMetric} implementation that returns the memory usage of this process relative to the memory limit of its
+ * cgroup (e.g. its container), or to the physical memory if it has none. Unlike {@link HeapMemoryUsageLoadMetric}, this
+ * accounts for the memory that gets a container killed without filling the heap: non-heap memory (metaspace, code cache),
+ * direct and mapped buffers, and whatever else the cgroup charges, except for reclaimable file cache.
+ */
+public class ContainerMemoryLoadMetric extends AbstractLoadMetric {
+    private static final String OPERATING_SYSTEM = "java.lang:type=OperatingSystem";
+    // cgroup v1 reports no limit as the largest page aligned long
+    private static final long UNLIMITED = Long.MAX_VALUE / 2;
+
+    private final Path root;
+    private final Path membership;
+    private final MBeanServer server;
+    private final MemoryMXBean memory;
+    private final List<BufferPoolMXBean> bufferPools;
+
+    public ContainerMemoryLoadMetric() {
+        this(Cgroup.DEFAULT_ROOT, Cgroup.DEFAULT_MEMBERSHIP, ManagementFactory.getPlatformMBeanServer(), ManagementFactory.getMemoryMXBean(), ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class));
+    }
+
+    /**
+     * Creates a new container memory load metric.
+     *
+     * @param root the mount point of the cgroup hierarchy
+     * @param membership the cgroup membership file of this process, i.e. /proc/self/cgroup
+     * @param server the mbean server providing physical memory size, used if there is no cgroup limit
+     * @param memory the heap and non-heap memory usage of this process
+     * @param bufferPools the direct and mapped buffer pools of this process
+     */
+    public ContainerMemoryLoadMetric(Path root, Path membership, MBeanServer server, MemoryMXBean memory, List<BufferPoolMXBean> bufferPools) {
+        this.root = root;
+        this.membership = membership;
+        this.server = server;
+        this.memory = memory;
+        this.bufferPools = bufferPools;
+    }
+
+    @Override
+    public double getLoad(Engine engine) throws Exception {
+        // Memory committed by the JVM, which is resident, or can become so at any time
+        long used = this.memory.getHeapMemoryUsage().getCommitted() + this.memory.getNonHeapMemoryUsage().getCommitted();
+        for (BufferPoolMXBean pool : this.bufferPools) {
+            used += Math.max(pool.getMemoryUsed(), 0);
+        }
+
+        long limit = -1;
+
+        // The root cgroup, i.e. the whole system, has no limit, and charges the memory of every process
+        if (Cgroup.isUnified(this.root)) {
+            Path cgroup = Cgroup.findCgroup(this.root, this.membership, null);
+            if (cgroup != null) {
+                limit = Cgroup.readValue(cgroup.resolve("memory.max"));
+                used = Math.max(used, getUsage(Cgroup.readValue(cgroup.resolve("memory.current")), Cgroup.readStat(cgroup.resolve("memory.stat")), "inactive_file"));
+            }
+        } else {
+            Path directory = Cgroup.findController(this.root, "memory");
+            if (directory != null) {
+                directory = Cgroup.findCgroup(directory, this.membership, "memory");
+            }
+            if (directory != null) {
+                limit = Cgroup.readValue(directory.resolve("memory.limit_in_bytes"));
+                used = Math.max(used, getUsage(Cgroup.readValue(directory.resolve("memory.usage_in_bytes")), Cgroup.readStat(directory.resolve("memory.stat")), "total_inactive_file"));
+            }
+        }
+
+        if ((limit <= 0) || (limit >= UNLIMITED)) {
+            limit = this.getPhysicalMemory();
+            if (limit <= 0) {
+                ModClusterLogger.LOGGER.notSupportedOnSystem(this.getClass().getSimpleName());
+                this.setWeight(0);
+                return 0;
+            }
+        }
+
+        return (double) used / limit;
+    }
+
+    /**
+     * Returns the charged memory, less the reclaimable file cache.
+     */
+    private static long getUsage(long current, Map<String, Long> stat, String inactiveFile) {
+        if (current < 0) {
+            return 0;
+        }
+        Long cache = (stat != null) ? stat.get(inactiveFile) : null;
+        return (cache != null) ? Math.max(current - cache, 0) : current;
+    }
+
+    private long getPhysicalMemory() throws Exception {
+        try {
+            Object size = this.server.getAttribute(ObjectName.getInstance(OPERATING_SYSTEM), "TotalPhysicalMemorySize");
+            return (size instanceof Long) ? (Long) size : -1;
+        } catch (AttributeNotFoundException e) {
+            // e.g. not a HotSpot based JVM
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.load.metric.impl;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import org.jboss.modcluster.container.Engine;
+import org.jboss.modcluster.load.metric.DeterministicLoadState;
+import org.jboss.modcluster.load.metric.LoadMetric;
+
+/**
+ * {@link LoadMetric} implementation that returns the fraction of wall-clock time spent in garbage collection since the
+ * previous load computation. The time spent by old generation collectors can be given more weight, since these
+ * collections are the first sign of a heap that no longer keeps up with the allocation rate.
+ */
+public class GarbageCollectionLoadMetric extends AbstractLoadMetric {
+    public static final double DEFAULT_OLD_GENERATION_WEIGHT = 1;
+
+    private static final String[] OLD_GENERATION_COLLECTORS = { "Old", "MarkSweep", "Tenured" };
+
+    private final List<GarbageCollectorMXBean> beans;
+    private final DeterministicLoadState state;
+    private volatile double oldGenerationWeight = DEFAULT_OLD_GENERATION_WEIGHT;
+
+    public GarbageCollectionLoadMetric() {
+        this(ManagementFactory.getGarbageCollectorMXBeans(), new DeterministicLoadStateImpl());
+    }
+
+    public GarbageCollectionLoadMetric(List<GarbageCollectorMXBean> beans, DeterministicLoadState state) {
+        this.beans = beans;
+        this.state = state;
+    }
+
+    public double getOldGenerationWeight() {
+        return this.oldGenerationWeight;
+    }
+
+    /**
+     * Sets the factor by which the time spent by old generation collectors is multiplied.
+     *
+     * @param weight a positive number
+     */
+    public void setOldGenerationWeight(double weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException(String.valueOf(weight));
+        }
+        this.oldGenerationWeight = weight;
+    }
+
+    @Override
+    public double getLoad(Engine engine) throws Exception {
+        double time = 0;
+        for (GarbageCollectorMXBean bean : this.beans) {
+            long collectionTime = bean.getCollectionTime();
+            // Collection time is undefined for some collectors
+            if (collectionTime > 0) {
+                time += isOldGeneration(bean) ? collectionTime * this.oldGenerationWeight : collectionTime;
+            }
+        }
+        // Milliseconds of collection per second of wall-clock time
+        return this.state.delta(time) / 1000;
+    }
+
+    static boolean isOldGeneration(GarbageCollectorMXBean bean) {
+        String name = bean.getName();
+        for (String collector : OLD_GENERATION_COLLECTORS) {
+            if (name.contains(collector)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
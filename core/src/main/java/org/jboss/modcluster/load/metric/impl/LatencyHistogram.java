@@ -0,0 +1,115 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.load.metric.impl;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative values, e.g. durations in microseconds, using a fixed amount of memory. Values are
+ * counted in buckets of logarithmic width: each power of two is split into 8 buckets, so a value read back from the histogram
+ * is within 1/16 of the recorded value.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = index(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Records the specified value.
+     *
+     * @param value a non-negative value; negative values are recorded as 0
+     */
+    public void record(long value) {
+        this.counts.incrementAndGet(index(Math.max(value, 0)));
+    }
+
+    /**
+     * Adds the counts recorded since the previous drain to the specified totals, and resets them. Values recorded
+     * concurrently are counted by either this or the next drain.
+     *
+     * @param totals an array created by {@link #createCounts()}
+     */
+    public void drainTo(long[] totals) {
+        for (int i = 0; i < BUCKETS; ++i) {
+            if (this.counts.get(i) != 0) {
+                totals[i] += this.counts.getAndSet(i, 0);
+            }
+        }
+    }
+
+    /**
+     * Creates an array suitable for {@link #drainTo(long[])}.
+     */
+    public static long[] createCounts() {
+        return new long[BUCKETS];
+    }
+
+    /**
+     * Returns the specified percentile of the values counted in the specified array.
+     *
+     * @param counts an array filled by {@link #drainTo(long[])}
+     * @param percentile a number greater than 0 and at most 100
+     * @return the percentile, or -1 if nothing was counted
+     */
+    public static double getPercentile(long[] counts, double percentile) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return -1;
+        }
+        // Nearest rank
+        long rank = Math.max((long) Math.ceil(percentile / 100 * total), 1);
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; ++i) {
+            cumulative += counts[i];
+            if (cumulative >= rank) {
+                return getValue(i);
+            }
+        }
+        return getValue(counts.length - 1);
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Returns the middle of the range of values counted by the specified bucket.
+     */
+    static double getValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long lower = ((long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1)))) << shift;
+        return lower + ((1L << shift) - 1) / 2d;
+    }
+}
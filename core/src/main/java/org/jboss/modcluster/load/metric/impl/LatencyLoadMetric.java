@@ -0,0 +1,145 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.load.metric.impl;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestEvent;
+import javax.servlet.ServletRequestListener;
+
+import net.jcip.annotations.GuardedBy;
+
+import org.jboss.modcluster.container.Context;
+import org.jboss.modcluster.container.Engine;
+import org.jboss.modcluster.container.Host;
+import org.jboss.modcluster.load.metric.LoadMetric;
+
+/**
+ * {@link LoadMetric} implementation that returns a percentile of the response times, in milliseconds, of the requests completed
+ * since the previous load computation. Its capacity is therefore the targeted response time (i.e. the SLO), 1 second by
+ * default. Response times are recorded per context, into a {@link LatencyHistogram}, by a request listener registered with
+ * each context of an engine the first time its load is computed.
+ */
+public class LatencyLoadMetric extends AbstractLoadMetric implements Closeable {
+    public static final double DEFAULT_PERCENTILE = 99;
+    public static final double DEFAULT_SLO = 1000;
+
+    private static final String START_ATTRIBUTE = LatencyLoadMetric.class.getName() + ".start";
+
+    private volatile double percentile = DEFAULT_PERCENTILE;
+
+    @GuardedBy("this")
+    private final Map<Engine, Map<Context, LatencyListener>> listeners = new HashMap<Engine, Map<Context, LatencyListener>>();
+
+    public LatencyLoadMetric() {
+        this.setCapacity(DEFAULT_SLO);
+    }
+
+    public double getPercentile() {
+        return this.percentile;
+    }
+
+    /**
+     * Sets the percentile of the response times returned as load.
+     *
+     * @param percentile a number greater than 0 and at most 100
+     */
+    public void setPercentile(double percentile) {
+        if ((percentile <= 0) || (percentile > 100)) {
+            throw new IllegalArgumentException(String.valueOf(percentile));
+        }
+        this.percentile = percentile;
+    }
+
+    @Override
+    public synchronized double getLoad(Engine engine) {
+        Map<Context, LatencyListener> listeners = this.listeners.get(engine);
+        if (listeners == null) {
+            listeners = new HashMap<Context, LatencyListener>();
+            this.listeners.put(engine, listeners);
+        }
+
+        long[] counts = LatencyHistogram.createCounts();
+        Map<Context, LatencyListener> current = new HashMap<Context, LatencyListener>();
+
+        for (Host host : engine.getHosts()) {
+            for (Context context : host.getContexts()) {
+                LatencyListener listener = listeners.remove(context);
+                if (listener == null) {
+                    listener = new LatencyListener();
+                    context.addRequestListener(listener);
+                }
+                listener.histogram.drainTo(counts);
+                current.put(context, listener);
+            }
+        }
+
+        // Forget contexts that are gone
+        for (Map.Entry<Context, LatencyListener> entry : listeners.entrySet()) {
+            entry.getKey().removeRequestListener(entry.getValue());
+        }
+        this.listeners.put(engine, current);
+
+        double micros = LatencyHistogram.getPercentile(counts, this.percentile);
+
+        return (micros < 0) ? 0 : micros / 1000;
+    }
+
+    /**
+     * Removes the request listeners from all contexts.
+     */
+    @Override
+    public synchronized void close() {
+        Iterator<Map<Context, LatencyListener>> engines = this.listeners.values().iterator();
+        while (engines.hasNext()) {
+            for (Map.Entry<Context, LatencyListener> entry : engines.next().entrySet()) {
+                entry.getKey().removeRequestListener(entry.getValue());
+            }
+            engines.remove();
+        }
+    }
+
+    /**
+     * Records the response time of each request, in microseconds.
+     */
+    private static class LatencyListener implements ServletRequestListener {
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        @Override
+        public void requestInitialized(ServletRequestEvent event) {
+            event.getServletRequest().setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+
+        @Override
+        public void requestDestroyed(ServletRequestEvent event) {
+            ServletRequest request = event.getServletRequest();
+            Object start = request.getAttribute(START_ATTRIBUTE);
+            if (start instanceof Long) {
+                this.histogram.record((System.nanoTime() - (Long) start) / 1000);
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.load.metric.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import net.jcip.annotations.GuardedBy;
+
+import org.jboss.modcluster.ModClusterLogger;
+import org.jboss.modcluster.container.Connector;
+import org.jboss.modcluster.container.Engine;
+import org.jboss.modcluster.load.metric.LoadMetric;
+
+/**
+ * {@link LoadMetric} implementation that returns the number of connections waiting in the kernel accept queue of the
+ * listening socket of the proxy connector, as read from /proc/net/tcp and /proc/net/tcp6, relative to the backlog of that
+ * socket, e.g. the acceptCount of a Tomcat connector, or {@value #DEFAULT_BACKLOG} if the connector does not report it. The
+ * files are parsed in place, using a buffer reused across computations. Disables itself on systems without these files.
+ */
+public class ListenBacklogLoadMetric extends AbstractLoadMetric {
+    public static final Path DEFAULT_PROC_NET = Paths.get("/proc/net");
+    // Backlog assumed if the connector does not report one, i.e. the default of the JDK and of Tomcat
+    public static final int DEFAULT_BACKLOG = 100;
+
+    private static final int LISTEN = 0x0A;
+
+    private final Path directory;
+
+    @GuardedBy("this")
+    private byte[] buffer = new byte[16384];
+
+    public ListenBacklogLoadMetric() {
+        this(DEFAULT_PROC_NET);
+    }
+
+    /**
+     * Creates a new listen backlog load metric.
+     *
+     * @param directory the directory containing the tcp and tcp6 socket tables
+     */
+    public ListenBacklogLoadMetric(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public synchronized double getLoad(Engine engine) throws Exception {
+        Connector connector = engine.getProxyConnector();
+        if (connector == null) {
+            return 0;
+        }
+        int port = connector.getPort();
+
+        long queue = -1;
+        boolean supported = false;
+
+        for (String table : new String[] { "tcp", "tcp6" }) {
+            int length = this.read(this.directory.resolve(table));
+            if (length >= 0) {
+                supported = true;
+                queue = Math.max(queue, findListenQueue(this.buffer, length, port));
+            }
+        }
+
+        if (!supported) {
+            ModClusterLogger.LOGGER.notSupportedOnSystem(this.getClass().getSimpleName());
+            this.setWeight(0);
+            return 0;
+        }
+
+        int backlog = connector.getBacklog();
+        return (double) Math.max(queue, 0) / ((backlog > 0) ? backlog : DEFAULT_BACKLOG);
+    }
+
+    /**
+     * Reads the specified file into the buffer, growing it if necessary.
+     *
+     * @return the number of bytes read, or -1 if the file does not exist
+     */
+    @GuardedBy("this")
+    private int read(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return -1;
+        }
+        try (InputStream input = Files.newInputStream(file)) {
+            int length = 0;
+            int read;
+            while ((read = input.read(this.buffer, length, this.buffer.length - length)) >= 0) {
+                length += read;
+                if (length == this.buffer.length) {
+                    this.buffer = Arrays.copyOf(this.buffer, length * 2);
+                }
+            }
+            return length;
+        }
+    }
+
+    /**
+     * Returns the receive queue of the listening socket on the specified port, in a socket table formatted as:
+     *
+     * <pre>
+     *   sl  local_address rem_address   st tx_queue rx_queue tr tm->when retrnsmt   uid  timeout inode
+     *    0: 00000000:1F49 00000000:0000 0A 00000000:00000000 00:00000000 00000000     0        0 12345 ...
+     * </pre>
+     *
+     * @return the receive queue, i.e. the number of connections not yet accepted, or -1 if there is no such socket
+     */
+    static long findListenQueue(byte[] buffer, int length, int port) {
+        long queue = -1;
+        // Skip header
+        int start = nextLine(buffer, 0, length);
+        while (start < length) {
+            int end = start;
+            while ((end < length) && (buffer[end] != '\n')) {
+                end += 1;
+            }
+            queue = Math.max(queue, parseListenQueue(buffer, start, end, port));
+            start = end + 1;
+        }
+        return queue;
+    }
+
+    private static int nextLine(byte[] buffer, int start, int length) {
+        int position = start;
+        while ((position < length) && (buffer[position] != '\n')) {
+            position += 1;
+        }
+        return position + 1;
+    }
+
+    private static long parseListenQueue(byte[] buffer, int start, int end, int port) {
+        long localPort = -1;
+        long state = -1;
+        long queue = -1;
+        int position = start;
+        // Fields: sl, local_address, rem_address, st, tx_queue:rx_queue
+        for (int field = 0; field <= 4; ++field) {
+            while ((position < end) && (buffer[position] == ' ')) {
+                position += 1;
+            }
+            int fieldStart = position;
+            while ((position < end) && (buffer[position] != ' ')) {
+                position += 1;
+            }
+            if (fieldStart == position) {
+                return -1;
+            }
+            switch (field) {
+                case 1: {
+                    localPort = parseHex(buffer, indexOf(buffer, fieldStart, position, ':') + 1, position);
+                    if (localPort != port) {
+                        return -1;
+                    }
+                    break;
+                }
+                case 3: {
+                    state = parseHex(buffer, fieldStart, position);
+                    if (state != LISTEN) {
+                        return -1;
+                    }
+                    break;
+                }
+                case 4: {
+                    queue = parseHex(buffer, indexOf(buffer, fieldStart, position, ':') + 1, position);
+                    break;
+                }
+                default: {
+                    // Ignore
+                }
+            }
+        }
+        return queue;
+    }
+
+    private static int indexOf(byte[] buffer, int start, int end, char character) {
+        for (int i = start; i < end; ++i) {
+            if (buffer[i] == character) {
+                return i;
+            }
+        }
+        // Yields an empty, hence invalid, range
+        return end - 1;
+    }
+
+    /**
+     * @return the value of the specified hexadecimal digits, or -1 if not valid
+     */
+    private static long parseHex(byte[] buffer, int start, int end) {
+        if (start >= end) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = start; i < end; ++i) {
+            int digit = Character.digit(buffer[i], 16);
+            if (digit < 0) {
+                return -1;
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+}
@@ -22,6 +22,7 @@
 package org.jboss.modcluster.load.metric.impl;
 
 import java.util.List;
+import java.util.Map;
 
 import javax.management.JMException;
 
@@ -46,15 +47,15 @@ public class MBeanAttributeRatioLoadMetric extends AbstractMBeanLoadMetric {
 
     @Override
     public double getLoad() throws JMException {
+        Map<String, List<Number>> results = this.getAttributes(Number.class, this.dividendAttribute, this.divisorAttribute);
+
         double dividend = 0;
-        List<Number> results = this.getAttributes(this.dividendAttribute, Number.class);
-        for (Number result : results) {
+        for (Number result : results.get(this.dividendAttribute)) {
             dividend += result.doubleValue();
         }
 
         double divisor = 0;
-        results = this.getAttributes(this.divisorAttribute, Number.class);
-        for (Number result : results) {
+        for (Number result : results.get(this.divisorAttribute)) {
             divisor += result.doubleValue();
         }
 
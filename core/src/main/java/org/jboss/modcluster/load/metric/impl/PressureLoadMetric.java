@@ -0,0 +1,208 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.load.metric.impl;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+
+import org.jboss.modcluster.ModClusterLogger;
+import org.jboss.modcluster.container.Engine;
+import org.jboss.modcluster.load.metric.LoadMetric;
+
+/**
+ * {@link LoadMetric} implementation that returns the Linux pressure stall information (PSI), i.e. the share of the last 10
+ * seconds during which some (or all) tasks were stalled waiting for CPU, memory or I/O. Pressure is read for the cgroup of
+ * this process, as listed in /proc/self/cgroup, if it has its own in the unified (v2) hierarchy, otherwise for the whole
+ * system. The pressure of each resource is weighted, and a resource
+ * with no weight is ignored. Disables itself on systems without PSI.
+ */
+public class PressureLoadMetric extends AbstractLoadMetric {
+    public static final Path DEFAULT_PRESSURE = Paths.get("/proc/pressure");
+
+    /**
+     * Indicates whether pressure is measured while some or all non-idle tasks are stalled.
+     */
+    public enum Type {
+        SOME, FULL;
+    }
+
+    private final Path pressure;
+    private final Path root;
+    private final Path membership;
+    private volatile Type type = Type.SOME;
+    private volatile double cpuWeight = 1;
+    private volatile double memoryWeight = 1;
+    private volatile double ioWeight = 1;
+
+    public PressureLoadMetric() {
+        this(DEFAULT_PRESSURE, Cgroup.DEFAULT_ROOT, Cgroup.DEFAULT_MEMBERSHIP);
+    }
+
+    /**
+     * Creates a new pressure load metric.
+     *
+     * @param pressure the directory of the system wide pressure files
+     * @param root the mount point of the cgroup hierarchy, containing the pressure files of each cgroup in its v2 layout
+     * @param membership the cgroup membership file of this process, i.e. /proc/self/cgroup
+     */
+    public PressureLoadMetric(Path pressure, Path root, Path membership) {
+        this.pressure = pressure;
+        this.root = root;
+        this.membership = membership;
+    }
+
+    public String getType() {
+        return this.type.name().toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Sets which pressure to report.
+     *
+     * @param type "some" or "full"
+     */
+    public void setType(String type) {
+        this.type = Type.valueOf(type.toUpperCase(Locale.ENGLISH));
+    }
+
+    public double getCpuWeight() {
+        return this.cpuWeight;
+    }
+
+    /**
+     * Sets the factor by which cpu pressure is multiplied.
+     *
+     * @param weight a non-negative number, where 0 ignores cpu pressure
+     */
+    public void setCpuWeight(double weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException(String.valueOf(weight));
+        }
+        this.cpuWeight = weight;
+    }
+
+    public double getMemoryWeight() {
+        return this.memoryWeight;
+    }
+
+    /**
+     * Sets the factor by which memory pressure is multiplied.
+     *
+     * @param weight a non-negative number, where 0 ignores memory pressure
+     */
+    public void setMemoryWeight(double weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException(String.valueOf(weight));
+        }
+        this.memoryWeight = weight;
+    }
+
+    public double getIoWeight() {
+        return this.ioWeight;
+    }
+
+    /**
+     * Sets the factor by which I/O pressure is multiplied.
+     *
+     * @param weight a non-negative number, where 0 ignores I/O pressure
+     */
+    public void setIoWeight(double weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException(String.valueOf(weight));
+        }
+        this.ioWeight = weight;
+    }
+
+    @Override
+    public double getLoad(Engine engine) throws Exception {
+        // The pressure of the root cgroup is that of the whole system
+        Path directory = null;
+        if (Cgroup.isUnified(this.root)) {
+            Path cgroup = Cgroup.findCgroup(this.root, this.membership, null);
+            if ((cgroup != null) && Files.exists(cgroup.resolve("cpu.pressure"))) {
+                directory = cgroup;
+            }
+        }
+
+        double[] weights = new double[] { this.cpuWeight, this.memoryWeight, this.ioWeight };
+        String[] resources = new String[] { "cpu", "memory", "io" };
+
+        double totalWeight = 0;
+        double totalPressure = 0;
+        boolean supported = false;
+
+        for (int i = 0; i < resources.length; ++i) {
+            Path file = (directory != null) ? directory.resolve(resources[i] + ".pressure") : this.pressure.resolve(resources[i]);
+            double pressure = this.readPressure(file);
+            if (pressure >= 0) {
+                supported = true;
+                if (weights[i] > 0) {
+                    totalWeight += weights[i];
+                    totalPressure += pressure * weights[i];
+                }
+            }
+        }
+
+        if (!supported) {
+            ModClusterLogger.LOGGER.notSupportedOnSystem(this.getClass().getSimpleName());
+            this.setWeight(0);
+            return 0;
+        }
+
+        // avg10 is a percentage
+        return (totalWeight > 0) ? totalPressure / totalWeight / 100 : 0;
+    }
+
+    /**
+     * Returns the avg10 value of the line of the configured type, e.g. "some avg10=1.53 avg60=0.87 avg300=0.73 total=...".
+     *
+     * @return a percentage, or -1 if the file does not exist, cannot be read, e.g. if PSI is disabled via psi=0, or has no
+     *         such line, e.g. "full" for cpu on older kernels
+     */
+    private double readPressure(Path file) {
+        if (!Files.exists(file)) {
+            return -1;
+        }
+        List<String> lines;
+        try {
+            // With psi=0 the files exist, but reading them fails with EOPNOTSUPP
+            lines = Files.readAllLines(file, StandardCharsets.US_ASCII);
+        } catch (IOException e) {
+            return -1;
+        }
+        String prefix = this.getType() + " ";
+        for (String line : lines) {
+            if (line.startsWith(prefix)) {
+                for (String field : line.substring(prefix.length()).trim().split("\\s+")) {
+                    if (field.startsWith("avg10=")) {
+                        return Double.parseDouble(field.substring("avg10=".length()));
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.load.metric.impl;
+
+import java.io.Closeable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import net.jcip.annotations.GuardedBy;
+
+import org.jboss.modcluster.container.Engine;
+import org.jboss.modcluster.load.metric.LoadMetric;
+
+/**
+ * {@link LoadMetric} decorator that samples the load of another metric at its own interval on a dedicated thread, so that
+ * {@link #getLoad(Engine)} returns the latest sample right away, however slow the other metric is to compute.
+ * The first load of an engine is sampled by the calling thread, after which sampling continues in the background until
+ * {@link #close() closed}. A failure to sample the load is rethrown by {@link #getLoad(Engine)} until the next sample.
+ * <p>
+ * The load of a deterministic metric, e.g. {@link RequestCountLoadMetric}, then covers the sampling interval rather than the
+ * interval between two load balance factor computations, and its capacity should be set accordingly.
+ * </p>
+ */
+public class SampledLoadMetric implements LoadMetric, Closeable {
+    private final LoadMetric metric;
+    private final long interval;
+
+    // Latest sample per engine
+    private final ConcurrentMap<Engine, Sample> samples = new ConcurrentHashMap<Engine, Sample>();
+
+    @GuardedBy("this")
+    private ScheduledExecutorService executor;
+
+    /**
+     * Creates a new sampled load metric.
+     *
+     * @param metric the metric to sample
+     * @param interval the time between two samples
+     * @param unit the unit of the interval
+     */
+    public SampledLoadMetric(LoadMetric metric, long interval, TimeUnit unit) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Sampling interval must be positive");
+        }
+        this.metric = metric;
+        this.interval = unit.toMillis(interval);
+    }
+
+    @Override
+    public double getLoad(Engine engine) throws Exception {
+        Sample sample = this.samples.get(engine);
+
+        if (sample == null) {
+            sample = new Sample(this.metric, engine);
+            // Insert and schedule atomically with respect to close()
+            synchronized (this) {
+                Sample existing = this.samples.putIfAbsent(engine, sample);
+                if (existing != null) {
+                    sample = existing;
+                } else {
+                    this.schedule(engine);
+                }
+            }
+        }
+
+        return sample.getLoad();
+    }
+
+    @GuardedBy("this")
+    private void schedule(final Engine engine) {
+        if (this.executor == null) {
+            final String name = "mod_cluster " + this.metric.getClass().getSimpleName();
+            this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable task) {
+                    Thread thread = new Thread(task, name);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        final ScheduledExecutorService executor = this.executor;
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                Sample sample = new Sample(SampledLoadMetric.this.metric, engine);
+                synchronized (SampledLoadMetric.this) {
+                    // Discard the sample if closed while sampling, otherwise it would be served forever
+                    if (SampledLoadMetric.this.executor == executor) {
+                        SampledLoadMetric.this.samples.put(engine, sample);
+                    }
+                }
+            }
+        }, this.interval, this.interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops sampling, and forgets all samples. Sampling starts over on the next call to {@link #getLoad(Engine)}.
+     */
+    @Override
+    public synchronized void close() {
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+            this.executor = null;
+        }
+        this.samples.clear();
+    }
+
+    @Override
+    public int getWeight() {
+        return this.metric.getWeight();
+    }
+
+    @Override
+    public void setWeight(int weight) {
+        this.metric.setWeight(weight);
+    }
+
+    @Override
+    public double getCapacity() {
+        return this.metric.getCapacity();
+    }
+
+    @Override
+    public void setCapacity(double capacity) {
+        this.metric.setCapacity(capacity);
+    }
+
+    /**
+     * Immutable outcome of sampling the load of a metric.
+     */
+    private static class Sample {
+        private final double load;
+        private final Exception failure;
+
+        Sample(LoadMetric metric, Engine engine) {
+            double load = 0;
+            Exception failure = null;
+            try {
+                load = metric.getLoad(engine);
+            } catch (Exception e) {
+                failure = e;
+            }
+            this.load = load;
+            this.failure = failure;
+        }
+
+        double getLoad() throws Exception {
+            if (this.failure != null) {
+                throw this.failure;
+            }
+            return this.load;
+        }
+    }
+}
@@ -21,6 +21,7 @@
  */
 package org.jboss.modcluster.mcmp;
 
+import java.util.Collection;
 import java.util.Set;
 
 import org.jboss.modcluster.config.BalancerConfiguration;
@@ -42,6 +43,19 @@ public interface MCMPRequestFactory {
      */
     MCMPRequest createConfigRequest(Engine engine, NodeConfiguration nodeConfig, BalancerConfiguration balancerConfig);
 
+    /**
+     * Creates a CONFIG MCMP request for the specified engine that also registers the specified contexts, such that they can
+     * all be enabled by a single ENABLE-APP * request. The contexts must belong to the same host and their paths must not
+     * contain a comma.
+     *
+     * @param engine the servlet engine to be configured
+     * @param nodeConfig the node configuration
+     * @param balancerConfig the balancer configuration
+     * @param contexts the web application contexts of a single host
+     * @return an MCMP request
+     */
+    MCMPRequest createConfigRequest(Engine engine, NodeConfiguration nodeConfig, BalancerConfiguration balancerConfig, Collection<Context> contexts);
+
     /**
      * Creates an ENABLE-APP MCMP request for the specified context.
      * 
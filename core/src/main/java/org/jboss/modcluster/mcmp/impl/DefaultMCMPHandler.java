@@ -35,12 +35,10 @@ import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
-import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -396,6 +394,8 @@ public class DefaultMCMPHandler implements MCMPHandler {
                             Map<String, Set<ResetRequestSource.VirtualHost>> parsedResponse = this.responseParser
                                     .parseInfoResponse(response);
 
+                            proxy.getShadow().reset(parsedResponse);
+
                             List<MCMPRequest> requests = this.resetRequestSource.getResetRequests(parsedResponse);
 
                             log.trace(requests);
@@ -529,14 +529,6 @@ public class DefaultMCMPHandler implements MCMPHandler {
         return proxy.getConnectionReader().readLine();
     }
 
-    private void appendParameter(Appendable appender, String name, String value, boolean more) throws IOException {
-        appender.append(URLEncoder.encode(name, "UTF-8")).append('=').append(URLEncoder.encode(value, "UTF-8"));
-
-        if (more) {
-            appender.append('&');
-        }
-    }
-
     private String sendRequest(MCMPRequest request, Proxy proxy) {
         // If there was an error, do nothing until the next periodic event, where the whole configuration
         // will be refreshed
@@ -547,28 +539,9 @@ public class DefaultMCMPHandler implements MCMPHandler {
 
         MCMPRequestType requestType = request.getRequestType();
         boolean wildcard = request.isWildcard();
-        String jvmRoute = request.getJvmRoute();
-        Map<String, String> parameters = request.getParameters();
-
-        StringBuilder bodyBuilder = new StringBuilder();
 
         // First, encode the POST body
-        try {
-            if (jvmRoute != null) {
-                this.appendParameter(bodyBuilder, "JVMRoute", jvmRoute, !parameters.isEmpty());
-            }
-
-            Iterator<Map.Entry<String, String>> entries = parameters.entrySet().iterator();
-
-            while (entries.hasNext()) {
-                Map.Entry<String, String> entry = entries.next();
-
-                this.appendParameter(bodyBuilder, entry.getKey(), entry.getValue(), entries.hasNext());
-            }
-        } catch (IOException e) {
-            // Error encoding URL, should not happen
-            throw new IllegalArgumentException(e);
-        }
+        String body = (request instanceof DefaultMCMPRequest) ? ((DefaultMCMPRequest) request).getBody() : DefaultMCMPRequest.encode(request);
 
         // Then, connect to the proxy
         // Generate and write request
@@ -594,10 +567,15 @@ public class DefaultMCMPHandler implements MCMPHandler {
         headBuilder.append("Host: ");
 
         String head = headBuilder.toString();
-        String body = bodyBuilder.toString();
 
         // Require exclusive access to proxy socket
         synchronized (proxy) {
+            // Skip commands that would not change what the proxy already knows about us
+            if (proxy.getShadow().isRedundant(request)) {
+                log.tracef("Skipping redundant %s request to %s", requestType, proxy);
+                return null;
+            }
+
             try {
                 String line = null;
                 String proxyhead = head + proxy.getSocketAddress().getHostName() + ":" + proxy.getSocketAddress().getPort();
@@ -670,6 +648,8 @@ public class DefaultMCMPHandler implements MCMPHandler {
                         // later exception happens
                         proxy.setEstablished(true);
                     }
+
+                    proxy.getShadow().update(request);
                 } else {
                     if ("SYNTAX".equals(errorType)) {
                         // Syntax error means the protocol is incorrect, which cannot be automatically fixed
@@ -768,6 +748,7 @@ public class DefaultMCMPHandler implements MCMPHandler {
         private transient final SocketFactory socketFactory;
 
         private transient volatile boolean ioExceptionLogged = false;
+        private transient volatile ProxyShadow shadow = new ProxyShadow();
         private transient volatile InetAddress localAddress = null;
 
         @GuardedBy("Proxy.this")
@@ -833,6 +814,21 @@ public class DefaultMCMPHandler implements MCMPHandler {
 
         void setState(State state) {
             this.state = state;
+
+            // Whatever the proxy knew about us can no longer be trusted
+            if (state != State.OK) {
+                this.getShadow().invalidate();
+            }
+        }
+
+        ProxyShadow getShadow() {
+            ProxyShadow shadow = this.shadow;
+            if (shadow == null) {
+                // Transient field is lost during deserialization
+                shadow = new ProxyShadow();
+                this.shadow = shadow;
+            }
+            return shadow;
         }
 
         void setEstablished(boolean established) {
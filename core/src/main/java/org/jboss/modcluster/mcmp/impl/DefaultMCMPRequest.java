@@ -21,7 +21,10 @@
  */
 package org.jboss.modcluster.mcmp.impl;
 
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.Map;
 
 import net.jcip.annotations.Immutable;
@@ -44,6 +47,8 @@ public class DefaultMCMPRequest implements MCMPRequest {
     private final boolean wildcard;
     private final Map<String, String> parameters;
     private final String jvmRoute;
+    // URL-encoded POST body, computed on first use
+    private transient volatile String body;
 
     /**
      * Create a new ModClusterRequest.
@@ -75,6 +80,55 @@ public class DefaultMCMPRequest implements MCMPRequest {
         return this.parameters;
     }
 
+    /**
+     * Returns the URL-encoded POST body of this request. The body is encoded once and reused for every subsequent send.
+     */
+    String getBody() {
+        String body = this.body;
+        if (body == null) {
+            body = encode(this);
+            this.body = body;
+        }
+        return body;
+    }
+
+    /**
+     * URL-encodes the jvmRoute and parameters of the specified request into a POST body.
+     */
+    static String encode(MCMPRequest request) {
+        String jvmRoute = request.getJvmRoute();
+        Map<String, String> parameters = request.getParameters();
+
+        StringBuilder builder = new StringBuilder();
+
+        try {
+            if (jvmRoute != null) {
+                appendParameter(builder, "JVMRoute", jvmRoute, !parameters.isEmpty());
+            }
+
+            Iterator<Map.Entry<String, String>> entries = parameters.entrySet().iterator();
+
+            while (entries.hasNext()) {
+                Map.Entry<String, String> entry = entries.next();
+
+                appendParameter(builder, entry.getKey(), entry.getValue(), entries.hasNext());
+            }
+        } catch (UnsupportedEncodingException e) {
+            // Error encoding URL, should not happen
+            throw new IllegalArgumentException(e);
+        }
+
+        return builder.toString();
+    }
+
+    private static void appendParameter(StringBuilder builder, String name, String value, boolean more) throws UnsupportedEncodingException {
+        builder.append(URLEncoder.encode(name, "UTF-8")).append('=').append(URLEncoder.encode(value, "UTF-8"));
+
+        if (more) {
+            builder.append('&');
+        }
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder(getClass().getName());
@@ -23,12 +23,17 @@ package org.jboss.modcluster.mcmp.impl;
 
 import java.net.Inet6Address;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.jboss.modcluster.container.Connector;
 import org.jboss.modcluster.container.Context;
@@ -51,9 +56,38 @@ public class DefaultMCMPRequestFactory implements MCMPRequestFactory {
             Collections.<String, String> emptyMap());
     private final MCMPRequest dumpRequest = new DefaultMCMPRequest(MCMPRequestType.DUMP, true, null,
             Collections.<String, String> emptyMap());
+    // Immutable context requests, keyed by engine name, host name and context path
+    private final ConcurrentMap<ContextKey, ContextRequests> contextRequests = new ConcurrentHashMap<ContextKey, ContextRequests>();
 
     @Override
     public MCMPRequest createConfigRequest(Engine engine, NodeConfiguration nodeConfig, BalancerConfiguration balancerConfig) {
+        return new DefaultMCMPRequest(MCMPRequestType.CONFIG, false, engine.getJvmRoute(), createConfigParameters(engine, nodeConfig, balancerConfig));
+    }
+
+    @Override
+    public MCMPRequest createConfigRequest(Engine engine, NodeConfiguration nodeConfig, BalancerConfiguration balancerConfig, Collection<Context> contexts) {
+        Map<String, String> parameters = createConfigParameters(engine, nodeConfig, balancerConfig);
+
+        Iterator<Context> iterator = contexts.iterator();
+        if (iterator.hasNext()) {
+            Context context = iterator.next();
+            StringBuilder paths = new StringBuilder(getPath(context));
+            while (iterator.hasNext()) {
+                paths.append(',').append(getPath(iterator.next()));
+            }
+            parameters.put("Alias", join(context.getHost().getAliases(), ','));
+            parameters.put("Context", paths.toString());
+        }
+
+        return new DefaultMCMPRequest(MCMPRequestType.CONFIG, false, engine.getJvmRoute(), parameters);
+    }
+
+    private static String getPath(Context context) {
+        String path = context.getPath();
+        return (path.length() == 0) ? "/" : path;
+    }
+
+    private static Map<String, String> createConfigParameters(Engine engine, NodeConfiguration nodeConfig, BalancerConfiguration balancerConfig) {
         Connector connector = engine.getProxyConnector();
         Map<String, String> parameters = new TreeMap<String, String>();
 
@@ -147,7 +181,7 @@ public class DefaultMCMPRequestFactory implements MCMPRequestFactory {
             parameters.put("Maxattempts", "" + maxAttempts);
         }
 
-        return new DefaultMCMPRequest(MCMPRequestType.CONFIG, false, engine.getJvmRoute(), parameters);
+        return parameters;
     }
 
     @Override
@@ -177,7 +211,11 @@ public class DefaultMCMPRequestFactory implements MCMPRequestFactory {
 
     @Override
     public MCMPRequest createRemoveRequest(Context context) {
-        return this.createRequest(MCMPRequestType.REMOVE_APP, context);
+        MCMPRequest request = this.createRequest(MCMPRequestType.REMOVE_APP, context);
+        // Context is going away, so its cached requests are no longer needed
+        Host host = context.getHost();
+        this.contextRequests.remove(new ContextKey(host.getEngine().getName(), host.getName(), context.getPath()));
+        return request;
     }
 
     @Override
@@ -228,8 +266,19 @@ public class DefaultMCMPRequestFactory implements MCMPRequestFactory {
 
     private MCMPRequest createRequest(MCMPRequestType type, Context context) {
         Host host = context.getHost();
-
-        return this.createContextRequest(type, host.getEngine().getJvmRoute(), host.getAliases(), context.getPath());
+        Engine engine = host.getEngine();
+        String jvmRoute = engine.getJvmRoute();
+        Set<String> aliases = host.getAliases();
+        String path = context.getPath();
+
+        ContextKey key = new ContextKey(engine.getName(), host.getName(), path);
+        ContextRequests requests = this.contextRequests.get(key);
+        // Rebuild if the jvmRoute or host aliases changed since these requests were created
+        if ((requests == null) || !requests.matches(jvmRoute, aliases)) {
+            requests = new ContextRequests(jvmRoute, aliases, createContextParameters(aliases, path));
+            this.contextRequests.put(key, requests);
+        }
+        return requests.getRequest(type);
     }
 
     @Override
@@ -238,12 +287,16 @@ public class DefaultMCMPRequestFactory implements MCMPRequestFactory {
     }
 
     private MCMPRequest createContextRequest(MCMPRequestType type, String jvmRoute, Set<String> aliases, String path) {
+        return new DefaultMCMPRequest(type, false, jvmRoute, createContextParameters(aliases, path));
+    }
+
+    private static Map<String, String> createContextParameters(Set<String> aliases, String path) {
         Map<String, String> parameters = new TreeMap<String, String>();
 
         parameters.put("Context", (path.length() == 0) ? "/" : path);
         parameters.put("Alias", join(aliases, ','));
 
-        return new DefaultMCMPRequest(type, false, jvmRoute, parameters);
+        return parameters;
     }
 
     private MCMPRequest createRequest(MCMPRequestType type, Engine engine) {
@@ -270,4 +323,60 @@ public class DefaultMCMPRequestFactory implements MCMPRequestFactory {
         }
         return builder.toString();
     }
+
+    private static boolean equals(Object object1, Object object2) {
+        return (object1 != null) ? object1.equals(object2) : (object2 == null);
+    }
+
+    private static class ContextKey {
+        private final String engine;
+        private final String host;
+        private final String path;
+
+        ContextKey(String engine, String host, String path) {
+            this.engine = engine;
+            this.host = host;
+            this.path = path;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = (this.engine != null) ? this.engine.hashCode() : 0;
+            result = result * 31 + ((this.host != null) ? this.host.hashCode() : 0);
+            return result * 31 + this.path.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof ContextKey)) return false;
+            ContextKey key = (ContextKey) object;
+            return DefaultMCMPRequestFactory.equals(this.engine, key.engine) && DefaultMCMPRequestFactory.equals(this.host, key.host)
+                    && this.path.equals(key.path);
+        }
+    }
+
+    /**
+     * The context requests of a single context, sharing one set of parameters.
+     */
+    private static class ContextRequests {
+        private final String jvmRoute;
+        private final Set<String> aliases;
+        private final Map<MCMPRequestType, MCMPRequest> requests = new EnumMap<MCMPRequestType, MCMPRequest>(MCMPRequestType.class);
+
+        ContextRequests(String jvmRoute, Set<String> aliases, Map<String, String> parameters) {
+            this.jvmRoute = jvmRoute;
+            this.aliases = new HashSet<String>(aliases);
+            for (MCMPRequestType type : new MCMPRequestType[] { MCMPRequestType.ENABLE_APP, MCMPRequestType.DISABLE_APP, MCMPRequestType.STOP_APP, MCMPRequestType.REMOVE_APP }) {
+                this.requests.put(type, new DefaultMCMPRequest(type, false, jvmRoute, parameters));
+            }
+        }
+
+        boolean matches(String jvmRoute, Set<String> aliases) {
+            return DefaultMCMPRequestFactory.equals(this.jvmRoute, jvmRoute) && this.aliases.equals(aliases);
+        }
+
+        MCMPRequest getRequest(MCMPRequestType type) {
+            return this.requests.get(type);
+        }
+    }
 }
@@ -0,0 +1,246 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.mcmp.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import org.jboss.modcluster.mcmp.MCMPRequest;
+import org.jboss.modcluster.mcmp.MCMPRequestType;
+import org.jboss.modcluster.mcmp.ResetRequestSource;
+
+/**
+ * Tracks what a single proxy is known to believe about the nodes and contexts of this server, so that commands which would
+ * not change anything on that proxy can be skipped. The shadow is built from INFO responses and acknowledged requests, and
+ * only ever reports a request as redundant if the corresponding state is positively known; any error must
+ * {@link #invalidate() invalidate} it.
+ */
+@ThreadSafe
+public class ProxyShadow {
+    private static final String CONTEXT = "Context";
+    private static final String ALIAS = "Alias";
+    private static final String ROOT_CONTEXT = "/";
+
+    /**
+     * Acknowledged CONFIG parameters per jvm route, other than the contexts it registered; a null value indicates a node known
+     * only from an INFO response
+     */
+    @GuardedBy("this")
+    private final Map<String, Map<String, String>> nodes = new HashMap<String, Map<String, String>>();
+    @GuardedBy("this")
+    private final Map<ContextKey, ResetRequestSource.Status> contexts = new HashMap<ContextKey, ResetRequestSource.Status>();
+
+    /**
+     * Indicates whether the specified request would not change the state of the proxy.
+     *
+     * @param request an MCMP request
+     * @return true, if sending the request can safely be skipped, false otherwise
+     */
+    public synchronized boolean isRedundant(MCMPRequest request) {
+        String jvmRoute = request.getJvmRoute();
+
+        if (jvmRoute == null) return false;
+
+        switch (request.getRequestType()) {
+            case CONFIG: {
+                // A CONFIG request that registers contexts is always sent
+                if (request.getParameters().containsKey(CONTEXT)) return false;
+
+                Map<String, String> parameters = this.nodes.get(jvmRoute);
+                return (parameters != null) && parameters.equals(request.getParameters());
+            }
+            case ENABLE_APP: {
+                return !request.isWildcard() && (this.contexts.get(createContextKey(request)) == ResetRequestSource.Status.ENABLED);
+            }
+            case DISABLE_APP: {
+                return !request.isWildcard() && (this.contexts.get(createContextKey(request)) == ResetRequestSource.Status.DISABLED);
+            }
+            default: {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Records the effect of a request acknowledged by the proxy.
+     *
+     * @param request a successfully processed MCMP request
+     */
+    public synchronized void update(MCMPRequest request) {
+        MCMPRequestType type = request.getRequestType();
+        String jvmRoute = request.getJvmRoute();
+
+        if (jvmRoute == null) return;
+
+        if (type == MCMPRequestType.CONFIG) {
+            Map<String, String> parameters = new HashMap<String, String>(request.getParameters());
+            // Contexts listed by a CONFIG request are registered as stopped
+            String paths = parameters.remove(CONTEXT);
+            String aliases = parameters.remove(ALIAS);
+            this.nodes.put(jvmRoute, parameters);
+            if (paths != null) {
+                Set<String> aliasSet = (aliases != null) ? new HashSet<String>(Arrays.asList(aliases.split(","))) : Collections.<String>emptySet();
+                for (String path : paths.split(",")) {
+                    this.contexts.put(new ContextKey(jvmRoute, aliasSet, path), ResetRequestSource.Status.STOPPED);
+                }
+            }
+            return;
+        }
+
+        ResetRequestSource.Status status = null;
+
+        switch (type) {
+            case ENABLE_APP: {
+                status = ResetRequestSource.Status.ENABLED;
+                break;
+            }
+            case DISABLE_APP: {
+                status = ResetRequestSource.Status.DISABLED;
+                break;
+            }
+            case STOP_APP: {
+                status = ResetRequestSource.Status.STOPPED;
+                break;
+            }
+            case REMOVE_APP: {
+                break;
+            }
+            default: {
+                // Other requests do not alter the context state of the proxy
+                return;
+            }
+        }
+
+        if (request.isWildcard()) {
+            Iterator<Map.Entry<ContextKey, ResetRequestSource.Status>> entries = this.contexts.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<ContextKey, ResetRequestSource.Status> entry = entries.next();
+                if (entry.getKey().jvmRoute.equals(jvmRoute)) {
+                    if (status != null) {
+                        entry.setValue(status);
+                    } else {
+                        entries.remove();
+                    }
+                }
+            }
+            if (status == null) {
+                this.nodes.remove(jvmRoute);
+            }
+        } else {
+            ContextKey key = createContextKey(request);
+            if (status != null) {
+                this.contexts.put(key, status);
+            } else {
+                this.contexts.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Replaces the current shadow with the state reported by an INFO response.
+     *
+     * @param response a parsed INFO-RSP, expressed as a map of virtual hosts per jvmRoute
+     */
+    public synchronized void reset(Map<String, Set<ResetRequestSource.VirtualHost>> response) {
+        this.nodes.clear();
+        this.contexts.clear();
+
+        for (Map.Entry<String, Set<ResetRequestSource.VirtualHost>> entry : response.entrySet()) {
+            String jvmRoute = entry.getKey();
+
+            this.nodes.put(jvmRoute, null);
+
+            for (ResetRequestSource.VirtualHost host : entry.getValue()) {
+                Set<String> aliases = new HashSet<String>(host.getAliases());
+                for (Map.Entry<String, ResetRequestSource.Status> context : host.getContexts().entrySet()) {
+                    this.contexts.put(new ContextKey(jvmRoute, aliases, context.getKey()), context.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets everything known about the proxy, such that no subsequent request is considered redundant until the shadow is
+     * rebuilt.
+     */
+    public synchronized void invalidate() {
+        this.nodes.clear();
+        this.contexts.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder(getClass().getSimpleName());
+        sb.append("{nodes=").append(this.nodes.keySet());
+        sb.append(",contexts=").append(this.contexts);
+        sb.append("}");
+
+        return sb.toString();
+    }
+
+    private static ContextKey createContextKey(MCMPRequest request) {
+        Map<String, String> parameters = request.getParameters();
+        String aliases = parameters.get(ALIAS);
+        String path = parameters.get(CONTEXT);
+        Set<String> aliasSet = (aliases != null) ? new HashSet<String>(Arrays.asList(aliases.split(","))) : Collections.<String>emptySet();
+        return new ContextKey(request.getJvmRoute(), aliasSet, (path != null) ? path : ROOT_CONTEXT);
+    }
+
+    private static class ContextKey {
+        final String jvmRoute;
+        final Set<String> aliases;
+        final String path;
+
+        ContextKey(String jvmRoute, Set<String> aliases, String path) {
+            this.jvmRoute = jvmRoute;
+            this.aliases = aliases;
+            this.path = path;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof ContextKey)) return false;
+
+            ContextKey key = (ContextKey) object;
+
+            return this.jvmRoute.equals(key.jvmRoute) && this.path.equals(key.path) && this.aliases.equals(key.aliases);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * this.jvmRoute.hashCode() + this.path.hashCode()) + this.aliases.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return this.jvmRoute + ":" + this.aliases + this.path;
+        }
+    }
+}
@@ -0,0 +1,807 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletRequestListener;
+import javax.servlet.http.HttpSessionListener;
+
+import org.jboss.modcluster.advertise.AdvertiseListenerFactory;
+import org.jboss.modcluster.config.AdvertiseConfiguration;
+import org.jboss.modcluster.config.BalancerConfiguration;
+import org.jboss.modcluster.config.MCMPHandlerConfiguration;
+import org.jboss.modcluster.config.NodeConfiguration;
+import org.jboss.modcluster.config.ProxyConfiguration;
+import org.jboss.modcluster.config.impl.SessionDrainingStrategyEnum;
+import org.jboss.modcluster.container.Connector;
+import org.jboss.modcluster.container.Context;
+import org.jboss.modcluster.container.Engine;
+import org.jboss.modcluster.container.Host;
+import org.jboss.modcluster.container.Server;
+import org.jboss.modcluster.drain.ContextDrainProgress;
+import org.jboss.modcluster.drain.DrainProgress;
+import org.jboss.modcluster.drain.DrainState;
+import org.jboss.modcluster.load.LoadBalanceFactorProvider;
+import org.jboss.modcluster.load.LoadBalanceFactorProviderFactory;
+import org.jboss.modcluster.mcmp.MCMPHandler;
+import org.jboss.modcluster.mcmp.MCMPRequest;
+import org.jboss.modcluster.mcmp.MCMPRequestType;
+import org.jboss.modcluster.mcmp.MCMPResponseParser;
+import org.jboss.modcluster.mcmp.MCMPServerState;
+import org.jboss.modcluster.mcmp.ResetRequestSource;
+import org.jboss.modcluster.mcmp.impl.DefaultMCMPRequestFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class ModClusterServiceTestCase {
+    private final NodeConfiguration nodeConfig = mock(NodeConfiguration.class);
+    private final BalancerConfiguration balancerConfig = mock(BalancerConfiguration.class);
+    private final MCMPHandlerConfiguration mcmpConfig = mock(MCMPHandlerConfiguration.class);
+    private final AdvertiseConfiguration advertiseConfig = mock(AdvertiseConfiguration.class);
+    private final LoadBalanceFactorProviderFactory lbfProviderFactory = mock(LoadBalanceFactorProviderFactory.class);
+    private final LoadBalanceFactorProvider lbfProvider = mock(LoadBalanceFactorProvider.class);
+    private final MCMPResponseParser responseParser = mock(MCMPResponseParser.class);
+    private final ResetRequestSource resetRequestSource = mock(ResetRequestSource.class);
+    private final MCMPHandler mcmpHandler = mock(MCMPHandler.class);
+    private final AdvertiseListenerFactory listenerFactory = mock(AdvertiseListenerFactory.class);
+
+    private final Server server = mock(Server.class);
+    private final Engine engine = mock(Engine.class);
+    private final Host host = mock(Host.class);
+    private final Connector connector = mock(Connector.class);
+    private final MCMPServerState proxy = mock(MCMPServerState.class);
+
+    // Requests sent to the proxies, in order
+    private final List<MCMPRequest> requests = new CopyOnWriteArrayList<MCMPRequest>();
+
+    private ModClusterService service;
+
+    @Before
+    public void setUp() throws Exception {
+        when(this.mcmpConfig.getProxyConfigurations()).thenReturn(Collections.<ProxyConfiguration>emptySet());
+        when(this.mcmpConfig.getAdvertise()).thenReturn(Boolean.FALSE);
+        when(this.mcmpConfig.isAutoEnableContexts()).thenReturn(true);
+        when(this.mcmpConfig.getExcludedContextsPerHost()).thenReturn(Collections.<String, Set<String>>emptyMap());
+        when(this.mcmpConfig.getSessionDrainingStrategy()).thenReturn(SessionDrainingStrategyEnum.DEFAULT);
+        when(this.mcmpConfig.getStopContextTimeout()).thenReturn(10L);
+        when(this.mcmpConfig.getStopContextTimeoutUnit()).thenReturn(TimeUnit.SECONDS);
+        when(this.mcmpConfig.getLoadTaperTime()).thenReturn(0L);
+        when(this.mcmpConfig.getLoadTaperTimeUnit()).thenReturn(TimeUnit.SECONDS);
+        when(this.lbfProviderFactory.createLoadBalanceFactorProvider()).thenReturn(this.lbfProvider);
+        when(this.mcmpHandler.sendRequest(any(MCMPRequest.class))).thenAnswer(new Answer<Map<MCMPServerState, String>>() {
+            @Override
+            public Map<MCMPServerState, String> answer(InvocationOnMock invocation) {
+                ModClusterServiceTestCase.this.requests.add((MCMPRequest) invocation.getArguments()[0]);
+                return Collections.singletonMap(ModClusterServiceTestCase.this.proxy, "");
+            }
+        });
+
+        when(this.server.getEngines()).thenReturn(Collections.singleton(this.engine));
+        when(this.engine.getHosts()).thenReturn(Collections.singleton(this.host));
+        when(this.engine.getJvmRoute()).thenReturn("node1");
+        when(this.engine.getProxyConnector()).thenReturn(this.connector);
+        when(this.connector.getAddress()).thenReturn(InetAddress.getLoopbackAddress());
+        when(this.host.getName()).thenReturn("localhost");
+        when(this.host.getEngine()).thenReturn(this.engine);
+        when(this.host.getAliases()).thenReturn(Collections.singleton("localhost"));
+
+        this.service = new ModClusterService(this.nodeConfig, this.balancerConfig, this.mcmpConfig, this.advertiseConfig, this.lbfProviderFactory,
+                new DefaultMCMPRequestFactory(), this.responseParser, this.resetRequestSource, this.mcmpHandler, this.listenerFactory);
+        this.service.init(this.server);
+        this.service.connectionEstablished(InetAddress.getLoopbackAddress());
+    }
+
+    @Test
+    public void stopDrainsContextsConcurrently() throws Exception {
+        final AtomicInteger sessions = new AtomicInteger(2);
+        final Context busy = this.mockContext("/busy", sessions);
+        Context idle = this.mockContext("/idle", new AtomicInteger(0));
+        Context replicated = this.mockContext("/replicated", new AtomicInteger(5));
+        when(replicated.isDistributable()).thenReturn(true);
+        when(this.host.getContexts()).thenReturn(Arrays.asList(busy, idle, replicated));
+
+        Thread expirer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                sessions.set(0);
+                ArgumentCaptor<HttpSessionListener> listener = ArgumentCaptor.forClass(HttpSessionListener.class);
+                verify(busy).addSessionListener(listener.capture());
+                listener.getValue().sessionDestroyed(null);
+            }
+        };
+        expirer.start();
+
+        long start = System.currentTimeMillis();
+        assertTrue(this.service.stop(10, TimeUnit.SECONDS));
+        long duration = System.currentTimeMillis() - start;
+        expirer.join();
+
+        // Notification ends draining well before the once-a-second poll
+        assertTrue(String.valueOf(duration), duration < 1000);
+
+        // Contexts without sessions to drain are stopped right away, the rest as soon as they are drained
+        List<MCMPRequest> requests = this.requests;
+        assertEquals(5, requests.size());
+        assertRequest(requests.get(0), MCMPRequestType.DISABLE_APP, null);
+        assertRequest(requests.get(1), MCMPRequestType.STOP_APP, "/replicated");
+        assertRequest(requests.get(2), MCMPRequestType.STOP_APP, "/idle");
+        assertRequest(requests.get(3), MCMPRequestType.STOP_APP, "/busy");
+        assertRequest(requests.get(4), MCMPRequestType.STOP_APP, null);
+
+        verify(busy).removeSessionListener(any(HttpSessionListener.class));
+    }
+
+    @Test
+    public void stopTimeout() throws Exception {
+        Context busy = this.mockContext("/busy", new AtomicInteger(1));
+        Context idle = this.mockContext("/idle", new AtomicInteger(0));
+        when(this.host.getContexts()).thenReturn(Arrays.asList(busy, idle));
+
+        assertFalse(this.service.stop(100, TimeUnit.MILLISECONDS));
+
+        // Drained context was still stopped, the rest of the node was not
+        List<MCMPRequest> requests = this.requests;
+        assertEquals(2, requests.size());
+        assertRequest(requests.get(0), MCMPRequestType.DISABLE_APP, null);
+        assertRequest(requests.get(1), MCMPRequestType.STOP_APP, "/idle");
+
+        verify(busy).removeSessionListener(any(HttpSessionListener.class));
+    }
+
+    @Test
+    public void stopTapersLoadBeforeDisabling() throws Exception {
+        when(this.mcmpConfig.getLoadTaperTime()).thenReturn(2500L);
+        when(this.mcmpConfig.getLoadTaperTimeUnit()).thenReturn(TimeUnit.MILLISECONDS);
+        when(this.connector.isAvailable()).thenReturn(true);
+        when(this.lbfProvider.getLoadBalanceFactor(this.engine)).thenReturn(80);
+        Context idle = this.mockContext("/idle", new AtomicInteger(0));
+        when(this.host.getContexts()).thenReturn(Collections.singletonList(idle));
+
+        long start = System.currentTimeMillis();
+        assertTrue(this.service.stop(10, TimeUnit.SECONDS));
+        long duration = System.currentTimeMillis() - start;
+
+        assertTrue(String.valueOf(duration), duration >= 2500);
+
+        // Successive STATUS requests report a decreasing load, then the node is disabled and stopped
+        List<MCMPRequest> requests = this.requests;
+        assertEquals(7, requests.size());
+        int previous = Integer.MAX_VALUE;
+        for (MCMPRequest request : requests.subList(0, 4)) {
+            assertSame(MCMPRequestType.STATUS, request.getRequestType());
+            int load = Integer.parseInt(request.getParameters().get("Load"));
+            assertTrue(load + " < " + previous, load < previous);
+            assertTrue(load >= 1);
+            previous = load;
+        }
+        assertEquals(1, previous);
+        assertRequest(requests.get(4), MCMPRequestType.DISABLE_APP, null);
+        assertRequest(requests.get(5), MCMPRequestType.STOP_APP, "/idle");
+        assertRequest(requests.get(6), MCMPRequestType.STOP_APP, null);
+
+        // Periodic status keeps reporting the tapered load until re-enabled
+        this.requests.clear();
+        this.service.status(this.engine);
+        assertEquals("1", this.requests.get(0).getParameters().get("Load"));
+
+        this.service.enable();
+        this.requests.clear();
+        this.service.status(this.engine);
+        assertEquals("80", this.requests.get(0).getParameters().get("Load"));
+    }
+
+    @Test
+    public void stopTapersLoadOverHalfOfTimeout() throws Exception {
+        when(this.mcmpConfig.getLoadTaperTime()).thenReturn(10L);
+        when(this.mcmpConfig.getLoadTaperTimeUnit()).thenReturn(TimeUnit.SECONDS);
+        when(this.connector.isAvailable()).thenReturn(true);
+        when(this.lbfProvider.getLoadBalanceFactor(this.engine)).thenReturn(80);
+        Context idle = this.mockContext("/idle", new AtomicInteger(0));
+        when(this.host.getContexts()).thenReturn(Collections.singletonList(idle));
+
+        long start = System.currentTimeMillis();
+        assertTrue(this.service.stop(2, TimeUnit.SECONDS));
+        long duration = System.currentTimeMillis() - start;
+
+        assertTrue(String.valueOf(duration), duration >= 1000);
+        assertTrue(String.valueOf(duration), duration < 2000);
+
+        // The taper is shortened to half of the timeout, and still ends at the lowest load
+        List<MCMPRequest> requests = this.requests;
+        assertEquals(5, requests.size());
+        assertSame(MCMPRequestType.STATUS, requests.get(0).getRequestType());
+        assertEquals("80", requests.get(0).getParameters().get("Load"));
+        assertSame(MCMPRequestType.STATUS, requests.get(1).getRequestType());
+        assertEquals("1", requests.get(1).getParameters().get("Load"));
+        assertRequest(requests.get(2), MCMPRequestType.DISABLE_APP, null);
+        assertRequest(requests.get(3), MCMPRequestType.STOP_APP, "/idle");
+        assertRequest(requests.get(4), MCMPRequestType.STOP_APP, null);
+    }
+
+    @Test
+    public void startRegistersContextsInBulk() throws Exception {
+        when(this.mcmpConfig.isBulkContextRegistration()).thenReturn(true);
+        when(this.connector.getType()).thenReturn(Connector.Type.AJP);
+        when(this.engine.getSessionCookieName()).thenReturn(DefaultMCMPRequestFactory.DEFAULT_SESSION_COOKIE_NAME);
+        when(this.engine.getSessionParameterName()).thenReturn(DefaultMCMPRequestFactory.DEFAULT_SESSION_PARAMETER_NAME);
+        when(this.nodeConfig.getFlushPackets()).thenReturn(Boolean.FALSE);
+        when(this.balancerConfig.getStickySession()).thenReturn(Boolean.TRUE);
+        when(this.balancerConfig.getStickySessionRemove()).thenReturn(Boolean.FALSE);
+        when(this.balancerConfig.getStickySessionForce()).thenReturn(Boolean.TRUE);
+
+        Context root = this.mockContext("", new AtomicInteger(0));
+        Context context = this.mockContext("/context", new AtomicInteger(0));
+        Context comma = this.mockContext("/a,b", new AtomicInteger(0));
+        Context failed = this.mockContext("/failed", new AtomicInteger(0));
+        when(failed.isStarted()).thenReturn(false);
+        when(this.host.getContexts()).thenReturn(Arrays.asList(root, context, comma, failed));
+
+        this.service.start(this.server);
+
+        // One CONFIG listing the started contexts, one ENABLE-APP *, and ENABLE-APP only for what could not be listed
+        List<MCMPRequest> requests = this.requests;
+        assertEquals(3, requests.size());
+        assertSame(MCMPRequestType.CONFIG, requests.get(0).getRequestType());
+        assertEquals("/,/context", requests.get(0).getParameters().get("Context"));
+        assertEquals("localhost", requests.get(0).getParameters().get("Alias"));
+        assertRequest(requests.get(1), MCMPRequestType.ENABLE_APP, null);
+        assertRequest(requests.get(2), MCMPRequestType.ENABLE_APP, "/a,b");
+    }
+
+    @Test
+    public void startRegistersContextsOneByOneForSeveralHosts() throws Exception {
+        when(this.mcmpConfig.isBulkContextRegistration()).thenReturn(true);
+        when(this.connector.getType()).thenReturn(Connector.Type.AJP);
+        when(this.engine.getSessionCookieName()).thenReturn(DefaultMCMPRequestFactory.DEFAULT_SESSION_COOKIE_NAME);
+        when(this.engine.getSessionParameterName()).thenReturn(DefaultMCMPRequestFactory.DEFAULT_SESSION_PARAMETER_NAME);
+        when(this.nodeConfig.getFlushPackets()).thenReturn(Boolean.FALSE);
+        when(this.balancerConfig.getStickySession()).thenReturn(Boolean.TRUE);
+        when(this.balancerConfig.getStickySessionRemove()).thenReturn(Boolean.FALSE);
+        when(this.balancerConfig.getStickySessionForce()).thenReturn(Boolean.TRUE);
+
+        Host other = mock(Host.class);
+        when(other.getName()).thenReturn("other");
+        when(other.getEngine()).thenReturn(this.engine);
+        when(other.getAliases()).thenReturn(Collections.singleton("other"));
+        when(other.getContexts()).thenReturn(Collections.<Context>emptyList());
+        when(this.engine.getHosts()).thenReturn(Arrays.asList(this.host, other));
+        Context context = this.mockContext("/context", new AtomicInteger(0));
+        when(this.host.getContexts()).thenReturn(Collections.singletonList(context));
+
+        this.service.start(this.server);
+
+        List<MCMPRequest> requests = this.requests;
+        assertEquals(2, requests.size());
+        assertSame(MCMPRequestType.CONFIG, requests.get(0).getRequestType());
+        assertNull(requests.get(0).getParameters().get("Context"));
+        assertRequest(requests.get(1), MCMPRequestType.ENABLE_APP, "/context");
+    }
+
+    @Test
+    public void statusShedsBusiestContextsUnderSustainedLoad() throws Exception {
+        when(this.mcmpConfig.getLoadSheddingThreshold()).thenReturn(10);
+        when(this.mcmpConfig.getLoadSheddingRecoveryThreshold()).thenReturn(50);
+        when(this.connector.isAvailable()).thenReturn(true);
+        Context a = this.mockContext("/a", new AtomicInteger(0));
+        Context b = this.mockContext("/b", new AtomicInteger(0));
+        Context c = this.mockContext("/c", new AtomicInteger(0));
+        when(this.host.getContexts()).thenReturn(Arrays.asList(a, b, c));
+
+        // Two requests in progress on /b
+        this.service.start(b);
+        ArgumentCaptor<ServletRequestListener> listener = ArgumentCaptor.forClass(ServletRequestListener.class);
+        verify(b).addRequestListener(listener.capture());
+        listener.getValue().requestInitialized(null);
+        listener.getValue().requestInitialized(null);
+        this.requests.clear();
+
+        // Saturation must be sustained
+        this.status(5, ModClusterService.LOAD_SHEDDING_INTERVALS - 1);
+        this.status(30, 1);
+        this.status(5, ModClusterService.LOAD_SHEDDING_INTERVALS - 1);
+        assertTrue(this.contextRequests().isEmpty());
+
+        this.status(5, 1);
+        List<MCMPRequest> requests = this.contextRequests();
+        assertEquals(1, requests.size());
+        assertRequest(requests.get(0), MCMPRequestType.DISABLE_APP, "/b");
+
+        this.status(5, ModClusterService.LOAD_SHEDDING_INTERVALS);
+        requests = this.contextRequests();
+        assertEquals(1, requests.size());
+        assertRequest(requests.get(0), MCMPRequestType.DISABLE_APP, "/a");
+
+        // The last enabled context is never disabled
+        this.status(5, ModClusterService.LOAD_SHEDDING_INTERVALS);
+        assertTrue(this.contextRequests().isEmpty());
+
+        // Between thresholds, nothing changes
+        this.status(30, ModClusterService.LOAD_SHEDDING_INTERVALS);
+        assertTrue(this.contextRequests().isEmpty());
+
+        // Once recovered, contexts are enabled again, most recently disabled first
+        this.status(60, ModClusterService.LOAD_SHEDDING_INTERVALS);
+        requests = this.contextRequests();
+        assertEquals(1, requests.size());
+        assertRequest(requests.get(0), MCMPRequestType.ENABLE_APP, "/a");
+
+        this.status(60, ModClusterService.LOAD_SHEDDING_INTERVALS);
+        requests = this.contextRequests();
+        assertEquals(1, requests.size());
+        assertRequest(requests.get(0), MCMPRequestType.ENABLE_APP, "/b");
+
+        this.status(60, ModClusterService.LOAD_SHEDDING_INTERVALS);
+        assertTrue(this.contextRequests().isEmpty());
+
+        // Nothing is shed from a node disabled on request
+        this.service.disable();
+        this.status(5, ModClusterService.LOAD_SHEDDING_INTERVALS);
+        requests = this.contextRequests();
+        assertEquals(1, requests.size());
+        assertRequest(requests.get(0), MCMPRequestType.DISABLE_APP, null);
+    }
+
+    @Test
+    public void statusShedsOnlySheddableContexts() throws Exception {
+        when(this.mcmpConfig.getLoadSheddingThreshold()).thenReturn(10);
+        when(this.mcmpConfig.getLoadSheddingRecoveryThreshold()).thenReturn(50);
+        when(this.mcmpConfig.getSheddableContextsPerHost()).thenReturn(Collections.<String, Set<String>>singletonMap("localhost", Collections.singleton("/reports")));
+        when(this.connector.isAvailable()).thenReturn(true);
+        Context critical = this.mockContext("/critical", new AtomicInteger(0));
+        Context reports = this.mockContext("/reports", new AtomicInteger(0));
+        when(this.host.getContexts()).thenReturn(Arrays.asList(critical, reports));
+
+        this.status(5, ModClusterService.LOAD_SHEDDING_INTERVALS * 2);
+
+        List<MCMPRequest> requests = this.contextRequests();
+        assertEquals(1, requests.size());
+        assertRequest(requests.get(0), MCMPRequestType.DISABLE_APP, "/reports");
+
+        // A stopped context is not enabled again
+        this.service.stop(reports);
+        this.requests.clear();
+        this.status(60, ModClusterService.LOAD_SHEDDING_INTERVALS);
+        assertTrue(this.contextRequests().isEmpty());
+    }
+
+    @Test
+    public void pushStatusOnSuddenLoadChange() throws Exception {
+        final AtomicInteger busy = new AtomicInteger(10);
+        when(this.mcmpConfig.getStatusPushDelta()).thenReturn(20);
+        when(this.mcmpConfig.getStatusPushMinInterval()).thenReturn(200L);
+        when(this.connector.isAvailable()).thenReturn(true);
+        when(this.connector.getMaxThreads()).thenReturn(100);
+        when(this.connector.getBusyThreads()).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) {
+                return busy.get();
+            }
+        });
+        when(this.engine.getConnectors()).thenReturn(Collections.singleton(this.connector));
+        when(this.lbfProvider.getLoadBalanceFactor(this.engine)).thenReturn(80);
+
+        // Nothing to push before the first status
+        this.service.pushStatus();
+        assertTrue(this.requests.isEmpty());
+
+        this.service.status(this.engine);
+        this.requests.clear();
+
+        // Small changes are left to the periodic status
+        busy.set(25);
+        this.service.pushStatus();
+        assertTrue(this.requests.isEmpty());
+
+        // Large changes are pushed, but not too soon after the last status
+        busy.set(60);
+        this.service.pushStatus();
+        assertTrue(this.requests.isEmpty());
+
+        Thread.sleep(250);
+        this.service.pushStatus();
+        assertEquals(1, this.requests.size());
+        assertSame(MCMPRequestType.STATUS, this.requests.get(0).getRequestType());
+        // 80, shifted by the change in busy threads (from 91 to 41 on the load balance factor scale)
+        assertEquals("30", this.requests.get(0).getParameters().get("Load"));
+
+        // Compared with the pushed status from now on
+        this.requests.clear();
+        Thread.sleep(250);
+        this.service.pushStatus();
+        assertTrue(this.requests.isEmpty());
+
+        busy.set(0);
+        this.service.pushStatus();
+        assertEquals(1, this.requests.size());
+        assertEquals("89", this.requests.get(0).getParameters().get("Load"));
+    }
+
+    @Test
+    public void reconfigureSendsConfigWithoutReconnecting() throws Exception {
+        when(this.connector.getType()).thenReturn(Connector.Type.AJP);
+        when(this.nodeConfig.getFlushPackets()).thenReturn(Boolean.FALSE);
+        when(this.balancerConfig.getStickySession()).thenReturn(Boolean.TRUE);
+        when(this.balancerConfig.getStickySessionRemove()).thenReturn(Boolean.FALSE);
+        when(this.balancerConfig.getStickySessionForce()).thenReturn(Boolean.TRUE);
+        when(this.engine.getSessionCookieName()).thenReturn(DefaultMCMPRequestFactory.DEFAULT_SESSION_COOKIE_NAME);
+        when(this.engine.getSessionParameterName()).thenReturn(DefaultMCMPRequestFactory.DEFAULT_SESSION_PARAMETER_NAME);
+        when(this.nodeConfig.getPing()).thenReturn(20);
+
+        this.service.reconfigure();
+
+        List<MCMPRequest> requests = this.requests;
+        assertEquals(1, requests.size());
+        assertSame(MCMPRequestType.CONFIG, requests.get(0).getRequestType());
+        assertEquals("node1", requests.get(0).getJvmRoute());
+        assertEquals("20", requests.get(0).getParameters().get("ping"));
+
+        verify(this.mcmpHandler, never()).markProxiesInError();
+        verify(this.mcmpHandler, never()).reset();
+    }
+
+    @Test
+    public void snapshotRestoresProxiesAndJvmRoute() throws Exception {
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 6666);
+        InetSocketAddress expired = new InetSocketAddress(InetAddress.getLoopbackAddress(), 6667);
+        InetSocketAddress configured = new InetSocketAddress(InetAddress.getLoopbackAddress(), 6668);
+        ProxyConfiguration configuration = mock(ProxyConfiguration.class);
+        when(configuration.getRemoteAddress()).thenReturn(configured);
+        File file = File.createTempFile("modcluster", ".snapshot");
+        try {
+            this.service.shutdown();
+
+            long now = System.currentTimeMillis();
+            Map<InetSocketAddress, Long> proxies = new LinkedHashMap<InetSocketAddress, Long>();
+            proxies.put(address, Long.valueOf(now));
+            proxies.put(expired, Long.valueOf(now - ModClusterService.SNAPSHOT_PROXY_EXPIRATION - 1));
+            proxies.put(configured, Long.valueOf(now));
+            new NodeSnapshot(proxies, Collections.singletonMap("Catalina", "node2")).write(file);
+
+            when(this.mcmpConfig.getSnapshotFile()).thenReturn(file.getPath());
+            when(this.mcmpConfig.getProxyConfigurations()).thenReturn(Collections.singleton(configuration));
+            Engine engine = mock(Engine.class);
+            when(engine.getName()).thenReturn("Catalina");
+            when(engine.getProxyConnector()).thenReturn(this.connector);
+            when(engine.getHosts()).thenReturn(Collections.<Host>emptySet());
+            when(this.server.getEngines()).thenReturn(Collections.singleton(engine));
+
+            this.service.init(this.server);
+
+            // Recently reachable proxies are contacted right away, unless expired or already configured
+            ArgumentCaptor<ProxyConfiguration> capturedProxy = ArgumentCaptor.forClass(ProxyConfiguration.class);
+            verify(this.mcmpHandler).addProxy(capturedProxy.capture());
+            assertEquals(address, capturedProxy.getValue().getRemoteAddress());
+            assertNull(capturedProxy.getValue().getLocalAddress());
+            verify(this.mcmpHandler).status();
+
+            // The node re-joins with the jvmRoute of its previous run
+            this.service.connectionEstablished(InetAddress.getLoopbackAddress());
+
+            verify(engine).setJvmRoute("node2");
+
+            // Reachable proxies and jvmRoutes are saved again on shutdown, but not unreachable or configured proxies
+            InetSocketAddress discovered = new InetSocketAddress(InetAddress.getLoopbackAddress(), 7777);
+            when(this.proxy.getSocketAddress()).thenReturn(discovered);
+            when(this.proxy.getState()).thenReturn(MCMPServerState.State.OK);
+            MCMPServerState unreachable = mock(MCMPServerState.class);
+            when(unreachable.getSocketAddress()).thenReturn(address);
+            when(unreachable.getState()).thenReturn(MCMPServerState.State.ERROR);
+            MCMPServerState configuredState = mock(MCMPServerState.class);
+            when(configuredState.getSocketAddress()).thenReturn(configured);
+            when(configuredState.getState()).thenReturn(MCMPServerState.State.OK);
+            Set<MCMPServerState> states = new LinkedHashSet<MCMPServerState>(Arrays.asList(this.proxy, unreachable, configuredState));
+            when(this.mcmpHandler.getProxyStates()).thenReturn(states);
+            when(engine.getJvmRoute()).thenReturn("node2");
+
+            this.service.shutdown();
+
+            NodeSnapshot snapshot = NodeSnapshot.read(file);
+
+            assertEquals(Collections.singleton(discovered), snapshot.getProxies().keySet());
+            assertTrue(snapshot.getProxies().get(discovered).longValue() >= now);
+            assertEquals(Collections.singletonMap("Catalina", "node2"), snapshot.getJvmRoutes());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void initConnectsEagerly() throws Exception {
+        InetSocketAddress configured = new InetSocketAddress(InetAddress.getLoopbackAddress(), 6668);
+        ProxyConfiguration configuration = mock(ProxyConfiguration.class);
+        when(configuration.getRemoteAddress()).thenReturn(configured);
+        File file = File.createTempFile("modcluster", ".snapshot");
+        try {
+            // Configured proxies are contacted right away, without a snapshot
+            this.service.shutdown();
+            when(this.mcmpConfig.getProxyConfigurations()).thenReturn(Collections.singleton(configuration));
+
+            this.service.init(this.server);
+
+            verify(this.mcmpHandler).status();
+
+            // ... and with a snapshot that restores no additional proxy
+            this.service.shutdown();
+            new NodeSnapshot(Collections.singletonMap(configured, Long.valueOf(System.currentTimeMillis())), Collections.<String, String>emptyMap()).write(file);
+            when(this.mcmpConfig.getSnapshotFile()).thenReturn(file.getPath());
+
+            this.service.init(this.server);
+
+            verify(this.mcmpHandler, never()).addProxy(any(ProxyConfiguration.class));
+            verify(this.mcmpHandler, times(2)).status();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void drainReportsProgress() throws Exception {
+        AtomicInteger sessions = new AtomicInteger(2);
+        Context busy = this.mockContext("/busy", sessions);
+        Context idle = this.mockContext("/idle", new AtomicInteger(0));
+        when(this.host.getContexts()).thenReturn(Arrays.asList(busy, idle));
+
+        assertNull(this.service.getDrainProgress());
+
+        DrainProgress progress = this.service.drain(10, TimeUnit.SECONDS);
+
+        assertSame(DrainState.DRAINING, progress.getState());
+        assertFalse(progress.isStopAcknowledged());
+        assertEquals(2, progress.getContexts().size());
+        ContextDrainProgress context = progress.getContexts().get(0);
+        assertEquals("localhost", context.getHost());
+        assertEquals("/busy", context.getPath());
+        assertEquals(2, context.getActiveSessions());
+        assertFalse(context.isStopAcknowledged());
+
+        // A drain in progress is not started again
+        assertFalse(this.service.awaitDrain(100, TimeUnit.MILLISECONDS));
+        this.service.drain(10, TimeUnit.SECONDS);
+
+        sessions.set(0);
+        ArgumentCaptor<HttpSessionListener> listener = ArgumentCaptor.forClass(HttpSessionListener.class);
+        verify(busy).addSessionListener(listener.capture());
+        listener.getValue().sessionDestroyed(null);
+
+        assertTrue(this.service.awaitDrain(5, TimeUnit.SECONDS));
+
+        progress = this.service.getDrainProgress();
+        assertSame(DrainState.DRAINED, progress.getState());
+        assertTrue(progress.isStopAcknowledged());
+        assertEquals(0, progress.getContexts().get(0).getActiveSessions());
+
+        // Each context was disabled and stopped only once
+        assertEquals(4, this.requests.size());
+
+        // Re-enabling the node forgets the drain
+        this.service.enable();
+        assertNull(this.service.getDrainProgress());
+    }
+
+    @Test
+    public void stopContextDrainsRequestsOnIdle() throws Exception {
+        Context context = this.mockContext("/context", new AtomicInteger(0));
+        when(context.isDistributable()).thenReturn(true);
+
+        this.service.start(context);
+
+        ArgumentCaptor<ServletRequestListener> captor = ArgumentCaptor.forClass(ServletRequestListener.class);
+        verify(context).addRequestListener(captor.capture());
+        final ServletRequestListener listener = captor.getValue();
+
+        // One request in progress locally and according to the proxy, until it completes
+        listener.requestInitialized(null);
+        when(this.responseParser.parseStopAppResponse("")).thenReturn(1, 0);
+
+        final AtomicInteger requestsWhileBusy = new AtomicInteger(-1);
+        final AtomicLong completed = new AtomicLong();
+        Thread completer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(3 * ModClusterService.REQUEST_DRAIN_MIN_INTERVAL);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                requestsWhileBusy.set(ModClusterServiceTestCase.this.requests.size());
+                completed.set(System.currentTimeMillis());
+                listener.requestDestroyed(null);
+            }
+        };
+        this.requests.clear();
+        completer.start();
+
+        this.service.stop(context);
+        long stopped = System.currentTimeMillis();
+        completer.join();
+
+        // Proxies are not asked again while the request is in progress locally
+        assertEquals(2, requestsWhileBusy.get());
+        // Proxies are asked again as soon as the context is idle
+        long delay = stopped - completed.get();
+        assertTrue(String.valueOf(delay), delay < ModClusterService.REQUEST_DRAIN_POLL_INTERVAL / 2);
+        List<MCMPRequest> requests = this.requests;
+        assertEquals(3, requests.size());
+        assertRequest(requests.get(0), MCMPRequestType.DISABLE_APP, "/context");
+        assertRequest(requests.get(1), MCMPRequestType.STOP_APP, "/context");
+        assertRequest(requests.get(2), MCMPRequestType.STOP_APP, "/context");
+    }
+
+    @Test
+    public void stopContextPollsProxiesAtBoundedRate() throws Exception {
+        Context context = this.mockContext("/context", new AtomicInteger(0));
+        when(context.isDistributable()).thenReturn(true);
+
+        this.service.start(context);
+
+        ArgumentCaptor<ServletRequestListener> captor = ArgumentCaptor.forClass(ServletRequestListener.class);
+        verify(context).addRequestListener(captor.capture());
+        final ServletRequestListener listener = captor.getValue();
+
+        // One long request keeps the context busy, while short requests keep completing
+        listener.requestInitialized(null);
+        when(this.responseParser.parseStopAppResponse("")).thenReturn(1, 0);
+
+        final AtomicBoolean running = new AtomicBoolean(true);
+        Thread traffic = new Thread() {
+            @Override
+            public void run() {
+                while (running.get()) {
+                    listener.requestInitialized(null);
+                    listener.requestDestroyed(null);
+                }
+            }
+        };
+        this.requests.clear();
+        traffic.start();
+
+        try {
+            this.service.stop(context);
+        } finally {
+            running.set(false);
+            traffic.join();
+        }
+
+        // Completed requests do not trigger additional STOP-APP requests
+        assertEquals(3, this.requests.size());
+    }
+
+    @Test
+    public void stopContextPollsProxiesAtBoundedRateDuringSequentialRequests() throws Exception {
+        Context context = this.mockContext("/context", new AtomicInteger(0));
+        when(context.isDistributable()).thenReturn(true);
+
+        // A request that began before the listener was registered must not unbalance it
+        this.service.start(context);
+
+        ArgumentCaptor<ServletRequestListener> captor = ArgumentCaptor.forClass(ServletRequestListener.class);
+        verify(context).addRequestListener(captor.capture());
+        final ServletRequestListener listener = captor.getValue();
+
+        listener.requestDestroyed(null);
+
+        // Short requests complete one at a time, so the context keeps becoming idle
+        when(this.responseParser.parseStopAppResponse("")).thenReturn(1, 1, 0);
+
+        final AtomicBoolean running = new AtomicBoolean(true);
+        Thread traffic = new Thread() {
+            @Override
+            public void run() {
+                while (running.get()) {
+                    listener.requestInitialized(null);
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        return;
+                    } finally {
+                        listener.requestDestroyed(null);
+                    }
+                }
+            }
+        };
+        this.requests.clear();
+        traffic.start();
+
+        long start = System.currentTimeMillis();
+        try {
+            this.service.stop(context);
+        } finally {
+            running.set(false);
+            traffic.join();
+        }
+        long duration = System.currentTimeMillis() - start;
+
+        // STOP-APP requests remain a minimum interval apart, however many requests completed
+        assertEquals(4, this.requests.size());
+        assertTrue(String.valueOf(duration), duration >= 2 * ModClusterService.REQUEST_DRAIN_MIN_INTERVAL);
+    }
+
+    private void status(int lbf, int times) {
+        when(this.lbfProvider.getLoadBalanceFactor(this.engine)).thenReturn(lbf);
+        for (int i = 0; i < times; ++i) {
+            this.service.status(this.engine);
+        }
+    }
+
+    /**
+     * Returns and clears the requests sent so far, other than STATUS requests.
+     */
+    private List<MCMPRequest> contextRequests() {
+        List<MCMPRequest> requests = new ArrayList<MCMPRequest>();
+        for (MCMPRequest request : this.requests) {
+            if (request.getRequestType() != MCMPRequestType.STATUS) {
+                requests.add(request);
+            }
+        }
+        this.requests.clear();
+        return requests;
+    }
+
+    private Context mockContext(String path, final AtomicInteger sessions) {
+        Context context = mock(Context.class);
+        when(context.getHost()).thenReturn(this.host);
+        when(context.getPath()).thenReturn(path);
+        when(context.isStarted()).thenReturn(true);
+        when(context.getActiveSessionCount()).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) {
+                return sessions.get();
+            }
+        });
+        return context;
+    }
+
+    private static void assertRequest(MCMPRequest request, MCMPRequestType type, String path) {
+        assertSame(type, request.getRequestType());
+        assertEquals(path == null, request.isWildcard());
+        if (path != null) {
+            assertEquals(path, request.getParameters().get("Context"));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class NodeSnapshotTestCase {
+    @Test
+    public void writeRead() throws IOException {
+        InetSocketAddress ipv4 = new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 6666);
+        InetSocketAddress ipv6 = new InetSocketAddress(InetAddress.getByName("::1"), 7777);
+        Map<InetSocketAddress, Long> proxies = new LinkedHashMap<InetSocketAddress, Long>();
+        proxies.put(ipv4, Long.valueOf(1000L));
+        proxies.put(ipv6, Long.valueOf(2000L));
+        Map<String, String> jvmRoutes = new LinkedHashMap<String, String>();
+        jvmRoutes.put("Catalina", "node1");
+        jvmRoutes.put("Other Engine", "node2");
+
+        File file = File.createTempFile("modcluster", ".snapshot");
+        try {
+            new NodeSnapshot(proxies, jvmRoutes).write(file);
+
+            NodeSnapshot snapshot = NodeSnapshot.read(file);
+
+            assertNotNull(snapshot);
+            assertEquals(proxies, snapshot.getProxies());
+            assertEquals(jvmRoutes, snapshot.getJvmRoutes());
+
+            // Saving again replaces the previous snapshot
+            Map<InetSocketAddress, Long> reachable = Collections.singletonMap(ipv4, Long.valueOf(3000L));
+            new NodeSnapshot(reachable, Collections.<String, String>emptyMap()).write(file);
+
+            snapshot = NodeSnapshot.read(file);
+
+            assertEquals(reachable, snapshot.getProxies());
+            assertTrue(snapshot.getJvmRoutes().isEmpty());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void readWithoutReachableTime() throws IOException {
+        File file = File.createTempFile("modcluster", ".snapshot");
+        try {
+            try (OutputStream output = new FileOutputStream(file)) {
+                output.write("proxy.0=127.0.0.1:6666\n".getBytes("ISO-8859-1"));
+            }
+
+            NodeSnapshot snapshot = NodeSnapshot.read(file);
+
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 6666);
+            assertEquals(Collections.singletonMap(address, Long.valueOf(0L)), snapshot.getProxies());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void readMissing() throws IOException {
+        File file = File.createTempFile("modcluster", ".snapshot");
+        file.delete();
+
+        assertNull(NodeSnapshot.read(file));
+    }
+
+    @Test(expected = IOException.class)
+    public void readCorrupt() throws IOException {
+        File file = File.createTempFile("modcluster", ".snapshot");
+        try {
+            try (OutputStream output = new FileOutputStream(file)) {
+                output.write("proxy.0=127.0.0.1:port\n".getBytes("ISO-8859-1"));
+            }
+
+            NodeSnapshot.read(file);
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -22,6 +22,8 @@
 
 package org.jboss.modcluster.config.builder;
 
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Set;
@@ -34,6 +36,7 @@ import org.jboss.modcluster.config.ModClusterConfiguration;
 import org.jboss.modcluster.config.ProxyConfiguration;
 import org.jboss.modcluster.config.impl.SessionDrainingStrategyEnum;
 import org.jboss.modcluster.config.impl.UUIDJvmRouteFactory;
+import org.jboss.modcluster.load.WarmUpCurve;
 import org.jboss.modcluster.load.impl.SimpleLoadBalanceFactorProvider;
 import org.junit.Test;
 
@@ -78,6 +81,21 @@ public class ModClusterConfigurationBuilderTest {
                 .setAutoEnableContexts(false)
                 .setStopContextTimeout(1)
                 .setStopContextTimeoutUnit(TimeUnit.DAYS)
+                .setLoadTaperTime(30)
+                .setLoadTaperTimeUnit(TimeUnit.SECONDS)
+                .setWarmUpTime(2)
+                .setWarmUpTimeUnit(TimeUnit.MINUTES)
+                .setWarmUpRequests(10000)
+                .setWarmUpCurve(WarmUpCurve.EXPONENTIAL)
+                .setBulkContextRegistration(true)
+                .setDrainEndpointAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), 8090))
+                .setSnapshotFile("modcluster.snapshot")
+                .setLoadSheddingThreshold(10)
+                .setLoadSheddingRecoveryThreshold(60)
+                .setSheddableContextsPerHost(Collections.singletonMap("localhost", Collections.singleton("/reports")))
+                .setStatusPushDelta(20)
+                .setStatusPushSampleInterval(50)
+                .setStatusPushMinInterval(500)
                 .setJvmRouteFactory(new UUIDJvmRouteFactory())
                 .setSessionDrainingStrategy(SessionDrainingStrategyEnum.NEVER)
 
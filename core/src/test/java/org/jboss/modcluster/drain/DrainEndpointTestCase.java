@@ -0,0 +1,120 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.drain;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DrainEndpointTestCase {
+    private final Drainer drainer = mock(Drainer.class);
+    private final DrainEndpoint endpoint = new DrainEndpoint(this.drainer, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+    @Before
+    public void setUp() throws IOException {
+        this.endpoint.start();
+    }
+
+    @After
+    public void tearDown() {
+        this.endpoint.stop();
+    }
+
+    @Test
+    public void startDrain() throws Exception {
+        DrainProgress progress = new DrainProgress(DrainState.DRAINING, 5, Arrays.asList(new ContextDrainProgress("localhost", "/\"app\"", 3, 1, false)));
+        when(this.drainer.drain(30, TimeUnit.SECONDS)).thenReturn(progress);
+
+        HttpURLConnection connection = this.connect("?timeout=30");
+        connection.setRequestMethod("POST");
+
+        assertEquals(202, connection.getResponseCode());
+        assertEquals("{\"state\":\"DRAINING\",\"elapsed\":5,\"stopAcknowledged\":false,\"contexts\":[{\"host\":\"localhost\",\"context\":\"/\\\"app\\\"\",\"sessions\":3,\"requests\":1,\"stopAcknowledged\":false}]}", read(connection.getInputStream()));
+    }
+
+    @Test
+    public void notConnected() throws Exception {
+        HttpURLConnection connection = this.connect("");
+        connection.setRequestMethod("POST");
+
+        assertEquals(503, connection.getResponseCode());
+    }
+
+    @Test
+    public void waitForDrain() throws Exception {
+        DrainProgress progress = new DrainProgress(DrainState.DRAINED, 5, Arrays.asList(new ContextDrainProgress("localhost", "/app", 0, 0, true)));
+        when(this.drainer.getDrainProgress()).thenReturn(progress);
+
+        HttpURLConnection connection = this.connect("?wait=10");
+
+        assertEquals(200, connection.getResponseCode());
+        assertTrue(read(connection.getInputStream()).startsWith("{\"state\":\"DRAINED\",\"elapsed\":5,\"stopAcknowledged\":true,"));
+        verify(this.drainer).awaitDrain(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void notDraining() throws Exception {
+        assertEquals(404, this.connect("").getResponseCode());
+    }
+
+    @Test
+    public void invalidRequests() throws Exception {
+        assertEquals(400, this.connect("?wait=soon").getResponseCode());
+
+        HttpURLConnection connection = this.connect("");
+        connection.setRequestMethod("DELETE");
+        assertEquals(405, connection.getResponseCode());
+    }
+
+    private HttpURLConnection connect(String query) throws IOException {
+        InetSocketAddress address = this.endpoint.getAddress();
+        URL url = new URL("http", address.getAddress().getHostAddress(), address.getPort(), DrainEndpoint.PATH + query);
+        return (HttpURLConnection) url.openConnection();
+    }
+
+    private static String read(InputStream input) throws IOException {
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                output.write(buffer, 0, read);
+            }
+            return output.toString("UTF-8");
+        } finally {
+            input.close();
+        }
+    }
+}
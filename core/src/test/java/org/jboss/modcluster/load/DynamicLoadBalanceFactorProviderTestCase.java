@@ -0,0 +1,97 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.load;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Collections;
+
+import org.jboss.modcluster.container.Engine;
+import org.jboss.modcluster.load.impl.DynamicLoadBalanceFactorProvider;
+import org.jboss.modcluster.load.metric.LoadMetric;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DynamicLoadBalanceFactorProviderTestCase {
+    private final LoadMetric metric = mock(LoadMetric.class);
+    private final Engine engine = mock(Engine.class);
+
+    private DynamicLoadBalanceFactorProvider provider;
+
+    @Before
+    public void setUp() {
+        when(this.metric.getWeight()).thenReturn(1);
+        when(this.metric.getCapacity()).thenReturn(1d);
+
+        this.provider = new DynamicLoadBalanceFactorProvider(Collections.singleton(this.metric));
+    }
+
+    @Test
+    public void decayPerSample() throws Exception {
+        assertEquals(Double.valueOf(0), this.provider.getMetrics().values().iterator().next());
+
+        this.provide(0.5, 50);
+        // (0.2 + 0.5 / 2) / (1 + 1 / 2)
+        this.provide(0.2, 70);
+        assertEquals(Double.valueOf(0.2), this.provider.getMetrics().values().iterator().next());
+
+        // Only the current load counts without history
+        this.provider.setHistory(0);
+        this.provide(0.4, 60);
+
+        // Loads beyond the history are forgotten
+        this.provider.setHistory(1);
+        // (1.0 + 0.4 / 2) / (1 + 1 / 2)
+        this.provide(1.0, 20);
+        this.provide(0, 67);
+        this.provide(0, 100);
+
+        this.provider.setDecayFactor(1);
+        this.provide(0.6, 70);
+    }
+
+    @Test
+    public void decayOverTime() throws Exception {
+        this.provider.setHalfLife(1);
+
+        this.provide(1.0, 1);
+
+        // Computing more often does not decay the load any faster
+        for (int i = 0; i < 10; ++i) {
+            when(this.metric.getLoad(this.engine)).thenReturn(0d);
+            assertTrue(this.provider.getLoadBalanceFactor(this.engine) < 10);
+        }
+
+        Thread.sleep(1000);
+
+        when(this.metric.getLoad(this.engine)).thenReturn(0d);
+        int lbf = this.provider.getLoadBalanceFactor(this.engine);
+        // Half of the load remains after one half-life
+        assertTrue(String.valueOf(lbf), (lbf >= 45) && (lbf <= 60));
+    }
+
+    private void provide(double load, int expected) throws Exception {
+        when(this.metric.getLoad(this.engine)).thenReturn(load);
+        assertEquals(expected, this.provider.getLoadBalanceFactor(this.engine));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.load;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.modcluster.container.Connector;
+import org.jboss.modcluster.container.Engine;
+import org.jboss.modcluster.load.impl.WarmUpLoadBalanceFactorProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WarmUpLoadBalanceFactorProviderTestCase {
+    private final LoadBalanceFactorProvider provider = mock(LoadBalanceFactorProvider.class);
+    private final Engine engine = mock(Engine.class);
+    private final Connector connector = mock(Connector.class);
+
+    @Before
+    public void setUp() {
+        when(this.engine.getName()).thenReturn("engine");
+        when(this.engine.getConnectors()).thenReturn(Collections.singleton(this.connector));
+        when(this.provider.getLoadBalanceFactor(this.engine)).thenReturn(90);
+    }
+
+    @Test
+    public void linearRequestRamp() {
+        LoadBalanceFactorProvider warmUp = new WarmUpLoadBalanceFactorProvider(this.provider, WarmUpCurve.LINEAR, 0, TimeUnit.SECONDS, 100);
+
+        // Requests served before the warm-up started do not count
+        when(this.connector.getRequestCount()).thenReturn(1000L);
+        assertEquals(1, warmUp.getLoadBalanceFactor(this.engine));
+
+        when(this.connector.getRequestCount()).thenReturn(1050L);
+        assertEquals(50, warmUp.getLoadBalanceFactor(this.engine));
+
+        // Never reports more than the underlying provider
+        when(this.connector.getRequestCount()).thenReturn(1099L);
+        assertEquals(90, warmUp.getLoadBalanceFactor(this.engine));
+
+        when(this.connector.getRequestCount()).thenReturn(1100L);
+        assertEquals(90, warmUp.getLoadBalanceFactor(this.engine));
+
+        // Once warmed up, stays warmed up
+        when(this.provider.getLoadBalanceFactor(this.engine)).thenReturn(100);
+        assertEquals(100, warmUp.getLoadBalanceFactor(this.engine));
+    }
+
+    @Test
+    public void exponentialRequestRamp() {
+        LoadBalanceFactorProvider warmUp = new WarmUpLoadBalanceFactorProvider(this.provider, WarmUpCurve.EXPONENTIAL, 0, TimeUnit.SECONDS, 100);
+
+        when(this.connector.getRequestCount()).thenReturn(0L);
+        assertEquals(1, warmUp.getLoadBalanceFactor(this.engine));
+
+        when(this.connector.getRequestCount()).thenReturn(50L);
+        assertEquals(10, warmUp.getLoadBalanceFactor(this.engine));
+
+        when(this.connector.getRequestCount()).thenReturn(100L);
+        assertEquals(90, warmUp.getLoadBalanceFactor(this.engine));
+    }
+
+    @Test
+    public void restart() {
+        WarmUpLoadBalanceFactorProvider warmUp = new WarmUpLoadBalanceFactorProvider(this.provider, WarmUpCurve.LINEAR, 1, TimeUnit.HOURS, 100);
+
+        when(this.connector.getRequestCount()).thenReturn(0L);
+        assertEquals(1, warmUp.getLoadBalanceFactor(this.engine));
+
+        // Requests complete the warm-up before the time does
+        when(this.connector.getRequestCount()).thenReturn(100L);
+        assertEquals(90, warmUp.getLoadBalanceFactor(this.engine));
+
+        warmUp.restart();
+
+        assertEquals(1, warmUp.getLoadBalanceFactor(this.engine));
+    }
+
+    @Test
+    public void errorAndStandbyAreNotCapped() {
+        LoadBalanceFactorProvider warmUp = new WarmUpLoadBalanceFactorProvider(this.provider, WarmUpCurve.LINEAR, 1, TimeUnit.HOURS, 0);
+
+        when(this.provider.getLoadBalanceFactor(this.engine)).thenReturn(-1);
+        assertEquals(-1, warmUp.getLoadBalanceFactor(this.engine));
+
+        when(this.provider.getLoadBalanceFactor(this.engine)).thenReturn(0);
+        assertEquals(0, warmUp.getLoadBalanceFactor(this.engine));
+
+        when(this.provider.getLoadBalanceFactor(this.engine)).thenReturn(50);
+        assertEquals(1, warmUp.getLoadBalanceFactor(this.engine));
+    }
+}
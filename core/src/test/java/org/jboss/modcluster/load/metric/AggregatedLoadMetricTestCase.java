@@ -0,0 +1,134 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.load.metric;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.modcluster.container.Engine;
+import org.jboss.modcluster.load.metric.impl.AggregatedLoadMetric;
+import org.jboss.modcluster.load.metric.impl.AggregatedLoadMetric.Statistic;
+import org.junit.Test;
+
+public class AggregatedLoadMetricTestCase {
+    private final LoadMetric metric = mock(LoadMetric.class);
+    private final Engine engine = mock(Engine.class);
+
+    @Test
+    public void mean() throws Exception {
+        assertEquals(5.5, this.aggregate(Statistic.MEAN), 0.0);
+    }
+
+    @Test
+    public void p90() throws Exception {
+        assertEquals(9.0, this.aggregate(Statistic.P90), 0.0);
+    }
+
+    @Test
+    public void max() throws Exception {
+        assertEquals(10.0, this.aggregate(Statistic.MAX), 0.0);
+    }
+
+    @Test
+    public void getLoadBeforeFirstPoll() throws Exception {
+        when(this.metric.getLoad(this.engine)).thenReturn(3.0);
+
+        AggregatedLoadMetric aggregated = new AggregatedLoadMetric(this.metric, Statistic.MAX, 1, TimeUnit.HOURS, 10);
+        try {
+            assertEquals(3.0, aggregated.getLoad(this.engine), 0.0);
+        } finally {
+            aggregated.close();
+        }
+    }
+
+    /**
+     * Aggregates the values 1, 2, ..., 10 polled in the background.
+     */
+    private double aggregate(Statistic statistic) throws Exception {
+        PolledLoadMetric polled = new PolledLoadMetric(1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 8.0, 9.0, 10.0);
+
+        AggregatedLoadMetric aggregated = new AggregatedLoadMetric(polled, statistic, 50, TimeUnit.MILLISECONDS, 16);
+        try {
+            // Starts polling, nothing polled yet
+            assertEquals(0.0, aggregated.getLoad(this.engine), 0.0);
+
+            assertTrue(polled.drained.await(5, TimeUnit.SECONDS));
+
+            return aggregated.getLoad(this.engine);
+        } finally {
+            aggregated.close();
+        }
+    }
+
+    /**
+     * Returns the specified values when polled in the background, then blocks; returns 0 when called by the test itself.
+     */
+    private static class PolledLoadMetric implements LoadMetric {
+        final Thread caller = Thread.currentThread();
+        final BlockingQueue<Double> values = new LinkedBlockingQueue<Double>();
+        final CountDownLatch drained = new CountDownLatch(1);
+
+        PolledLoadMetric(Double... values) {
+            this.values.addAll(Arrays.asList(values));
+        }
+
+        @Override
+        public double getLoad(Engine engine) throws Exception {
+            if (Thread.currentThread() == this.caller) {
+                return 0;
+            }
+            Double value = this.values.poll();
+            if (value == null) {
+                // All values were added to the reservoir
+                this.drained.countDown();
+                Thread.sleep(Long.MAX_VALUE);
+            }
+            return value;
+        }
+
+        @Override
+        public int getWeight() {
+            return 1;
+        }
+
+        @Override
+        public void setWeight(int weight) {
+        }
+
+        @Override
+        public double getCapacity() {
+            return 1;
+        }
+
+        @Override
+        public void setCapacity(double capacity) {
+        }
+    }
+}
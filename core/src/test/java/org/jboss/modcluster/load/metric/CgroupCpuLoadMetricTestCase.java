@@ -0,0 +1,225 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.load.metric;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.jboss.modcluster.container.Engine;
+import org.jboss.modcluster.load.metric.impl.CgroupCpuLoadMetric;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CgroupCpuLoadMetricTestCase {
+    private final MBeanServer server = mock(MBeanServer.class);
+    private final Engine engine = mock(Engine.class);
+    private Path root;
+    private Path proc;
+    private Path membership;
+
+    @Before
+    public void init() throws IOException {
+        this.root = Files.createTempDirectory("cgroup");
+        this.proc = Files.createTempDirectory("proc");
+        this.membership = this.proc.resolve("cgroup");
+    }
+
+    @After
+    public void destroy() throws IOException {
+        delete(this.root);
+        delete(this.proc);
+    }
+
+    @Test
+    public void getLoadUnified() throws Exception {
+        // Within a container with its own cgroup namespace
+        write(this.membership, "0::/\n");
+        write(this.root.resolve("cgroup.controllers"), "cpu io memory");
+        write(this.root.resolve("cgroup.type"), "domain");
+        write(this.root.resolve("cpu.max"), "50000 100000");
+        write(this.root.resolve("cpu.stat"), "usage_usec 1000000\nuser_usec 800000\nsystem_usec 200000\nnr_periods 10\nnr_throttled 0\nthrottled_usec 0");
+
+        CgroupCpuLoadMetric metric = new CgroupCpuLoadMetric(this.root, this.membership, this.server);
+
+        // Half of a 0.5 CPU quota, and throttled in half of the periods
+        this.assertLoad(metric, 25, 0.5, 0.5, new Runnable() {
+            @Override
+            public void run() {
+                write(CgroupCpuLoadMetricTestCase.this.root.resolve("cpu.stat"), "usage_usec 1025000\nuser_usec 820000\nsystem_usec 205000\nnr_periods 20\nnr_throttled 5\nthrottled_usec 10000");
+            }
+        });
+    }
+
+    @Test
+    public void getLoadUnifiedWithoutQuota() throws Exception {
+        // A service on a host, whose cgroup is nested below the root cgroup
+        write(this.membership, "0::/system.slice/app.service\n");
+        write(this.root.resolve("cgroup.controllers"), "cpu io memory");
+        write(this.root.resolve("cpu.stat"), "usage_usec 9000000000\nnr_periods 0\nnr_throttled 0");
+        final Path cgroup = Files.createDirectories(this.root.resolve("system.slice").resolve("app.service"));
+        write(cgroup.resolve("cgroup.type"), "domain");
+        write(cgroup.resolve("cpu.max"), "max 100000");
+        write(cgroup.resolve("cpu.stat"), "usage_usec 1000000\nnr_periods 0\nnr_throttled 0");
+
+        when(this.server.getAttribute(any(ObjectName.class), eq("AvailableProcessors"))).thenReturn(2);
+
+        CgroupCpuLoadMetric metric = new CgroupCpuLoadMetric(this.root, this.membership, this.server);
+
+        this.assertLoad(metric, 50, 2, 0, new Runnable() {
+            @Override
+            public void run() {
+                write(CgroupCpuLoadMetricTestCase.this.root.resolve("cpu.stat"), "usage_usec 9900000000\nnr_periods 0\nnr_throttled 0");
+                write(cgroup.resolve("cpu.stat"), "usage_usec 1050000\nnr_periods 0\nnr_throttled 0");
+            }
+        });
+    }
+
+    @Test
+    public void getLoadRootCgroup() throws Exception {
+        // A process in the root cgroup of a host, whose cpu.stat covers the whole system
+        write(this.membership, "0::/\n");
+        write(this.root.resolve("cgroup.controllers"), "cpu io memory");
+        write(this.root.resolve("cpu.stat"), "usage_usec 9000000000\nnr_periods 0\nnr_throttled 0");
+
+        when(this.server.getAttribute(any(ObjectName.class), eq("AvailableProcessors"))).thenReturn(4);
+        when(this.server.getAttribute(any(ObjectName.class), eq("ProcessCpuTime"))).thenReturn(1000000000L, 1100000000L);
+
+        CgroupCpuLoadMetric metric = new CgroupCpuLoadMetric(this.root, this.membership, this.server);
+
+        this.assertLoad(metric, 100, 4, 0, new Runnable() {
+            @Override
+            public void run() {
+                write(CgroupCpuLoadMetricTestCase.this.root.resolve("cpu.stat"), "usage_usec 9900000000\nnr_periods 0\nnr_throttled 0");
+            }
+        });
+    }
+
+    @Test
+    public void getLoadPerController() throws Exception {
+        // Within a container that mounts its own cgroup as the root of each hierarchy
+        write(this.membership, "12:memory:/docker/1234\n4:cpu,cpuacct:/docker/1234\n1:name=systemd:/docker/1234\n");
+        final Path directory = Files.createDirectory(this.root.resolve("cpu,cpuacct"));
+        write(directory.resolve("cpu.cfs_quota_us"), "200000");
+        write(directory.resolve("cpu.cfs_period_us"), "100000");
+        write(directory.resolve("cpu.stat"), "nr_periods 10\nnr_throttled 0\nthrottled_time 0");
+        write(directory.resolve("cpuacct.usage"), "1000000000");
+
+        CgroupCpuLoadMetric metric = new CgroupCpuLoadMetric(this.root, this.membership, this.server);
+
+        this.assertLoad(metric, 100, 2, 0, new Runnable() {
+            @Override
+            public void run() {
+                write(directory.resolve("cpuacct.usage"), "1100000000");
+                write(directory.resolve("cpu.stat"), "nr_periods 20\nnr_throttled 0\nthrottled_time 0");
+            }
+        });
+    }
+
+    @Test
+    public void getLoadWithoutCgroup() throws Exception {
+        when(this.server.getAttribute(any(ObjectName.class), eq("AvailableProcessors"))).thenReturn(4);
+        when(this.server.getAttribute(any(ObjectName.class), eq("ProcessCpuTime"))).thenReturn(1000000000L, 1100000000L);
+
+        CgroupCpuLoadMetric metric = new CgroupCpuLoadMetric(this.root.resolve("missing"), this.membership, this.server);
+
+        this.assertLoad(metric, 100, 4, 0, new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+    }
+
+    @Test
+    public void getLoadNotSupported() throws Exception {
+        when(this.server.getAttribute(any(ObjectName.class), eq("ProcessCpuTime"))).thenThrow(new AttributeNotFoundException());
+
+        CgroupCpuLoadMetric metric = new CgroupCpuLoadMetric(this.root.resolve("missing"), this.membership, this.server);
+
+        assertEquals(0.0, metric.getLoad(this.engine), 0.0);
+        assertEquals(0, metric.getWeight());
+    }
+
+    /**
+     * Asserts the load after the specified CPU time was used on the specified number of processors, plus the specified
+     * throttling, within the bounds of the measured wall-clock time.
+     */
+    private void assertLoad(CgroupCpuLoadMetric metric, long usedMillis, double processors, double throttled, Runnable update) throws Exception {
+        long start = System.nanoTime();
+        assertEquals(0.0, metric.getLoad(this.engine), 0.0);
+        long started = System.nanoTime();
+
+        update.run();
+        Thread.sleep(100);
+
+        long end = System.nanoTime();
+        double load = metric.getLoad(this.engine);
+        long ended = System.nanoTime();
+
+        double used = TimeUnit.MILLISECONDS.toNanos(usedMillis) / processors;
+        double min = used / (ended - start) + throttled;
+        double max = used / (end - started) + throttled;
+
+        assertTrue(String.format("%s not within [%s, %s]", load, min, max), (load >= min) && (load <= max));
+    }
+
+    static void write(Path file, String content) {
+        try {
+            Files.write(file, content.getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static void delete(Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path directory, IOException exception) throws IOException {
+                Files.delete(directory);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.load.metric;
+
+import static org.jboss.modcluster.load.metric.CgroupCpuLoadMetricTestCase.delete;
+import static org.jboss.modcluster.load.metric.CgroupCpuLoadMetricTestCase.write;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.jboss.modcluster.container.Engine;
+import org.jboss.modcluster.load.metric.impl.ContainerMemoryLoadMetric;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ContainerMemoryLoadMetricTestCase {
+    private final MBeanServer server = mock(MBeanServer.class);
+    private final MemoryMXBean memory = mock(MemoryMXBean.class);
+    private final BufferPoolMXBean direct = mock(BufferPoolMXBean.class);
+    private final BufferPoolMXBean mapped = mock(BufferPoolMXBean.class);
+    private final Engine engine = mock(Engine.class);
+    private Path root;
+    private Path proc;
+    private Path membership;
+
+    @Before
+    public void init() throws IOException {
+        this.root = Files.createTempDirectory("cgroup");
+        this.proc = Files.createTempDirectory("proc");
+        this.membership = this.proc.resolve("cgroup");
+
+        // 350 bytes committed by the JVM
+        when(this.memory.getHeapMemoryUsage()).thenReturn(new MemoryUsage(0, 150, 200, 400));
+        when(this.memory.getNonHeapMemoryUsage()).thenReturn(new MemoryUsage(0, 80, 100, -1));
+        when(this.direct.getMemoryUsed()).thenReturn(50L);
+        when(this.mapped.getMemoryUsed()).thenReturn(0L);
+    }
+
+    @After
+    public void destroy() throws IOException {
+        delete(this.root);
+        delete(this.proc);
+    }
+
+    @Test
+    public void getLoadUnified() throws Exception {
+        write(this.membership, "0::/system.slice/app.service\n");
+        write(this.root.resolve("cgroup.controllers"), "cpu io memory");
+        write(this.root.resolve("memory.stat"), "anon 1400\nfile 400\nactive_file 100\ninactive_file 300");
+        Path cgroup = Files.createDirectories(this.root.resolve("system.slice").resolve("app.service"));
+        write(cgroup.resolve("cgroup.type"), "domain");
+        write(cgroup.resolve("memory.max"), "1000");
+        write(cgroup.resolve("memory.current"), "800");
+        write(cgroup.resolve("memory.stat"), "anon 400\nfile 400\nactive_file 100\ninactive_file 300");
+
+        // Charged memory, less inactive file cache
+        assertEquals(0.5, this.createMetric().getLoad(this.engine), 0.0);
+
+        write(cgroup.resolve("memory.current"), "500");
+
+        // JVM memory exceeds what the cgroup charged, less cache
+        assertEquals(0.35, this.createMetric().getLoad(this.engine), 0.0);
+    }
+
+    @Test
+    public void getLoadPerController() throws Exception {
+        write(this.membership, "12:memory:/docker/1234\n4:cpu,cpuacct:/docker/1234\n");
+        Path directory = Files.createDirectory(this.root.resolve("memory"));
+        write(directory.resolve("memory.limit_in_bytes"), "9223372036854771712");
+        write(directory.resolve("memory.usage_in_bytes"), "600");
+        write(directory.resolve("memory.stat"), "cache 200\nrss 400\ntotal_inactive_file 100");
+
+        when(this.server.getAttribute(any(ObjectName.class), eq("TotalPhysicalMemorySize"))).thenReturn(2000L);
+
+        // No limit, so relative to physical memory
+        assertEquals(0.25, this.createMetric().getLoad(this.engine), 0.0);
+    }
+
+    @Test
+    public void getLoadRootCgroup() throws Exception {
+        // A process in the root cgroup of a host, which charges the memory of the whole system
+        write(this.membership, "12:memory:/\n4:cpu,cpuacct:/\n");
+        Path directory = Files.createDirectory(this.root.resolve("memory"));
+        write(directory.resolve("release_agent"), "");
+        write(directory.resolve("memory.limit_in_bytes"), "9223372036854771712");
+        write(directory.resolve("memory.usage_in_bytes"), "1900");
+        write(directory.resolve("memory.stat"), "cache 400\nrss 1500\ntotal_inactive_file 100");
+
+        when(this.server.getAttribute(any(ObjectName.class), eq("TotalPhysicalMemorySize"))).thenReturn(2000L);
+
+        // JVM memory only, relative to physical memory
+        assertEquals(0.175, this.createMetric().getLoad(this.engine), 0.0);
+    }
+
+    @Test
+    public void getLoadNotSupported() throws Exception {
+        when(this.server.getAttribute(any(ObjectName.class), eq("TotalPhysicalMemorySize"))).thenThrow(new AttributeNotFoundException());
+
+        ContainerMemoryLoadMetric metric = this.createMetric();
+
+        assertEquals(0.0, metric.getLoad(this.engine), 0.0);
+        assertEquals(0, metric.getWeight());
+    }
+
+    private ContainerMemoryLoadMetric createMetric() {
+        return new ContainerMemoryLoadMetric(this.root, this.membership, this.server, this.memory, Arrays.asList(this.direct, this.mapped));
+    }
+}
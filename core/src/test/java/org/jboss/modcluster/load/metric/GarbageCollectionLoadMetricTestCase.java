@@ -0,0 +1,69 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.load.metric;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.util.Arrays;
+
+import org.jboss.modcluster.container.Engine;
+import org.jboss.modcluster.load.metric.impl.GarbageCollectionLoadMetric;
+import org.junit.Test;
+
+public class GarbageCollectionLoadMetricTestCase {
+    private final GarbageCollectorMXBean young = mock(GarbageCollectorMXBean.class);
+    private final GarbageCollectorMXBean old = mock(GarbageCollectorMXBean.class);
+    private final GarbageCollectorMXBean undefined = mock(GarbageCollectorMXBean.class);
+    private final DeterministicLoadState state = mock(DeterministicLoadState.class);
+    private final GarbageCollectionLoadMetric metric = new GarbageCollectionLoadMetric(Arrays.asList(this.young, this.old, this.undefined), this.state);
+    private final Engine engine = mock(Engine.class);
+
+    @Test
+    public void getLoad() throws Exception {
+        this.stub();
+        when(this.state.delta(150.0)).thenReturn(100.0);
+
+        assertEquals(0.1, this.metric.getLoad(this.engine), 0.0);
+    }
+
+    @Test
+    public void getLoadWeighted() throws Exception {
+        this.metric.setOldGenerationWeight(3);
+
+        this.stub();
+        when(this.state.delta(250.0)).thenReturn(500.0);
+
+        assertEquals(0.5, this.metric.getLoad(this.engine), 0.0);
+    }
+
+    private void stub() {
+        when(this.young.getName()).thenReturn("G1 Young Generation");
+        when(this.young.getCollectionTime()).thenReturn(100L);
+        when(this.old.getName()).thenReturn("G1 Old Generation");
+        when(this.old.getCollectionTime()).thenReturn(50L);
+        when(this.undefined.getName()).thenReturn("Unknown");
+        when(this.undefined.getCollectionTime()).thenReturn(-1L);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.load.metric;
+
+import static org.junit.Assert.assertEquals;
+
+import org.jboss.modcluster.load.metric.impl.LatencyHistogram;
+import org.junit.Test;
+
+public class LatencyHistogramTestCase {
+    @Test
+    public void getPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (long value = 1; value <= 1000; ++value) {
+            histogram.record(value);
+        }
+
+        long[] counts = LatencyHistogram.createCounts();
+        histogram.drainTo(counts);
+
+        assertEquals(500, LatencyHistogram.getPercentile(counts, 50), 500 / 16d);
+        assertEquals(900, LatencyHistogram.getPercentile(counts, 90), 900 / 16d);
+        assertEquals(990, LatencyHistogram.getPercentile(counts, 99), 990 / 16d);
+        assertEquals(1000, LatencyHistogram.getPercentile(counts, 100), 1000 / 16d);
+
+        // Small values are exact
+        counts = LatencyHistogram.createCounts();
+        histogram.record(3);
+        histogram.drainTo(counts);
+
+        assertEquals(3, LatencyHistogram.getPercentile(counts, 100), 0);
+    }
+
+    @Test
+    public void drainTo() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.record(Long.MAX_VALUE);
+        histogram.record(-1);
+
+        long[] counts = LatencyHistogram.createCounts();
+        histogram.drainTo(counts);
+
+        assertEquals(0, LatencyHistogram.getPercentile(counts, 50), 0);
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.getPercentile(counts, 100), Long.MAX_VALUE / 16d);
+
+        // Drained counts are reset
+        counts = LatencyHistogram.createCounts();
+        histogram.drainTo(counts);
+
+        assertEquals(-1, LatencyHistogram.getPercentile(counts, 100), 0);
+    }
+}
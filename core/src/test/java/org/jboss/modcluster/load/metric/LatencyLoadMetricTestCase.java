@@ -0,0 +1,128 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.load.metric;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestEvent;
+import javax.servlet.ServletRequestListener;
+
+import org.jboss.modcluster.container.Context;
+import org.jboss.modcluster.container.Engine;
+import org.jboss.modcluster.container.Host;
+import org.jboss.modcluster.load.metric.impl.LatencyLoadMetric;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class LatencyLoadMetricTestCase {
+    private final Engine engine = mock(Engine.class);
+    private final Host host = mock(Host.class);
+    private final Context context = mock(Context.class);
+
+    @Test
+    public void getLoad() throws Exception {
+        LatencyLoadMetric metric = new LatencyLoadMetric();
+
+        assertEquals(LatencyLoadMetric.DEFAULT_SLO, metric.getCapacity(), 0.0);
+
+        when(this.engine.getHosts()).thenReturn(Collections.singleton(this.host));
+        when(this.host.getContexts()).thenReturn(Collections.singleton(this.context));
+
+        metric.setPercentile(50);
+
+        // Nothing recorded before the listener is registered
+        assertEquals(0.0, metric.getLoad(this.engine), 0.0);
+
+        ArgumentCaptor<ServletRequestListener> captor = ArgumentCaptor.forClass(ServletRequestListener.class);
+        verify(this.context).addRequestListener(captor.capture());
+        ServletRequestListener listener = captor.getValue();
+
+        for (int i = 0; i < 99; ++i) {
+            this.request(listener, 10);
+        }
+        this.request(listener, 500);
+
+        // Values are within 1/16 of the response time
+        assertEquals(10.0, metric.getLoad(this.engine), 10.0 / 16 + 1);
+
+        // Only requests completed since the previous computation count
+        assertEquals(0.0, metric.getLoad(this.engine), 0.0);
+
+        metric.setPercentile(100);
+
+        for (int i = 0; i < 99; ++i) {
+            this.request(listener, 10);
+        }
+        this.request(listener, 500);
+
+        assertEquals(500.0, metric.getLoad(this.engine), 500.0 / 16 + 1);
+
+        verify(this.context, never()).removeRequestListener(listener);
+
+        metric.close();
+
+        verify(this.context).removeRequestListener(listener);
+    }
+
+    @Test
+    public void getLoadAfterContextRemoval() throws Exception {
+        LatencyLoadMetric metric = new LatencyLoadMetric();
+
+        when(this.engine.getHosts()).thenReturn(Collections.singleton(this.host));
+        when(this.host.getContexts()).thenReturn(Collections.singleton(this.context)).thenReturn(Collections.<Context>emptySet());
+
+        metric.getLoad(this.engine);
+
+        ArgumentCaptor<ServletRequestListener> captor = ArgumentCaptor.forClass(ServletRequestListener.class);
+        verify(this.context).addRequestListener(captor.capture());
+
+        assertEquals(0.0, metric.getLoad(this.engine), 0.0);
+
+        verify(this.context).removeRequestListener(captor.getValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setInvalidPercentile() {
+        new LatencyLoadMetric().setPercentile(0);
+    }
+
+    /**
+     * Completes a request that started the specified number of milliseconds ago.
+     */
+    private void request(ServletRequestListener listener, long millis) {
+        ServletRequest request = mock(ServletRequest.class);
+        ServletRequestEvent event = new ServletRequestEvent(mock(ServletContext.class), request);
+        when(request.getAttribute(anyString())).thenReturn(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(millis));
+
+        listener.requestDestroyed(event);
+    }
+}
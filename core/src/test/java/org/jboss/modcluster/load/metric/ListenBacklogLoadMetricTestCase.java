@@ -0,0 +1,124 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.load.metric;
+
+import static org.jboss.modcluster.load.metric.CgroupCpuLoadMetricTestCase.delete;
+import static org.jboss.modcluster.load.metric.CgroupCpuLoadMetricTestCase.write;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.jboss.modcluster.container.Connector;
+import org.jboss.modcluster.container.Engine;
+import org.jboss.modcluster.load.metric.impl.ListenBacklogLoadMetric;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ListenBacklogLoadMetricTestCase {
+    private static final String TCP_HEADER = "  sl  local_address rem_address   st tx_queue rx_queue tr tm->when retrnsmt   uid  timeout inode\n";
+    private static final String TCP6_HEADER = "  sl  local_address                         remote_address                        st tx_queue rx_queue tr tm->when retrnsmt   uid  timeout inode\n";
+
+    private final Engine engine = mock(Engine.class);
+    private final Connector connector = mock(Connector.class);
+    private Path directory;
+
+    @Before
+    public void init() throws IOException {
+        this.directory = Files.createTempDirectory("net");
+
+        when(this.engine.getProxyConnector()).thenReturn(this.connector);
+        when(this.connector.getPort()).thenReturn(8009);
+        when(this.connector.getBacklog()).thenReturn(200);
+    }
+
+    @After
+    public void destroy() throws IOException {
+        delete(this.directory);
+    }
+
+    @Test
+    public void getLoad() throws Exception {
+        write(this.directory.resolve("tcp"), TCP_HEADER
+                // Listening on another port
+                + "   0: 00000000:1F90 00000000:0000 0A 00000000:00000030 00:00000000 00000000     0        0 10001 1 0000000000000000 100 0 0 10 0\n"
+                // Listening on 8009 with 10 connections to accept
+                + "   1: 0100007F:1F49 00000000:0000 0A 00000000:0000000A 00:00000000 00000000     0        0 10002 1 0000000000000000 100 0 0 10 0\n"
+                // Established connection to 8009
+                + "   2: 0100007F:1F49 0100007F:D2C4 01 00000000:000000FF 00:00000000 00000000     0        0 10003 1 0000000000000000 20 4 30 10 -1\n");
+        write(this.directory.resolve("tcp6"), TCP6_HEADER
+                + "   0: 00000000000000000000000000000000:1F49 00000000000000000000000000000000:0000 0A 00000000:00000014 00:00000000 00000000     0        0 10004 1 0000000000000000 100 0 0 10 0\n");
+
+        ListenBacklogLoadMetric metric = new ListenBacklogLoadMetric(this.directory);
+
+        // Relative to the backlog of the connector
+        assertEquals(0.1, metric.getLoad(this.engine), 0.0);
+
+        when(this.connector.getPort()).thenReturn(8080);
+
+        assertEquals(0.24, metric.getLoad(this.engine), 0.0);
+
+        when(this.connector.getPort()).thenReturn(8443);
+
+        assertEquals(0.0, metric.getLoad(this.engine), 0.0);
+        assertEquals(1, metric.getWeight());
+    }
+
+    @Test
+    public void getLoadOfLargeTable() throws Exception {
+        StringBuilder table = new StringBuilder(TCP_HEADER);
+        for (int i = 0; i < 1000; ++i) {
+            table.append(String.format("%4d: 0100007F:1F49 0100007F:%04X 01 00000000:00000000 00:00000000 00000000     0        0 %d 1 0000000000000000 20 4 30 10 -1\n", i, i, i));
+        }
+        table.append("1000: 00000000:1F49 00000000:0000 0A 00000000:00000005 00:00000000 00000000     0        0 10000 1 0000000000000000 100 0 0 10 0");
+        write(this.directory.resolve("tcp"), table.toString());
+
+        ListenBacklogLoadMetric metric = new ListenBacklogLoadMetric(this.directory);
+
+        assertEquals(0.025, metric.getLoad(this.engine), 0.0);
+    }
+
+    @Test
+    public void getLoadWithoutBacklog() throws Exception {
+        write(this.directory.resolve("tcp"), TCP_HEADER
+                + "   0: 0100007F:1F49 00000000:0000 0A 00000000:0000000A 00:00000000 00000000     0        0 10002 1 0000000000000000 100 0 0 10 0\n");
+
+        when(this.connector.getBacklog()).thenReturn(0);
+
+        ListenBacklogLoadMetric metric = new ListenBacklogLoadMetric(this.directory);
+
+        // Relative to the default backlog
+        assertEquals(10.0 / ListenBacklogLoadMetric.DEFAULT_BACKLOG, metric.getLoad(this.engine), 0.0);
+    }
+
+    @Test
+    public void getLoadNotSupported() throws Exception {
+        ListenBacklogLoadMetric metric = new ListenBacklogLoadMetric(this.directory.resolve("missing"));
+
+        assertEquals(0.0, metric.getLoad(this.engine), 0.0);
+        assertEquals(0, metric.getWeight());
+    }
+}
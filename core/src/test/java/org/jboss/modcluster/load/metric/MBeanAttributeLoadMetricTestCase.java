@@ -22,48 +22,125 @@
 package org.jboss.modcluster.load.metric;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 
+import javax.management.Attribute;
+import javax.management.AttributeList;
 import javax.management.MBeanServer;
+import javax.management.MBeanServerDelegate;
+import javax.management.MBeanServerNotification;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
 import javax.management.ObjectName;
 import javax.management.QueryExp;
 
 import org.jboss.modcluster.container.Engine;
 import org.jboss.modcluster.load.metric.impl.MBeanAttributeLoadMetric;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 /**
  * @author Paul Ferraro
  */
 public class MBeanAttributeLoadMetricTestCase {
+    private final MBeanServer server = mock(MBeanServer.class);
+    private final Engine engine = mock(Engine.class);
+    private final String attribute = "attribute";
+
     @Test
     public void getLoad() throws Exception {
-        MBeanServer server = mock(MBeanServer.class);
         ObjectName pattern = ObjectName.getInstance("domain:*");
-        String attribute = "attribute";
 
-        MBeanAttributeLoadMetric metric = new MBeanAttributeLoadMetric();
-        metric.setMBeanServer(server);
-        metric.setPattern(pattern);
-        metric.setAttribute(attribute);
+        MBeanAttributeLoadMetric metric = this.createMetric(pattern);
 
         ObjectName name1 = ObjectName.getInstance("domain:name=test1");
         ObjectName name2 = ObjectName.getInstance("domain:name=test2");
 
-        Engine engine = mock(Engine.class);
+        when(this.server.queryNames(same(pattern), (QueryExp) isNull())).thenReturn(new LinkedHashSet<ObjectName>(Arrays.asList(name1, name2)));
+        this.stubAttribute(name1, 1);
+        this.stubAttribute(name2, 2);
 
-        when(server.queryNames(same(pattern), (QueryExp) isNull())).thenReturn(new LinkedHashSet<ObjectName>(Arrays.asList(name1, name2)));
-        when(server.getAttribute(same(name1), same(attribute))).thenReturn(1);
-        when(server.getAttribute(same(name2), same(attribute))).thenReturn(2);
-
-        double load = metric.getLoad(engine);
+        double load = metric.getLoad(this.engine);
 
         assertEquals(3.0, load, 0.0);
     }
+
+    @Test
+    public void getLoadResolvesNamesOnce() throws Exception {
+        ObjectName pattern = ObjectName.getInstance("domain:*");
+
+        MBeanAttributeLoadMetric metric = this.createMetric(pattern);
+
+        ObjectName name1 = ObjectName.getInstance("domain:name=test1");
+        ObjectName name2 = ObjectName.getInstance("domain:name=test2");
+
+        when(this.server.queryNames(same(pattern), (QueryExp) isNull())).thenReturn(Collections.singleton(name1)).thenReturn(new LinkedHashSet<ObjectName>(Arrays.asList(name1, name2)));
+        this.stubAttribute(name1, 1);
+        this.stubAttribute(name2, 2);
+
+        assertEquals(1.0, metric.getLoad(this.engine), 0.0);
+        assertEquals(1.0, metric.getLoad(this.engine), 0.0);
+
+        verify(this.server, times(1)).queryNames(same(pattern), (QueryExp) isNull());
+
+        ArgumentCaptor<NotificationListener> listener = ArgumentCaptor.forClass(NotificationListener.class);
+        verify(this.server).addNotificationListener(same(MBeanServerDelegate.DELEGATE_NAME), listener.capture(), (NotificationFilter) isNull(), isNull());
+
+        // Registration of an unrelated mbean keeps the resolved names
+        ObjectName unrelated = ObjectName.getInstance("other:name=test");
+        listener.getValue().handleNotification(new MBeanServerNotification(MBeanServerNotification.REGISTRATION_NOTIFICATION, MBeanServerDelegate.DELEGATE_NAME, 1, unrelated), null);
+
+        assertEquals(1.0, metric.getLoad(this.engine), 0.0);
+
+        verify(this.server, times(1)).queryNames(same(pattern), (QueryExp) isNull());
+
+        // Registration of a matching mbean resolves the names again
+        listener.getValue().handleNotification(new MBeanServerNotification(MBeanServerNotification.REGISTRATION_NOTIFICATION, MBeanServerDelegate.DELEGATE_NAME, 2, name2), null);
+
+        assertEquals(3.0, metric.getLoad(this.engine), 0.0);
+
+        verify(this.server, times(2)).queryNames(same(pattern), (QueryExp) isNull());
+
+        metric.close();
+
+        verify(this.server).removeNotificationListener(MBeanServerDelegate.DELEGATE_NAME, listener.getValue());
+    }
+
+    @Test
+    public void getLoadOfUnreadableAttribute() throws Exception {
+        ObjectName pattern = ObjectName.getInstance("domain:*");
+
+        MBeanAttributeLoadMetric metric = this.createMetric(pattern);
+
+        ObjectName name = ObjectName.getInstance("domain:name=test");
+
+        when(this.server.queryNames(same(pattern), (QueryExp) isNull())).thenReturn(Collections.singleton(name));
+        when(this.server.getAttributes(same(name), any(String[].class))).thenReturn(new AttributeList());
+        when(this.server.getAttribute(same(name), same(this.attribute))).thenReturn(4);
+
+        assertEquals(4.0, metric.getLoad(this.engine), 0.0);
+    }
+
+    private MBeanAttributeLoadMetric createMetric(ObjectName pattern) {
+        MBeanAttributeLoadMetric metric = new MBeanAttributeLoadMetric();
+        metric.setMBeanServer(this.server);
+        metric.setPattern(pattern);
+        metric.setAttribute(this.attribute);
+        return metric;
+    }
+
+    private void stubAttribute(ObjectName name, int value) throws Exception {
+        when(this.server.getAttributes(same(name), any(String[].class))).thenReturn(
+                new AttributeList(Collections.singletonList(new Attribute(this.attribute, value))));
+    }
 }
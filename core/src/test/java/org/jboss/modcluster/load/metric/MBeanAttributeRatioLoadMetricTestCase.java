@@ -22,6 +22,7 @@
 package org.jboss.modcluster.load.metric;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.mock;
@@ -30,6 +31,8 @@ import static org.mockito.Mockito.when;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
 
+import javax.management.Attribute;
+import javax.management.AttributeList;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 import javax.management.QueryExp;
@@ -64,11 +67,10 @@ public class MBeanAttributeRatioLoadMetricTestCase {
         when(server.queryNames(same(pattern), (QueryExp) isNull())).thenReturn(
                 new LinkedHashSet<ObjectName>(Arrays.asList(name1, name2)));
 
-        when(server.getAttribute(same(name1), same(dividend))).thenReturn(1);
-        when(server.getAttribute(same(name2), same(dividend))).thenReturn(2);
-
-        when(server.getAttribute(same(name1), same(divisor))).thenReturn(2);
-        when(server.getAttribute(same(name2), same(divisor))).thenReturn(2);
+        when(server.getAttributes(same(name1), any(String[].class))).thenReturn(
+                new AttributeList(Arrays.asList(new Attribute(dividend, 1), new Attribute(divisor, 2))));
+        when(server.getAttributes(same(name2), any(String[].class))).thenReturn(
+                new AttributeList(Arrays.asList(new Attribute(dividend, 2), new Attribute(divisor, 2))));
 
         double load = metric.getLoad(engine);
 
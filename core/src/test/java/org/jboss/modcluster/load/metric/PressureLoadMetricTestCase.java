@@ -0,0 +1,139 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.load.metric;
+
+import static org.jboss.modcluster.load.metric.CgroupCpuLoadMetricTestCase.delete;
+import static org.jboss.modcluster.load.metric.CgroupCpuLoadMetricTestCase.write;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.jboss.modcluster.container.Engine;
+import org.jboss.modcluster.load.metric.impl.PressureLoadMetric;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PressureLoadMetricTestCase {
+    private final Engine engine = mock(Engine.class);
+    private Path pressure;
+    private Path cgroup;
+    private Path proc;
+    private Path membership;
+
+    @Before
+    public void init() throws IOException {
+        this.pressure = Files.createTempDirectory("pressure");
+        this.cgroup = Files.createTempDirectory("cgroup");
+        this.proc = Files.createTempDirectory("proc");
+        this.membership = this.proc.resolve("cgroup");
+    }
+
+    @After
+    public void destroy() throws IOException {
+        delete(this.pressure);
+        delete(this.cgroup);
+        delete(this.proc);
+    }
+
+    @Test
+    public void getLoad() throws Exception {
+        // Older kernels report no full pressure for cpu
+        write(this.pressure.resolve("cpu"), "some avg10=30.00 avg60=20.00 avg300=10.00 total=123456\n");
+        write(this.pressure.resolve("memory"), "some avg10=10.00 avg60=5.00 avg300=1.00 total=1234\nfull avg10=4.00 avg60=2.00 avg300=0.50 total=123\n");
+        write(this.pressure.resolve("io"), "some avg10=20.00 avg60=10.00 avg300=5.00 total=12345\nfull avg10=10.00 avg60=5.00 avg300=2.50 total=1234\n");
+
+        PressureLoadMetric metric = new PressureLoadMetric(this.pressure, this.cgroup, this.membership);
+
+        assertEquals(0.2, metric.getLoad(this.engine), 0.0001);
+
+        metric.setCpuWeight(2);
+        metric.setIoWeight(0);
+
+        assertEquals((2 * 30 + 10) / 3d / 100, metric.getLoad(this.engine), 0.0001);
+
+        metric.setType("full");
+        metric.setCpuWeight(1);
+        metric.setIoWeight(1);
+
+        assertEquals(0.07, metric.getLoad(this.engine), 0.0001);
+        assertEquals(1, metric.getWeight());
+    }
+
+    @Test
+    public void getLoadOfCgroup() throws Exception {
+        // A service on a host, whose cgroup is nested below the root cgroup
+        write(this.membership, "0::/system.slice/app.service\n");
+        write(this.pressure.resolve("cpu"), "some avg10=90.00 avg60=90.00 avg300=90.00 total=1\n");
+        write(this.cgroup.resolve("cgroup.controllers"), "cpu io memory");
+        write(this.cgroup.resolve("cpu.pressure"), "some avg10=80.00 avg60=0.00 avg300=0.00 total=1\n");
+        Path directory = Files.createDirectories(this.cgroup.resolve("system.slice").resolve("app.service"));
+        write(directory.resolve("cgroup.type"), "domain");
+        write(directory.resolve("cpu.pressure"), "some avg10=40.00 avg60=0.00 avg300=0.00 total=1\nfull avg10=0.00 avg60=0.00 avg300=0.00 total=0\n");
+
+        PressureLoadMetric metric = new PressureLoadMetric(this.pressure, this.cgroup, this.membership);
+
+        assertEquals(0.4, metric.getLoad(this.engine), 0.0001);
+    }
+
+    @Test
+    public void getLoadOfRootCgroup() throws Exception {
+        // A process in the root cgroup, whose pressure is that of the whole system
+        write(this.membership, "0::/\n");
+        write(this.pressure.resolve("cpu"), "some avg10=90.00 avg60=90.00 avg300=90.00 total=1\n");
+        write(this.cgroup.resolve("cgroup.controllers"), "cpu io memory");
+        write(this.cgroup.resolve("cpu.pressure"), "some avg10=80.00 avg60=0.00 avg300=0.00 total=1\n");
+
+        PressureLoadMetric metric = new PressureLoadMetric(this.pressure, this.cgroup, this.membership);
+
+        assertEquals(0.9, metric.getLoad(this.engine), 0.0001);
+    }
+
+    @Test
+    public void getLoadNotSupported() throws Exception {
+        PressureLoadMetric metric = new PressureLoadMetric(this.pressure.resolve("missing"), this.cgroup, this.membership);
+
+        assertEquals(0.0, metric.getLoad(this.engine), 0.0);
+        assertEquals(0, metric.getWeight());
+    }
+
+    @Test
+    public void getLoadNotReadable() throws Exception {
+        // Pressure files that exist, but cannot be read, e.g. if PSI is disabled via psi=0
+        Files.createDirectory(this.pressure.resolve("cpu"));
+        Files.createDirectory(this.pressure.resolve("memory"));
+        Files.createDirectory(this.pressure.resolve("io"));
+
+        PressureLoadMetric metric = new PressureLoadMetric(this.pressure, this.cgroup, this.membership);
+
+        assertEquals(0.0, metric.getLoad(this.engine), 0.0);
+        assertEquals(0, metric.getWeight());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setNegativeWeight() {
+        new PressureLoadMetric(this.pressure, this.cgroup, this.membership).setMemoryWeight(-1);
+    }
+}
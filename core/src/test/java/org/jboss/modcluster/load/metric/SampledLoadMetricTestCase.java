@@ -0,0 +1,180 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.load.metric;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.modcluster.container.Engine;
+import org.jboss.modcluster.load.metric.impl.SampledLoadMetric;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class SampledLoadMetricTestCase {
+    private final LoadMetric metric = mock(LoadMetric.class);
+    private final Engine engine = mock(Engine.class);
+
+    @Test
+    public void getLoad() throws Exception {
+        when(this.metric.getLoad(this.engine)).thenReturn(0.1, 0.2);
+
+        SampledLoadMetric sampled = new SampledLoadMetric(this.metric, 1, TimeUnit.HOURS);
+        try {
+            // First load is sampled right away, then cached until the next sample
+            assertEquals(0.1, sampled.getLoad(this.engine), 0.0);
+            assertEquals(0.1, sampled.getLoad(this.engine), 0.0);
+
+            verify(this.metric, times(1)).getLoad(this.engine);
+        } finally {
+            sampled.close();
+        }
+    }
+
+    @Test
+    public void sampleInBackground() throws Exception {
+        when(this.metric.getLoad(this.engine)).thenReturn(0.1, 0.2);
+
+        SampledLoadMetric sampled = new SampledLoadMetric(this.metric, 10, TimeUnit.MILLISECONDS);
+        try {
+            assertEquals(0.1, sampled.getLoad(this.engine), 0.0);
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while ((sampled.getLoad(this.engine) == 0.1) && (System.currentTimeMillis() < deadline)) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(0.2, sampled.getLoad(this.engine), 0.0);
+        } finally {
+            sampled.close();
+        }
+
+        // Sampling starts over once closed
+        when(this.metric.getLoad(this.engine)).thenReturn(0.3);
+
+        try {
+            assertEquals(0.3, sampled.getLoad(this.engine), 0.0);
+        } finally {
+            sampled.close();
+        }
+    }
+
+    @Test
+    public void closeWhileSampling() throws Exception {
+        final CountDownLatch sampling = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        when(this.metric.getLoad(this.engine)).thenAnswer(new Answer<Double>() {
+            @Override
+            public Double answer(InvocationOnMock invocation) {
+                switch (calls.incrementAndGet()) {
+                    case 1:
+                        return 0.1;
+                    case 2:
+                        sampling.countDown();
+                        // Ignore the interrupt of close(), like a metric blocked in I/O would
+                        boolean released = false;
+                        while (!released) {
+                            try {
+                                released = release.await(10, TimeUnit.SECONDS);
+                            } catch (InterruptedException e) {
+                                // Keep waiting
+                            }
+                        }
+                        return 0.2;
+                    default:
+                        return 0.3;
+                }
+            }
+        });
+
+        SampledLoadMetric sampled = new SampledLoadMetric(this.metric, 10, TimeUnit.MILLISECONDS);
+        try {
+            assertEquals(0.1, sampled.getLoad(this.engine), 0.0);
+            assertTrue(sampling.await(5, TimeUnit.SECONDS));
+        } finally {
+            sampled.close();
+        }
+        release.countDown();
+        // Leave the background sample time to be published, if it were
+        Thread.sleep(100);
+
+        try {
+            // Sample taken before close is discarded, so sampling starts over
+            assertEquals(0.3, sampled.getLoad(this.engine), 0.0);
+        } finally {
+            sampled.close();
+        }
+    }
+
+    @Test
+    public void getLoadFailure() throws Exception {
+        Exception exception = new Exception();
+        when(this.metric.getLoad(this.engine)).thenThrow(exception);
+
+        SampledLoadMetric sampled = new SampledLoadMetric(this.metric, 1, TimeUnit.HOURS);
+        try {
+            for (int i = 0; i < 2; ++i) {
+                try {
+                    sampled.getLoad(this.engine);
+                    fail();
+                } catch (Exception e) {
+                    assertSame(exception, e);
+                }
+            }
+        } finally {
+            sampled.close();
+        }
+    }
+
+    @Test
+    public void weightAndCapacity() {
+        SampledLoadMetric sampled = new SampledLoadMetric(this.metric, 1, TimeUnit.SECONDS);
+
+        when(this.metric.getWeight()).thenReturn(2);
+        when(this.metric.getCapacity()).thenReturn(10.0);
+
+        assertEquals(2, sampled.getWeight());
+        assertEquals(10.0, sampled.getCapacity(), 0.0);
+
+        sampled.setWeight(3);
+        sampled.setCapacity(20.0);
+
+        verify(this.metric).setWeight(3);
+        verify(this.metric).setCapacity(20.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositiveInterval() {
+        new SampledLoadMetric(this.metric, 0, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.mcmp;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.modcluster.config.ProxyConfiguration;
+import org.jboss.modcluster.config.impl.ModClusterConfig;
+import org.jboss.modcluster.mcmp.impl.DefaultMCMPHandler;
+import org.jboss.modcluster.mcmp.impl.DefaultMCMPRequest;
+import org.jboss.modcluster.mcmp.impl.DefaultMCMPRequestFactory;
+import org.jboss.modcluster.mcmp.impl.DefaultMCMPResponseParser;
+import org.jboss.modcluster.proxy.Fault;
+import org.jboss.modcluster.proxy.ProxyRequest;
+import org.jboss.modcluster.proxy.StubProxyServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Exercises {@link DefaultMCMPHandler} against a {@link StubProxyServer}.
+ */
+public class DefaultMCMPHandlerTestCase {
+    private final StubProxyServer server = new StubProxyServer();
+    private final ResetRequestSource source = mock(ResetRequestSource.class);
+    private final MCMPRequestFactory requestFactory = new DefaultMCMPRequestFactory();
+    private final MCMPConnectionListener listener = mock(MCMPConnectionListener.class);
+    private MCMPHandler handler;
+
+    @Before
+    public void setUp() throws Exception {
+        this.server.start();
+
+        ModClusterConfig config = new ModClusterConfig();
+        config.setSocketTimeout(1000);
+        this.handler = new DefaultMCMPHandler(config, this.source, this.requestFactory, new DefaultMCMPResponseParser());
+
+        when(this.source.getResetRequests(Mockito.<Map<String, Set<ResetRequestSource.VirtualHost>>>any())).thenReturn(Arrays.asList(createConfigRequest(), createContextRequest(MCMPRequestType.ENABLE_APP)));
+
+        ProxyConfiguration proxy = mock(ProxyConfiguration.class);
+        when(proxy.getRemoteAddress()).thenReturn(this.server.getAddress());
+        this.handler.init(Collections.singletonList(proxy), this.listener);
+        this.handler.status();
+    }
+
+    @After
+    public void tearDown() {
+        this.handler.shutdown();
+        this.server.stop();
+    }
+
+    @Test
+    public void reset() {
+        assertEquals(Collections.singleton("node1"), this.server.getNodes());
+        assertEquals("ENABLED", this.server.getContextStatus("node1", "localhost", "/context"));
+        assertTrue(this.handler.isProxyHealthOK());
+
+        this.sendStatus(10);
+
+        assertEquals(10, this.server.getLoad("node1"));
+    }
+
+    @Test
+    public void stopAppResponse() {
+        this.server.setActiveRequests("node1", "/context", 3);
+
+        Map<MCMPServerState, String> responses = this.handler.sendRequest(createContextRequest(MCMPRequestType.STOP_APP));
+
+        assertEquals(1, responses.size());
+        assertEquals(3, new DefaultMCMPResponseParser().parseStopAppResponse(responses.values().iterator().next()));
+        assertEquals("STOPPED", this.server.getContextStatus("node1", "localhost", "/context"));
+    }
+
+    @Test
+    public void chunkedResponse() {
+        this.server.inject("INFO", Fault.chunked());
+
+        Map<MCMPServerState, String> responses = this.handler.sendRequest(this.requestFactory.createInfoRequest());
+
+        String response = responses.values().iterator().next();
+        assertTrue(response, response.startsWith("Node: [1],Name: node1,"));
+        assertTrue(response, response.contains("Context: /context, Status: ENABLED"));
+        assertTrue(this.handler.isProxyHealthOK());
+    }
+
+    @Test
+    public void syntaxError() {
+        this.server.inject("STATUS", Fault.syntaxError("Invalid load"));
+
+        this.sendStatus(10);
+
+        assertSame(MCMPServerState.State.DOWN, this.getProxyState());
+
+        // Proxies marked down are not retried automatically
+        this.handler.status();
+
+        assertSame(MCMPServerState.State.DOWN, this.getProxyState());
+    }
+
+    @Test
+    public void memError() {
+        this.server.inject("STATUS", Fault.memError("MEM: Can't read node"));
+
+        this.sendStatus(10);
+
+        assertSame(MCMPServerState.State.ERROR, this.getProxyState());
+
+        // Next status refreshes the configuration of the proxy
+        this.server.clearRequests();
+        this.handler.status();
+
+        assertSame(MCMPServerState.State.OK, this.getProxyState());
+        // Context is still enabled according to INFO, so only the node configuration is resent
+        assertEquals(Arrays.asList("INFO", "CONFIG"), commands(this.server.getRequests()));
+        assertEquals("ENABLED", this.server.getContextStatus("node1", "localhost", "/context"));
+    }
+
+    @Test
+    public void halfClosedConnection() {
+        this.server.inject("STATUS", Fault.halfClose());
+        this.server.clearRequests();
+
+        this.sendStatus(20);
+
+        // Request is retried on a fresh connection
+        assertSame(MCMPServerState.State.OK, this.getProxyState());
+        assertEquals(Arrays.asList("STATUS", "STATUS"), commands(this.server.getRequests()));
+        assertEquals(20, this.server.getLoad("node1"));
+    }
+
+    @Test
+    public void resetConnection() {
+        // First failure is retried on a fresh connection
+        this.server.inject("STATUS", Fault.reset(), Fault.reset());
+
+        this.sendStatus(30);
+
+        assertSame(MCMPServerState.State.ERROR, this.getProxyState());
+    }
+
+    @Test
+    public void stalledResponse() {
+        this.server.inject("STATUS", Fault.stall(), Fault.stall());
+
+        this.sendStatus(40);
+
+        assertSame(MCMPServerState.State.ERROR, this.getProxyState());
+    }
+
+    @Test
+    public void latency() {
+        this.server.inject(StubProxyServer.ANY_COMMAND, Fault.delay(200, TimeUnit.MILLISECONDS));
+
+        long start = System.nanoTime();
+        this.sendStatus(50);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(String.valueOf(elapsed), elapsed >= 200);
+        assertSame(MCMPServerState.State.OK, this.getProxyState());
+        assertEquals(50, this.server.getLoad("node1"));
+    }
+
+    private void sendStatus(int load) {
+        this.handler.sendRequest(this.requestFactory.createStatusRequest("node1", load));
+    }
+
+    private MCMPServerState.State getProxyState() {
+        return this.handler.getProxyStates().iterator().next().getState();
+    }
+
+    private static List<String> commands(List<ProxyRequest> requests) {
+        String[] commands = new String[requests.size()];
+        for (int i = 0; i < commands.length; ++i) {
+            commands[i] = requests.get(i).getCommand();
+        }
+        return Arrays.asList(commands);
+    }
+
+    private static MCMPRequest createConfigRequest() {
+        Map<String, String> parameters = new TreeMap<String, String>();
+        parameters.put("Host", "127.0.0.1");
+        parameters.put("Port", "8009");
+        parameters.put("Type", "ajp");
+        return new DefaultMCMPRequest(MCMPRequestType.CONFIG, false, "node1", parameters);
+    }
+
+    private static MCMPRequest createContextRequest(MCMPRequestType type) {
+        Map<String, String> parameters = new TreeMap<String, String>();
+        parameters.put("Context", "/context");
+        parameters.put("Alias", "localhost,example.com");
+        return new DefaultMCMPRequest(type, false, "node1", parameters);
+    }
+}
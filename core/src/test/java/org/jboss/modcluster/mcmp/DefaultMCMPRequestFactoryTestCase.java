@@ -27,6 +27,7 @@ import static org.mockito.Mockito.*;
 import java.net.InetAddress;
 import java.net.URISyntaxException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.TreeSet;
@@ -226,6 +227,55 @@ public class DefaultMCMPRequestFactoryTestCase {
         assertEquals("7", parameters.get("Maxattempts"));
     }
 
+    @Test
+    public void createConfigRequestWithContexts() throws Exception {
+        Engine engine = mock(Engine.class);
+        NodeConfiguration nodeConfig = mock(NodeConfiguration.class);
+        BalancerConfiguration balancerConfig = mock(BalancerConfiguration.class);
+        Connector connector = mock(Connector.class);
+        Host host = mock(Host.class);
+        Context root = mock(Context.class);
+        Context context = mock(Context.class);
+
+        when(engine.getProxyConnector()).thenReturn(connector);
+        when(connector.getAddress()).thenReturn(InetAddress.getLocalHost());
+        when(connector.getPort()).thenReturn(100);
+        when(connector.getType()).thenReturn(Connector.Type.AJP);
+        when(nodeConfig.getFlushPackets()).thenReturn(Boolean.FALSE);
+        when(nodeConfig.getFlushWait()).thenReturn(-1);
+        when(nodeConfig.getPing()).thenReturn(-1);
+        when(nodeConfig.getSmax()).thenReturn(-1);
+        when(nodeConfig.getTtl()).thenReturn(-1);
+        when(nodeConfig.getNodeTimeout()).thenReturn(-1);
+        when(engine.getSessionCookieName()).thenReturn(DefaultMCMPRequestFactory.DEFAULT_SESSION_COOKIE_NAME);
+        when(engine.getSessionParameterName()).thenReturn(DefaultMCMPRequestFactory.DEFAULT_SESSION_PARAMETER_NAME);
+        when(balancerConfig.getStickySession()).thenReturn(Boolean.TRUE);
+        when(balancerConfig.getStickySessionRemove()).thenReturn(Boolean.FALSE);
+        when(balancerConfig.getStickySessionForce()).thenReturn(Boolean.TRUE);
+        when(balancerConfig.getWorkerTimeout()).thenReturn(-1);
+        when(balancerConfig.getMaxAttempts()).thenReturn(-1);
+        when(engine.getJvmRoute()).thenReturn("host1");
+        when(root.getHost()).thenReturn(host);
+        when(root.getPath()).thenReturn("");
+        when(context.getHost()).thenReturn(host);
+        when(context.getPath()).thenReturn("/context");
+        when(host.getAliases()).thenReturn(new LinkedHashSet<String>(Arrays.asList("localhost", "127.0.0.1")));
+
+        MCMPRequest request = this.factory.createConfigRequest(engine, nodeConfig, balancerConfig, Arrays.asList(root, context));
+
+        assertSame(MCMPRequestType.CONFIG, request.getRequestType());
+        assertFalse(request.isWildcard());
+        assertEquals("host1", request.getJvmRoute());
+
+        Map<String, String> parameters = request.getParameters();
+
+        assertEquals(5, parameters.size());
+        assertEquals("100", parameters.get("Port"));
+        assertEquals("ajp", parameters.get("Type"));
+        assertEquals("localhost,127.0.0.1", parameters.get("Alias"));
+        assertEquals("/,/context", parameters.get("Context"));
+    }
+
     @Test
     public void createInfoRequest() {
         MCMPRequest request = this.factory.createInfoRequest();
@@ -356,4 +406,90 @@ public class DefaultMCMPRequestFactoryTestCase {
         assertEquals("localhost", parameters.get("Host"));
         assertEquals("8009", parameters.get("Port"));
     }
+
+    @Test
+    public void contextRequestsAreReused() {
+        Context context = mock(Context.class);
+        Host host = mock(Host.class);
+        Engine engine = mock(Engine.class);
+
+        when(context.getHost()).thenReturn(host);
+        when(host.getEngine()).thenReturn(engine);
+        when(host.getName()).thenReturn("host");
+        when(engine.getJvmRoute()).thenReturn("host1");
+        when(host.getAliases()).thenReturn(new TreeSet<String>(Arrays.asList("alias1", "alias2")));
+        when(context.getPath()).thenReturn("/context");
+
+        MCMPRequest enable = this.factory.createEnableRequest(context);
+        MCMPRequest disable = this.factory.createDisableRequest(context);
+
+        assertSame(enable, this.factory.createEnableRequest(context));
+        assertSame(disable, this.factory.createDisableRequest(context));
+        assertSame(MCMPRequestType.DISABLE_APP, disable.getRequestType());
+        assertEquals(enable.getParameters(), disable.getParameters());
+
+        // Alias change invalidates cached requests
+        when(host.getAliases()).thenReturn(new TreeSet<String>(Arrays.asList("alias1", "alias3")));
+
+        MCMPRequest request = this.factory.createEnableRequest(context);
+
+        assertNotSame(enable, request);
+        assertEquals("alias1,alias3", request.getParameters().get("Alias"));
+        assertSame(request, this.factory.createEnableRequest(context));
+
+        // jvmRoute change invalidates cached requests
+        when(engine.getJvmRoute()).thenReturn("host2");
+
+        enable = this.factory.createEnableRequest(context);
+
+        assertNotSame(request, enable);
+        assertEquals("host2", enable.getJvmRoute());
+
+        // Removal evicts cached requests
+        MCMPRequest remove = this.factory.createRemoveRequest(context);
+
+        assertSame(MCMPRequestType.REMOVE_APP, remove.getRequestType());
+        assertEquals("host2", remove.getJvmRoute());
+        assertNotSame(enable, this.factory.createEnableRequest(context));
+    }
+
+    @Test
+    public void contextRequestsAreReusedPerEngine() {
+        Context context1 = mock(Context.class);
+        Host host1 = mock(Host.class);
+        Engine engine1 = mock(Engine.class);
+        Context context2 = mock(Context.class);
+        Host host2 = mock(Host.class);
+        Engine engine2 = mock(Engine.class);
+
+        // Same host name and context path in two engines
+        when(context1.getHost()).thenReturn(host1);
+        when(host1.getEngine()).thenReturn(engine1);
+        when(host1.getName()).thenReturn("localhost");
+        when(host1.getAliases()).thenReturn(Collections.singleton("localhost"));
+        when(engine1.getName()).thenReturn("engine1");
+        when(engine1.getJvmRoute()).thenReturn("route1");
+        when(context1.getPath()).thenReturn("/context");
+        when(context2.getHost()).thenReturn(host2);
+        when(host2.getEngine()).thenReturn(engine2);
+        when(host2.getName()).thenReturn("localhost");
+        when(host2.getAliases()).thenReturn(Collections.singleton("localhost"));
+        when(engine2.getName()).thenReturn("engine2");
+        when(engine2.getJvmRoute()).thenReturn("route2");
+        when(context2.getPath()).thenReturn("/context");
+
+        MCMPRequest enable1 = this.factory.createEnableRequest(context1);
+        MCMPRequest enable2 = this.factory.createEnableRequest(context2);
+
+        assertEquals("route1", enable1.getJvmRoute());
+        assertEquals("route2", enable2.getJvmRoute());
+        assertSame(enable1, this.factory.createEnableRequest(context1));
+        assertSame(enable2, this.factory.createEnableRequest(context2));
+
+        // Removal only evicts the cached requests of its engine
+        this.factory.createRemoveRequest(context1);
+
+        assertNotSame(enable1, this.factory.createEnableRequest(context1));
+        assertSame(enable2, this.factory.createEnableRequest(context2));
+    }
 }
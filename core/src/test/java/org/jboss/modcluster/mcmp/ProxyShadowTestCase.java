@@ -0,0 +1,172 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.mcmp;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.jboss.modcluster.mcmp.impl.DefaultMCMPRequest;
+import org.jboss.modcluster.mcmp.impl.DefaultMCMPResponseParser;
+import org.jboss.modcluster.mcmp.impl.ProxyShadow;
+import org.junit.Test;
+
+public class ProxyShadowTestCase {
+    private final ProxyShadow shadow = new ProxyShadow();
+
+    @Test
+    public void unknownStateIsNeverRedundant() {
+        assertFalse(this.shadow.isRedundant(createContextRequest(MCMPRequestType.ENABLE_APP, "/context")));
+        assertFalse(this.shadow.isRedundant(createContextRequest(MCMPRequestType.DISABLE_APP, "/context")));
+        assertFalse(this.shadow.isRedundant(createConfigRequest("8009")));
+    }
+
+    @Test
+    public void acknowledgedContextRequests() {
+        MCMPRequest enable = createContextRequest(MCMPRequestType.ENABLE_APP, "/context");
+        MCMPRequest disable = createContextRequest(MCMPRequestType.DISABLE_APP, "/context");
+
+        this.shadow.update(enable);
+
+        assertTrue(this.shadow.isRedundant(enable));
+        assertFalse(this.shadow.isRedundant(disable));
+        assertFalse(this.shadow.isRedundant(createContextRequest(MCMPRequestType.ENABLE_APP, "/other")));
+
+        this.shadow.update(disable);
+
+        assertFalse(this.shadow.isRedundant(enable));
+        assertTrue(this.shadow.isRedundant(disable));
+
+        this.shadow.update(createContextRequest(MCMPRequestType.REMOVE_APP, "/context"));
+
+        assertFalse(this.shadow.isRedundant(enable));
+        assertFalse(this.shadow.isRedundant(disable));
+    }
+
+    @Test
+    public void stopAndStatusAreNeverRedundant() {
+        MCMPRequest stop = createContextRequest(MCMPRequestType.STOP_APP, "/context");
+
+        this.shadow.update(stop);
+
+        assertFalse(this.shadow.isRedundant(stop));
+        assertFalse(this.shadow.isRedundant(new DefaultMCMPRequest(MCMPRequestType.STATUS, false, "node1", Collections.singletonMap("Load", "1"))));
+    }
+
+    @Test
+    public void wildcardRequests() {
+        MCMPRequest enable = createContextRequest(MCMPRequestType.ENABLE_APP, "/context");
+
+        this.shadow.update(enable);
+        this.shadow.update(new DefaultMCMPRequest(MCMPRequestType.DISABLE_APP, true, "node1", Collections.<String, String>emptyMap()));
+
+        assertFalse(this.shadow.isRedundant(enable));
+        assertTrue(this.shadow.isRedundant(createContextRequest(MCMPRequestType.DISABLE_APP, "/context")));
+
+        // Wildcard requests themselves are always sent
+        assertFalse(this.shadow.isRedundant(new DefaultMCMPRequest(MCMPRequestType.DISABLE_APP, true, "node1", Collections.<String, String>emptyMap())));
+
+        this.shadow.update(new DefaultMCMPRequest(MCMPRequestType.REMOVE_APP, true, "node1", Collections.<String, String>emptyMap()));
+
+        assertFalse(this.shadow.isRedundant(createContextRequest(MCMPRequestType.DISABLE_APP, "/context")));
+    }
+
+    @Test
+    public void config() {
+        this.shadow.update(createConfigRequest("8009"));
+
+        assertTrue(this.shadow.isRedundant(createConfigRequest("8009")));
+        assertFalse(this.shadow.isRedundant(createConfigRequest("8010")));
+    }
+
+    @Test
+    public void configWithContexts() {
+        Map<String, String> parameters = new HashMap<String, String>(createConfigRequest("8009").getParameters());
+        parameters.put("Alias", "localhost,example.com");
+        parameters.put("Context", "/context,/other");
+
+        this.shadow.update(new DefaultMCMPRequest(MCMPRequestType.CONFIG, false, "node1", parameters));
+
+        // Registered, but not yet enabled
+        assertFalse(this.shadow.isRedundant(createContextRequest(MCMPRequestType.ENABLE_APP, "/context")));
+        assertFalse(this.shadow.isRedundant(createContextRequest(MCMPRequestType.DISABLE_APP, "/context")));
+
+        this.shadow.update(new DefaultMCMPRequest(MCMPRequestType.ENABLE_APP, true, "node1", Collections.<String, String>emptyMap()));
+
+        assertTrue(this.shadow.isRedundant(createContextRequest(MCMPRequestType.ENABLE_APP, "/context")));
+        assertTrue(this.shadow.isRedundant(createContextRequest(MCMPRequestType.ENABLE_APP, "/other")));
+
+        // Node parameters are compared without the registered contexts
+        assertTrue(this.shadow.isRedundant(createConfigRequest("8009")));
+        assertFalse(this.shadow.isRedundant(createConfigRequest("8010")));
+        assertFalse(this.shadow.isRedundant(new DefaultMCMPRequest(MCMPRequestType.CONFIG, false, "node1", parameters)));
+    }
+
+    @Test
+    public void reset() {
+        String response = "Node: [1],Name: node1,Balancer: mycluster,LBGroup: ,Host: 127.0.0.1,Port: 8009,Type: ajp,Flushpackets: Off,Flushwait: 10,Ping: 10,Smax: 1,Ttl: 60,Elected: 0,Read: 0,Transfered: 0,Connected: 0,Load: 1\n"
+                + "Vhost: [1:1:1], Alias: localhost\n"
+                + "Vhost: [1:1:2], Alias: example.com\n"
+                + "Context: [1:1:1], Context: /context, Status: ENABLED\n"
+                + "Context: [1:1:2], Context: /stopped, Status: STOPPED\n";
+        Map<String, Set<ResetRequestSource.VirtualHost>> parsed = new DefaultMCMPResponseParser().parseInfoResponse(response);
+
+        this.shadow.reset(parsed);
+
+        assertTrue(this.shadow.isRedundant(createContextRequest(MCMPRequestType.ENABLE_APP, "/context")));
+        assertFalse(this.shadow.isRedundant(createContextRequest(MCMPRequestType.ENABLE_APP, "/stopped")));
+        // Node parameters are not reported by INFO
+        assertFalse(this.shadow.isRedundant(createConfigRequest("8009")));
+    }
+
+    @Test
+    public void invalidate() {
+        MCMPRequest enable = createContextRequest(MCMPRequestType.ENABLE_APP, "/context");
+        MCMPRequest config = createConfigRequest("8009");
+
+        this.shadow.update(config);
+        this.shadow.update(enable);
+        this.shadow.invalidate();
+
+        assertFalse(this.shadow.isRedundant(enable));
+        assertFalse(this.shadow.isRedundant(config));
+    }
+
+    private static MCMPRequest createContextRequest(MCMPRequestType type, String path) {
+        Map<String, String> parameters = new TreeMap<String, String>();
+        parameters.put("Context", path);
+        parameters.put("Alias", "localhost,example.com");
+        return new DefaultMCMPRequest(type, false, "node1", parameters);
+    }
+
+    private static MCMPRequest createConfigRequest(String port) {
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put("Host", "127.0.0.1");
+        parameters.put("Port", port);
+        parameters.put("Type", "ajp");
+        return new DefaultMCMPRequest(MCMPRequestType.CONFIG, false, "node1", parameters);
+    }
+}
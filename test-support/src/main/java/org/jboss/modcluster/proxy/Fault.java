@@ -0,0 +1,126 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.proxy;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misbehaviour of a {@link StubProxyServer} when answering a single request.
+ */
+public final class Fault {
+
+    public enum Type {
+        /** Respond normally, but only after a delay. */
+        DELAY,
+        /** Abort the connection with a TCP reset instead of responding. */
+        RESET,
+        /** Shut down the output side of the connection instead of responding. */
+        HALF_CLOSE,
+        /** Never respond, leaving the connection open. */
+        STALL,
+        /** Respond normally, using chunked transfer encoding. */
+        CHUNKED,
+        /** Respond with an MCMP error. */
+        ERROR,
+    }
+
+    private final Type type;
+    private final long delay;
+    private final String errorType;
+    private final String message;
+
+    private Fault(Type type, long delay, String errorType, String message) {
+        this.type = type;
+        this.delay = delay;
+        this.errorType = errorType;
+        this.message = message;
+    }
+
+    public static Fault delay(long delay, TimeUnit unit) {
+        return new Fault(Type.DELAY, unit.toMillis(delay), null, null);
+    }
+
+    public static Fault reset() {
+        return new Fault(Type.RESET, 0, null, null);
+    }
+
+    public static Fault halfClose() {
+        return new Fault(Type.HALF_CLOSE, 0, null, null);
+    }
+
+    public static Fault stall() {
+        return new Fault(Type.STALL, 0, null, null);
+    }
+
+    public static Fault chunked() {
+        return new Fault(Type.CHUNKED, 0, null, null);
+    }
+
+    /**
+     * An error the proxy cannot recover from, e.g. a malformed request.
+     */
+    public static Fault syntaxError(String message) {
+        return error("SYNTAX", message);
+    }
+
+    /**
+     * An error the proxy reports when its shared memory is inconsistent, e.g. after a restart.
+     */
+    public static Fault memError(String message) {
+        return error("MEM", message);
+    }
+
+    public static Fault error(String errorType, String message) {
+        return new Fault(Type.ERROR, 0, errorType, message);
+    }
+
+    public Type getType() {
+        return this.type;
+    }
+
+    /**
+     * Returns the delay in milliseconds of a {@link Type#DELAY} fault.
+     */
+    public long getDelay() {
+        return this.delay;
+    }
+
+    public String getErrorType() {
+        return this.errorType;
+    }
+
+    public String getMessage() {
+        return this.message;
+    }
+
+    @Override
+    public String toString() {
+        switch (this.type) {
+            case DELAY:
+                return this.type + "(" + this.delay + "ms)";
+            case ERROR:
+                return this.type + "(" + this.errorType + ": " + this.message + ")";
+            default:
+                return this.type.toString();
+        }
+    }
+}
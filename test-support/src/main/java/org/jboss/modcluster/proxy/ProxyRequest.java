@@ -0,0 +1,67 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.proxy;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * An MCMP request as received by a {@link StubProxyServer}.
+ */
+public class ProxyRequest {
+    private final String command;
+    private final boolean wildcard;
+    private final Map<String, String> parameters;
+
+    ProxyRequest(String command, boolean wildcard, Map<String, String> parameters) {
+        this.command = command;
+        this.wildcard = wildcard;
+        this.parameters = Collections.unmodifiableMap(parameters);
+    }
+
+    /**
+     * Returns the MCMP command, e.g. CONFIG or ENABLE-APP.
+     */
+    public String getCommand() {
+        return this.command;
+    }
+
+    public boolean isWildcard() {
+        return this.wildcard;
+    }
+
+    public String getJvmRoute() {
+        return this.parameters.get("JVMRoute");
+    }
+
+    /**
+     * Returns the decoded parameters of the request body, in the order they were sent.
+     */
+    public Map<String, String> getParameters() {
+        return this.parameters;
+    }
+
+    @Override
+    public String toString() {
+        return this.command + (this.wildcard ? " *" : "") + " " + this.parameters;
+    }
+}
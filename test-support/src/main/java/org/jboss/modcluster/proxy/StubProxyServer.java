@@ -0,0 +1,679 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.modcluster.proxy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embeddable stand-in for httpd with mod_proxy_cluster. Keeps node and context state from CONFIG, ENABLE-APP,
+ * DISABLE-APP, STOP-APP, REMOVE-APP and STATUS requests, and answers INFO, DUMP, PING and STOP-APP the way the real
+ * proxy does. Faults can be scripted per command to reproduce slow, flapping or misbehaving proxies deterministically.
+ * <p>
+ * Each connection is served by its own thread and may carry any number of requests.
+ */
+public class StubProxyServer implements Closeable {
+    /** Script key matching any command. */
+    public static final String ANY_COMMAND = "*";
+
+    private static final String CRLF = "\r\n";
+    private static final int CHUNK_SIZE = 64;
+
+    private final InetAddress bindAddress;
+    private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "StubProxyServer-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private final Set<Socket> connections = Collections.newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+    private final List<ProxyRequest> requests = new CopyOnWriteArrayList<ProxyRequest>();
+    // Scripted faults per command, consumed in order
+    private final Map<String, Queue<Fault>> faults = new HashMap<String, Queue<Fault>>();
+    // Node state, keyed by jvmRoute
+    private final Map<String, Node> nodes = new LinkedHashMap<String, Node>();
+    // Requests reported by STOP-APP, keyed by jvmRoute + context path
+    private final Map<String, Integer> activeRequests = new HashMap<String, Integer>();
+    private final AtomicInteger nextNodeId = new AtomicInteger();
+    private final AtomicInteger nextResponseId = new AtomicInteger();
+
+    private volatile long latency = 0;
+    private volatile ServerSocket serverSocket;
+
+    /**
+     * Creates a server listening on an ephemeral port of the loopback address.
+     */
+    public StubProxyServer() {
+        this(InetAddress.getLoopbackAddress());
+    }
+
+    public StubProxyServer(InetAddress bindAddress) {
+        this.bindAddress = bindAddress;
+    }
+
+    public void start() throws IOException {
+        final ServerSocket serverSocket = new ServerSocket(0, 50, this.bindAddress);
+        this.serverSocket = serverSocket;
+        this.executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                while (!serverSocket.isClosed()) {
+                    try {
+                        final Socket socket = serverSocket.accept();
+                        StubProxyServer.this.connections.add(socket);
+                        StubProxyServer.this.executor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                StubProxyServer.this.serve(socket);
+                            }
+                        });
+                    } catch (IOException e) {
+                        // Server socket was closed
+                    }
+                }
+            }
+        });
+    }
+
+    public void stop() {
+        ServerSocket serverSocket = this.serverSocket;
+        if (serverSocket != null) {
+            close(serverSocket);
+            this.serverSocket = null;
+        }
+        this.closeConnections();
+        this.executor.shutdownNow();
+    }
+
+    @Override
+    public void close() {
+        this.stop();
+    }
+
+    /**
+     * Returns the address MCMP clients should connect to.
+     */
+    public InetSocketAddress getAddress() {
+        return new InetSocketAddress(this.serverSocket.getInetAddress(), this.serverSocket.getLocalPort());
+    }
+
+    /**
+     * Closes every open client connection, as a proxy restart or an idle timeout would.
+     */
+    public void closeConnections() {
+        for (Socket socket : this.connections) {
+            close(socket);
+        }
+    }
+
+    /**
+     * Delays every response by the specified latency, in addition to any scripted {@link Fault.Type#DELAY} fault.
+     */
+    public void setLatency(long latency, TimeUnit unit) {
+        this.latency = unit.toMillis(latency);
+    }
+
+    /**
+     * Scripts the specified faults for the next requests of the specified command, one fault per request, in order.
+     * Use {@link #ANY_COMMAND} to match requests of any command. Faults for a specific command take precedence.
+     */
+    public synchronized void inject(String command, Fault... faults) {
+        Queue<Fault> queue = this.faults.get(command);
+        if (queue == null) {
+            queue = new LinkedList<Fault>();
+            this.faults.put(command, queue);
+        }
+        queue.addAll(Arrays.asList(faults));
+    }
+
+    /**
+     * Discards all scripted faults that were not consumed yet.
+     */
+    public synchronized void clearFaults() {
+        this.faults.clear();
+    }
+
+    /**
+     * Sets the number of requests STOP-APP reports as still being processed by the specified context.
+     */
+    public synchronized void setActiveRequests(String jvmRoute, String path, int requests) {
+        this.activeRequests.put(jvmRoute + path, requests);
+    }
+
+    /**
+     * Returns all requests received so far, in the order they were received, including requests answered with a fault.
+     */
+    public List<ProxyRequest> getRequests() {
+        return new ArrayList<ProxyRequest>(this.requests);
+    }
+
+    public void clearRequests() {
+        this.requests.clear();
+    }
+
+    /**
+     * Returns the jvmRoutes of the registered nodes.
+     */
+    public synchronized Set<String> getNodes() {
+        return new LinkedHashSet<String>(this.nodes.keySet());
+    }
+
+    /**
+     * Returns the parameters of the last CONFIG request of the specified node, or null if the node is not registered.
+     */
+    public synchronized Map<String, String> getNodeConfiguration(String jvmRoute) {
+        Node node = this.nodes.get(jvmRoute);
+        return (node != null) ? new LinkedHashMap<String, String>(node.config) : null;
+    }
+
+    /**
+     * Returns the last load factor reported by the specified node via STATUS, or -1 if none was reported.
+     */
+    public synchronized int getLoad(String jvmRoute) {
+        Node node = this.nodes.get(jvmRoute);
+        return (node != null) ? node.load : -1;
+    }
+
+    /**
+     * Returns ENABLED, DISABLED or STOPPED for the specified context of the virtual host with the specified alias, or
+     * null if the context is unknown.
+     */
+    public synchronized String getContextStatus(String jvmRoute, String alias, String path) {
+        Node node = this.nodes.get(jvmRoute);
+        if (node != null) {
+            for (VirtualHost host : node.hosts) {
+                if (host.aliases.contains(alias.toLowerCase())) {
+                    for (ProxyContext context : node.contexts) {
+                        if ((context.host == host) && context.path.equals(path)) {
+                            return context.status;
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private void serve(Socket socket) {
+        try {
+            InputStream input = socket.getInputStream();
+            OutputStream output = socket.getOutputStream();
+            String line = readLine(input);
+            while (line != null) {
+                // Request line, formed like "ENABLE-APP /path HTTP/1.1"
+                String[] parts = line.split(" ");
+                if (parts.length < 2) {
+                    // Tolerate stray blank lines between requests
+                    line = readLine(input);
+                    continue;
+                }
+                String command = parts[0];
+                boolean wildcard = parts[1].endsWith("*");
+                int contentLength = 0;
+                line = readLine(input);
+                while ((line != null) && !line.isEmpty()) {
+                    int colon = line.indexOf(':');
+                    if ((colon > 0) && "Content-Length".equalsIgnoreCase(line.substring(0, colon).trim())) {
+                        contentLength = Integer.parseInt(line.substring(colon + 1).trim());
+                    }
+                    line = readLine(input);
+                }
+                if (line == null) return;
+
+                byte[] body = new byte[contentLength];
+                int read = 0;
+                while (read < contentLength) {
+                    int bytes = input.read(body, read, contentLength - read);
+                    if (bytes < 0) return;
+                    read += bytes;
+                }
+
+                ProxyRequest request = new ProxyRequest(command, wildcard, parseParameters(new String(body, StandardCharsets.US_ASCII)));
+                this.requests.add(request);
+
+                Fault fault = this.nextFault(command);
+                long delay = this.latency + (((fault != null) && (fault.getType() == Fault.Type.DELAY)) ? fault.getDelay() : 0);
+                if (delay > 0) {
+                    Thread.sleep(delay);
+                }
+
+                if (fault != null) {
+                    switch (fault.getType()) {
+                        case RESET:
+                            socket.setSoLinger(true, 0);
+                            socket.close();
+                            return;
+                        case HALF_CLOSE:
+                            socket.shutdownOutput();
+                            // Drain whatever the client still sends until it gives up on this connection
+                            while (input.read() >= 0) {
+                                // Discard
+                            }
+                            return;
+                        case STALL:
+                            // Leave the request unanswered; the client will time out
+                            while (input.read() >= 0) {
+                                // Discard
+                            }
+                            return;
+                        case ERROR:
+                            writeError(output, fault.getErrorType(), fault.getMessage());
+                            line = readLine(input);
+                            continue;
+                        default:
+                            break;
+                    }
+                }
+
+                Response response;
+                synchronized (this) {
+                    response = this.process(request);
+                }
+                if (response.errorType != null) {
+                    writeError(output, response.errorType, response.body);
+                } else {
+                    writeResponse(output, response.body, (fault != null) && (fault.getType() == Fault.Type.CHUNKED));
+                }
+                line = readLine(input);
+            }
+        } catch (IOException e) {
+            // Connection closed
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.connections.remove(socket);
+            close(socket);
+        }
+    }
+
+    private synchronized Fault nextFault(String command) {
+        Queue<Fault> queue = this.faults.get(command);
+        if ((queue == null) || queue.isEmpty()) {
+            queue = this.faults.get(ANY_COMMAND);
+        }
+        return (queue != null) ? queue.poll() : null;
+    }
+
+    private Response process(ProxyRequest request) {
+        String command = request.getCommand();
+        String jvmRoute = request.getJvmRoute();
+        Map<String, String> parameters = request.getParameters();
+
+        switch (command) {
+            case "CONFIG": {
+                if (jvmRoute == null) {
+                    return Response.error("SYNTAX", "JVMRoute can't be empty");
+                }
+                Node node = this.nodes.get(jvmRoute);
+                if (node == null) {
+                    node = new Node(this.nextNodeId.incrementAndGet(), jvmRoute);
+                    this.nodes.put(jvmRoute, node);
+                }
+                node.config.clear();
+                node.config.putAll(parameters);
+                node.config.remove("JVMRoute");
+                // Contexts listed along with their virtual host are registered as stopped
+                String paths = node.config.remove("Context");
+                String aliases = node.config.remove("Alias");
+                if ((paths != null) && (aliases != null)) {
+                    Set<String> aliasSet = new LinkedHashSet<String>(Arrays.asList(aliases.toLowerCase().split(",")));
+                    for (String path : paths.split(",")) {
+                        if (node.findContext(aliasSet, path) == null) {
+                            node.createContext(aliasSet, path).status = "STOPPED";
+                        }
+                    }
+                }
+                return Response.ok("");
+            }
+            case "ENABLE-APP":
+            case "DISABLE-APP":
+            case "STOP-APP":
+            case "REMOVE-APP": {
+                Node node = this.nodes.get(jvmRoute);
+                if (node == null) {
+                    // Wildcard removal of an unknown node is a no-op
+                    if ("REMOVE-APP".equals(command) && request.isWildcard()) {
+                        return Response.ok("");
+                    }
+                    return Response.error("MEM", "MEM: Can't read node with \"" + jvmRoute + "\" JVMRoute");
+                }
+                if (request.isWildcard()) {
+                    return this.processWildcard(command, node);
+                }
+                String path = parameters.get("Context");
+                String alias = parameters.get("Alias");
+                if ((path == null) || (alias == null)) {
+                    return Response.error("SYNTAX", "Context or Alias can't be empty");
+                }
+                Set<String> aliases = new LinkedHashSet<String>(Arrays.asList(alias.toLowerCase().split(",")));
+                ProxyContext context = node.findContext(aliases, path);
+                if ("REMOVE-APP".equals(command)) {
+                    if (context != null) {
+                        node.contexts.remove(context);
+                    }
+                    return Response.ok("");
+                }
+                if (context == null) {
+                    context = node.createContext(aliases, path);
+                }
+                context.status = status(command);
+                if ("STOP-APP".equals(command)) {
+                    Integer active = this.activeRequests.get(jvmRoute + path);
+                    return Response.ok("Type=STOP-APP-RSP&JvmRoute=" + jvmRoute + "&Alias=" + alias + "&Context=" + path + "&Requests=" + ((active != null) ? active : 0));
+                }
+                return Response.ok("");
+            }
+            case "STATUS": {
+                Node node = this.nodes.get(jvmRoute);
+                if (node == null) {
+                    return Response.error("MEM", "MEM: Can't read node with \"" + jvmRoute + "\" JVMRoute");
+                }
+                String load = parameters.get("Load");
+                if (load == null) {
+                    return Response.error("SYNTAX", "Load can't be empty");
+                }
+                node.load = Integer.parseInt(load);
+                return Response.ok("Type=STATUS-RSP&JVMRoute=" + jvmRoute + "&State=OK&id=" + this.nextResponseId.incrementAndGet());
+            }
+            case "PING": {
+                StringBuilder builder = new StringBuilder("Type=PING-RSP");
+                if (jvmRoute != null) {
+                    if (!this.nodes.containsKey(jvmRoute)) {
+                        return Response.error("MEM", "MEM: Can't read node with \"" + jvmRoute + "\" JVMRoute");
+                    }
+                    builder.append("&JVMRoute=").append(jvmRoute);
+                }
+                return Response.ok(builder.append("&State=OK&id=").append(this.nextResponseId.incrementAndGet()).toString());
+            }
+            case "INFO":
+                return Response.ok(this.info());
+            case "DUMP":
+                return Response.ok(this.dump());
+            default:
+                return Response.error("SYNTAX", "Invalid method " + command);
+        }
+    }
+
+    private Response processWildcard(String command, Node node) {
+        if ("REMOVE-APP".equals(command)) {
+            this.nodes.remove(node.jvmRoute);
+        } else {
+            for (ProxyContext context : node.contexts) {
+                context.status = status(command);
+            }
+        }
+        return Response.ok("");
+    }
+
+    private static String status(String command) {
+        switch (command) {
+            case "ENABLE-APP":
+                return "ENABLED";
+            case "DISABLE-APP":
+                return "DISABLED";
+            default:
+                return "STOPPED";
+        }
+    }
+
+    private String info() {
+        StringBuilder builder = new StringBuilder();
+        for (Node node : this.nodes.values()) {
+            Map<String, String> config = node.config;
+            builder.append("Node: [").append(node.id).append("],Name: ").append(node.jvmRoute)
+                    .append(",Balancer: ").append(value(config, "Balancer", "mycluster"))
+                    .append(",LBGroup: ").append(value(config, "Domain", ""))
+                    .append(",Host: ").append(value(config, "Host", "localhost"))
+                    .append(",Port: ").append(value(config, "Port", "8009"))
+                    .append(",Type: ").append(value(config, "Type", "ajp"))
+                    .append(",Flushpackets: ").append("On".equals(config.get("flushpackets")) ? "On" : "Off")
+                    .append(",Flushwait: ").append(value(config, "flushwait", "10"))
+                    .append(",Ping: ").append(value(config, "ping", "10"))
+                    .append(",Smax: ").append(value(config, "smax", "1"))
+                    .append(",Ttl: ").append(value(config, "ttl", "60"))
+                    .append(",Elected: 0,Read: 0,Transfered: 0,Connected: 0,Load: ").append(node.load).append('\n');
+            for (VirtualHost host : node.hosts) {
+                int index = 0;
+                for (String alias : host.aliases) {
+                    builder.append("Vhost: [").append(node.id).append(':').append(host.id).append(':').append(++index)
+                            .append("], Alias: ").append(alias).append('\n');
+                }
+            }
+            for (ProxyContext context : node.contexts) {
+                builder.append("Context: [").append(node.id).append(':').append(context.host.id).append(':').append(context.id)
+                        .append("], Context: ").append(context.path).append(", Status: ").append(context.status).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+
+    private String dump() {
+        StringBuilder builder = new StringBuilder();
+        for (Node node : this.nodes.values()) {
+            Map<String, String> config = node.config;
+            builder.append("node: [").append(node.id).append(':').append(node.id).append("],Balancer: ").append(value(config, "Balancer", "mycluster"))
+                    .append(",JVMRoute: ").append(node.jvmRoute)
+                    .append(",LBGroup: [").append(value(config, "Domain", "")).append(']')
+                    .append(",Host: ").append(value(config, "Host", "localhost"))
+                    .append(",Port: ").append(value(config, "Port", "8009"))
+                    .append(",Type: ").append(value(config, "Type", "ajp"))
+                    .append(",flushpackets: ").append("On".equals(config.get("flushpackets")) ? 1 : 0)
+                    .append(",flushwait: ").append(value(config, "flushwait", "10"))
+                    .append(",ping: ").append(value(config, "ping", "10"))
+                    .append(",smax: ").append(value(config, "smax", "1"))
+                    .append(",ttl: ").append(value(config, "ttl", "60"))
+                    .append(",timeout: ").append(value(config, "Timeout", "0")).append('\n');
+            for (VirtualHost host : node.hosts) {
+                for (String alias : host.aliases) {
+                    builder.append("host: ").append(host.id).append(" [").append(alias).append("] vhost: ").append(host.id)
+                            .append(" node: ").append(node.id).append('\n');
+                }
+            }
+            for (ProxyContext context : node.contexts) {
+                int status = "ENABLED".equals(context.status) ? 1 : "DISABLED".equals(context.status) ? 2 : 3;
+                builder.append("context: ").append(context.id).append(" [").append(context.path).append("] vhost: ").append(context.host.id)
+                        .append(" node: ").append(node.id).append(" status: ").append(status).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String value(Map<String, String> config, String key, String defaultValue) {
+        String value = config.get(key);
+        return (value != null) ? value : defaultValue;
+    }
+
+    private static Map<String, String> parseParameters(String body) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new LinkedHashMap<String, String>();
+        if (!body.isEmpty()) {
+            for (String parameter : body.split("&")) {
+                int index = parameter.indexOf('=');
+                String name = (index < 0) ? parameter : parameter.substring(0, index);
+                String value = (index < 0) ? "" : parameter.substring(index + 1);
+                parameters.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+            }
+        }
+        return parameters;
+    }
+
+    private static String readLine(InputStream input) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int b = input.read();
+        if (b < 0) return null;
+        while ((b >= 0) && (b != '\n')) {
+            if (b != '\r') {
+                line.write(b);
+            }
+            b = input.read();
+        }
+        return new String(line.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    private static void writeResponse(OutputStream output, String body, boolean chunked) throws IOException {
+        StringBuilder builder = new StringBuilder("HTTP/1.1 200 OK").append(CRLF);
+        builder.append("Server: StubProxyServer").append(CRLF);
+        if (chunked) {
+            builder.append("Transfer-Encoding: chunked").append(CRLF).append(CRLF);
+            for (int i = 0; i < body.length(); i += CHUNK_SIZE) {
+                String chunk = body.substring(i, Math.min(i + CHUNK_SIZE, body.length()));
+                builder.append(Integer.toHexString(chunk.length())).append(CRLF).append(chunk).append(CRLF);
+            }
+            builder.append('0').append(CRLF).append(CRLF);
+        } else {
+            builder.append("Content-Length: ").append(body.length()).append(CRLF).append(CRLF).append(body);
+        }
+        output.write(builder.toString().getBytes(StandardCharsets.US_ASCII));
+        output.flush();
+    }
+
+    private static void writeError(OutputStream output, String type, String message) throws IOException {
+        StringBuilder builder = new StringBuilder("HTTP/1.1 500 Internal Server Error").append(CRLF);
+        builder.append("Version: 1").append(CRLF);
+        builder.append("Type: ").append(type).append(CRLF);
+        builder.append("Mess: ").append(message).append(CRLF);
+        builder.append("Content-Length: 0").append(CRLF).append(CRLF);
+        output.write(builder.toString().getBytes(StandardCharsets.US_ASCII));
+        output.flush();
+    }
+
+    private static void close(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+
+    private static class Response {
+        final String body;
+        final String errorType;
+
+        private Response(String body, String errorType) {
+            this.body = body;
+            this.errorType = errorType;
+        }
+
+        static Response ok(String body) {
+            return new Response(body, null);
+        }
+
+        static Response error(String type, String message) {
+            return new Response(message, type);
+        }
+    }
+
+    private static class Node {
+        final int id;
+        final String jvmRoute;
+        final Map<String, String> config = new LinkedHashMap<String, String>();
+        final List<VirtualHost> hosts = new ArrayList<VirtualHost>();
+        final List<ProxyContext> contexts = new ArrayList<ProxyContext>();
+        int load = -1;
+        private int nextHostId = 0;
+        private int nextContextId = 0;
+
+        Node(int id, String jvmRoute) {
+            this.id = id;
+            this.jvmRoute = jvmRoute;
+        }
+
+        ProxyContext findContext(Set<String> aliases, String path) {
+            for (ProxyContext context : this.contexts) {
+                if (context.host.aliases.equals(aliases) && context.path.equals(path)) {
+                    return context;
+                }
+            }
+            return null;
+        }
+
+        ProxyContext createContext(Set<String> aliases, String path) {
+            VirtualHost host = null;
+            for (VirtualHost candidate : this.hosts) {
+                if (candidate.aliases.equals(aliases)) {
+                    host = candidate;
+                }
+            }
+            if (host == null) {
+                host = new VirtualHost(++this.nextHostId, aliases);
+                this.hosts.add(host);
+            }
+            ProxyContext context = new ProxyContext(++this.nextContextId, host, path);
+            this.contexts.add(context);
+            return context;
+        }
+    }
+
+    private static class VirtualHost {
+        final int id;
+        final Set<String> aliases;
+
+        VirtualHost(int id, Set<String> aliases) {
+            this.id = id;
+            this.aliases = aliases;
+        }
+    }
+
+    private static class ProxyContext {
+        final int id;
+        final VirtualHost host;
+        final String path;
+        String status;
+
+        ProxyContext(int id, VirtualHost host, String path) {
+            this.id = id;
+            this.host = host;
+            this.path = path;
+        }
+    }
+}